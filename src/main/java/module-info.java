@@ -6,6 +6,7 @@ module com.example.imageapp {
     requires opencv;
     requires org.apache.logging.log4j;
     requires static lombok;
+    requires static jdk.incubator.vector;
     requires jdk.compiler;
     requires java.base;
     exports org.example.appinterface;
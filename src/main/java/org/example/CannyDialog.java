@@ -0,0 +1,261 @@
+package org.example;
+
+import lombok.Getter;
+import org.example.linearops.CannySession;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+Interaktywna detekcja krawędzi operatorem Canny'ego.
+
+Gradienty i tłumienie niemaksymalne są liczone poza EDT raz dla obrazu i rozmiaru maski
+(CannySession); zmiana progów wykonuje tylko histerezę. Zmiany suwaków w trakcie liczenia
+są pomijane - liczone są tylko ostatnie progi. Progi można też dobrać automatycznie
+(mediana lub Otsu modułu gradientu).
+ */
+public class CannyDialog extends JDialog {
+    private final BufferedImage originalImage;
+    /** sesja i progi zatwierdzone przyciskiem OK (null po anulowaniu) - krawędzie liczy wywołujący */
+    @Getter
+    private CannySession acceptedSession;
+    @Getter
+    private double acceptedLowThreshold;
+    @Getter
+    private double acceptedHighThreshold;
+    private final ImageService imageService;
+
+    private volatile CannySession session;
+    private final PreviewPanel previewPanel;
+    private final JSlider lowSlider = new JSlider(0, 255, 100);
+    private final JSlider highSlider = new JSlider(0, 255, 200);
+    private final JLabel thresholdsLabel = new JLabel();
+    private final JLabel statusLabel = new JLabel(" ");
+    private final JComboBox<Integer> apertureBox = new JComboBox<>(new Integer[]{3, 5, 7});
+    private final JCheckBox l2GradientBox = new JCheckBox("L2 gradient");
+
+    private final AtomicReference<double[]> pendingThresholds = new AtomicReference<>();
+    private final AtomicBoolean rendering = new AtomicBoolean();
+    private final ExecutorService previewExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "canny-preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CannyDialog(JFrame parent, BufferedImage image, ImageService imageService) {
+        super(parent, "Canny Edge Detection", true);
+        this.originalImage = image;
+        this.imageService = imageService;
+
+        setLayout(new BorderLayout());
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancel();
+            }
+        });
+
+        previewPanel = new PreviewPanel(previewSize(image));
+        add(new JScrollPane(previewPanel), BorderLayout.CENTER);
+
+        JPanel controlsPanel = new JPanel();
+        controlsPanel.setLayout(new BoxLayout(controlsPanel, BoxLayout.Y_AXIS));
+
+        lowSlider.addChangeListener(e -> requestPreview());
+        highSlider.addChangeListener(e -> requestPreview());
+
+        JPanel sliderPanel = new JPanel(new GridLayout(2, 2));
+        sliderPanel.add(new JLabel("Threshold 1 (low):"));
+        sliderPanel.add(lowSlider);
+        sliderPanel.add(new JLabel("Threshold 2 (high):"));
+        sliderPanel.add(highSlider);
+        controlsPanel.add(sliderPanel);
+
+        JPanel optionsPanel = new JPanel(new FlowLayout());
+        optionsPanel.add(new JLabel("Aperture:"));
+        optionsPanel.add(apertureBox);
+        optionsPanel.add(l2GradientBox);
+        apertureBox.addActionListener(e -> rebuildSession());
+        l2GradientBox.addActionListener(e -> rebuildSession());
+
+        JButton medianButton = new JButton("Auto (median)");
+        medianButton.addActionListener(e -> applyAutoThresholds(CannySession.AutoThreshold.MEDIAN));
+        JButton otsuButton = new JButton("Auto (Otsu)");
+        otsuButton.addActionListener(e -> applyAutoThresholds(CannySession.AutoThreshold.OTSU));
+        optionsPanel.add(medianButton);
+        optionsPanel.add(otsuButton);
+        controlsPanel.add(optionsPanel);
+
+        JPanel statusPanel = new JPanel(new FlowLayout());
+        statusPanel.add(thresholdsLabel);
+        statusPanel.add(statusLabel);
+        controlsPanel.add(statusPanel);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton okButton = new JButton("OK");
+        okButton.addActionListener(e -> {
+            CannySession current = session;
+            if (current == null) {
+                JOptionPane.showMessageDialog(this, "Gradients are still being computed.", "Canny", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            acceptedSession = current;
+            acceptedLowThreshold = lowSlider.getValue();
+            acceptedHighThreshold = highSlider.getValue();
+            dispose();
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> cancel());
+
+        buttonPanel.add(okButton);
+        buttonPanel.add(cancelButton);
+        controlsPanel.add(buttonPanel);
+
+        add(controlsPanel, BorderLayout.SOUTH);
+
+        pack();
+        setLocationRelativeTo(parent);
+
+        rebuildSession();
+    }
+
+    @Override
+    public void dispose() {
+        previewExecutor.shutdownNow();
+        session = null; // gradienty zwalniane razem z oknem (poza zatwierdzoną sesją)
+        super.dispose();
+    }
+
+    private void cancel() {
+        acceptedSession = null; // oryginał pozostaje bez zmian
+        dispose();
+    }
+
+    /**
+     * Liczy gradienty dla wybranej maski i normy poza EDT; do tego czasu suwaki nie zmieniają podglądu.
+     */
+    private void rebuildSession() {
+        int apertureSize = (Integer) apertureBox.getSelectedItem();
+        boolean l2Gradient = l2GradientBox.isSelected();
+        session = null;
+        statusLabel.setText("Computing gradients...");
+        previewExecutor.execute(() -> {
+            try {
+                CannySession created = imageService.createCannySession(originalImage, apertureSize, l2Gradient);
+                SwingUtilities.invokeLater(() -> sessionReady(created));
+            } catch (RuntimeException ex) {
+                SwingUtilities.invokeLater(() -> statusLabel.setText("Error: " + ex.getMessage()));
+            }
+        });
+    }
+
+    private void sessionReady(CannySession created) {
+        if (!isDisplayable()) {
+            return; // okno zamknięte przed końcem obliczeń
+        }
+        if (created.getApertureSize() != (Integer) apertureBox.getSelectedItem()
+                || created.isL2Gradient() != l2GradientBox.isSelected()) {
+            return; // w międzyczasie wybrano inne ustawienia - ich sesja jest już w kolejce
+        }
+        session = created;
+        // zakres suwaków - do największego modułu gradientu
+        int max = Math.max(1, (int) Math.ceil(created.getMaxMagnitude()));
+        lowSlider.setMaximum(max);
+        highSlider.setMaximum(max);
+        statusLabel.setText(" ");
+        requestPreview();
+    }
+
+    private void applyAutoThresholds(CannySession.AutoThreshold mode) {
+        CannySession current = session;
+        if (current == null) {
+            return;
+        }
+        double[] thresholds = current.autoThresholds(mode);
+        lowSlider.setValue((int) Math.round(thresholds[0]));
+        highSlider.setValue((int) Math.round(thresholds[1]));
+    }
+
+    /**
+     * Zapamiętuje ostatnie progi; jeżeli podgląd nie jest właśnie liczony, zleca jego policzenie.
+     */
+    private void requestPreview() {
+        thresholdsLabel.setText("Thresholds: " + lowSlider.getValue() + " / " + highSlider.getValue());
+        if (session == null) {
+            return;
+        }
+        pendingThresholds.set(new double[]{lowSlider.getValue(), highSlider.getValue()});
+        if (rendering.compareAndSet(false, true)) {
+            previewExecutor.execute(this::renderPending);
+        }
+    }
+
+    /**
+     * Wątek podglądu: histereza dla ostatnich progów na bieżącej sesji.
+     */
+    private void renderPending() {
+        do {
+            try {
+                double[] thresholds;
+                while ((thresholds = pendingThresholds.getAndSet(null)) != null) {
+                    CannySession current = session;
+                    if (current == null) {
+                        break;
+                    }
+                    BufferedImage edges = current.edges(thresholds[0], thresholds[1]);
+                    SwingUtilities.invokeLater(() -> previewPanel.show(edges));
+                }
+            } finally {
+                rendering.set(false);
+            }
+            // zlecenie mogło przyjść między opróżnieniem kolejki a zwolnieniem flagi
+        } while (pendingThresholds.get() != null && rendering.compareAndSet(false, true));
+    }
+
+    /**
+     * Rozmiar podglądu - obraz pomniejszony tak, żeby zmieścił się na ekranie.
+     */
+    private static Dimension previewSize(BufferedImage image) {
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        double scale = Math.min(1.0, Math.min(
+                screen.width * 0.8 / image.getWidth(),
+                screen.height * 0.7 / image.getHeight()));
+        return new Dimension(
+                Math.max(1, (int) Math.round(image.getWidth() * scale)),
+                Math.max(1, (int) Math.round(image.getHeight() * scale)));
+    }
+
+    /**
+     * Komponent rysujący mapę krawędzi przeskalowaną do rozmiaru podglądu.
+     */
+    private static final class PreviewPanel extends JComponent {
+        private BufferedImage image;
+
+        private PreviewPanel(Dimension size) {
+            setPreferredSize(size);
+        }
+
+        private void show(BufferedImage image) {
+            this.image = image;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (image != null) {
+                Dimension size = getPreferredSize();
+                g.drawImage(image, 0, 0, size.width, size.height, null);
+            }
+        }
+    }
+}
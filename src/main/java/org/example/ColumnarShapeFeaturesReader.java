@@ -0,0 +1,134 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Odczyt pliku kolumnowego zapisanego przez ColumnarShapeFeaturesWriter. Każdy blok jest mapowany
+ * do pamięci osobno (plik może być większy niż 2 GB), a kolumna bloku jest widokiem DoubleBuffer
+ * bez kopiowania danych.
+ */
+public final class ColumnarShapeFeaturesReader {
+
+    private final List<String> columns;
+    private final List<MappedByteBuffer> blocks = new ArrayList<>();
+    /** firstRows[b] - numer pierwszego wiersza bloku b */
+    private long[] firstRows = new long[16];
+    private long rowCount;
+
+    private ColumnarShapeFeaturesReader(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public static ColumnarShapeFeaturesReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer fixed = read(channel, 0, ColumnarShapeFeaturesWriter.MAGIC.length + 2 * Integer.BYTES);
+            byte[] magic = new byte[ColumnarShapeFeaturesWriter.MAGIC.length];
+            fixed.get(magic);
+            if (!Arrays.equals(magic, ColumnarShapeFeaturesWriter.MAGIC)) {
+                throw new IllegalArgumentException("Not a shape features file: " + file);
+            }
+            int columnCount = fixed.getInt();
+            fixed.getInt(); // pojemność bloku - tylko informacyjnie
+
+            long position = fixed.capacity();
+            List<String> names = new ArrayList<>();
+            for (int c = 0; c < columnCount; c++) {
+                int length = read(channel, position, Short.BYTES).getShort() & 0xFFFF;
+                names.add(new String(read(channel, position + Short.BYTES, length).array(), StandardCharsets.UTF_8));
+                position += Short.BYTES + length;
+            }
+            position = (position + 7) & ~7L;
+
+            ColumnarShapeFeaturesReader reader = new ColumnarShapeFeaturesReader(Collections.unmodifiableList(names));
+            while (position < size) {
+                int rows = read(channel, position, Integer.BYTES).getInt();
+                long blockSize = ColumnarShapeFeaturesWriter.BLOCK_HEADER_BYTES + (long) columnCount * rows * Double.BYTES;
+                if (rows <= 0 || position + blockSize > size) {
+                    throw new IllegalArgumentException("Corrupted shape features file: " + file);
+                }
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, blockSize);
+                block.order(ByteOrder.LITTLE_ENDIAN);
+                reader.addBlock(block, rows);
+                position += blockSize;
+            }
+            return reader;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("Unexpected end of shape features file.");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void addBlock(MappedByteBuffer block, int rows) {
+        if (blocks.size() == firstRows.length) {
+            firstRows = Arrays.copyOf(firstRows, firstRows.length * 2);
+        }
+        firstRows[blocks.size()] = rowCount;
+        blocks.add(block);
+        rowCount += rows;
+    }
+
+    /**
+     * Nazwy kolumn w kolejności zapisu.
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getBlockCount() {
+        return blocks.size();
+    }
+
+    /**
+     * Wartości kolumny w bloku (widok na zmapowany plik).
+     */
+    public DoubleBuffer column(int block, ShapeFeatures.Column column) {
+        MappedByteBuffer buffer = blocks.get(block);
+        int rows = buffer.getInt(0);
+        int offset = ColumnarShapeFeaturesWriter.BLOCK_HEADER_BYTES + columnIndex(column) * rows * Double.BYTES;
+        return buffer.duplicate().position(offset).limit(offset + rows * Double.BYTES)
+                .slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    public double getValue(long row, ShapeFeatures.Column column) {
+        if (row < 0 || row >= rowCount) {
+            throw new IllegalArgumentException("Row must be between 0 and " + (rowCount - 1) + ".");
+        }
+        int block = Arrays.binarySearch(firstRows, 0, blocks.size(), row);
+        if (block < 0) {
+            block = -block - 2;
+        }
+        return column(block, column).get((int) (row - firstRows[block]));
+    }
+
+    private int columnIndex(ShapeFeatures.Column column) {
+        int index = columns.indexOf(column.getHeader());
+        if (index < 0) {
+            throw new IllegalArgumentException("Column " + column.getHeader() + " is not present in the file.");
+        }
+        return index;
+    }
+}
@@ -0,0 +1,119 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Zapis cech do binarnego pliku kolumnowego, który można mapować do pamięci (ColumnarShapeFeaturesReader).
+ * Wszystkie liczby w kolejności little-endian:
+ * <pre>
+ * nagłówek: "SHPFEAT1" (8 bajtów), int liczba kolumn, int pojemność bloku,
+ *           dla każdej kolumny: short długość nazwy + nazwa w UTF-8; dopełnienie zerami do wielokrotności 8
+ * blok:     int liczba wierszy n, int 0, następnie kolumny po kolei - dla każdej n wartości double
+ * </pre>
+ * Wiersze są buforowane w pamięci tylko do zapełnienia bloku, więc plik może mieć miliony wierszy.
+ * Kolejne bloki dopisywane są na końcu - dopisywanie do istniejącego pliku wymaga tych samych kolumn.
+ */
+final class ColumnarShapeFeaturesWriter implements ShapeFeaturesWriter {
+
+    static final byte[] MAGIC = "SHPFEAT1".getBytes(StandardCharsets.US_ASCII);
+    static final int BLOCK_ROWS = 8192;
+    static final int BLOCK_HEADER_BYTES = 8;
+
+    private static final ShapeFeatures.Column[] COLUMNS = ShapeFeatures.Column.values();
+
+    private final FileChannel channel;
+    private final ByteBuffer block;
+    /** wartości bieżącego bloku kolumnami */
+    private final double[][] values = new double[COLUMNS.length][BLOCK_ROWS];
+    private int rows;
+
+    ColumnarShapeFeaturesWriter(Path file, boolean append) throws IOException {
+        boolean existing = append && Files.exists(file) && Files.size(file) > 0;
+        this.channel = existing
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.block = ByteBuffer.allocateDirect(BLOCK_HEADER_BYTES + COLUMNS.length * BLOCK_ROWS * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            ByteBuffer header = header();
+            if (existing) {
+                ByteBuffer current = ByteBuffer.allocate(header.remaining());
+                channel.read(current, 0);
+                if (!current.flip().equals(header)) {
+                    throw new IllegalArgumentException("File " + file + " has different feature columns.");
+                }
+                channel.position(channel.size());
+            } else {
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(ShapeFeatures features) throws IOException {
+        for (int c = 0; c < COLUMNS.length; c++) {
+            values[c][rows] = COLUMNS[c].valueOf(features);
+        }
+        if (++rows == BLOCK_ROWS) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rows > 0) {
+                flushBlock();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void flushBlock() throws IOException {
+        block.clear();
+        block.putInt(rows).putInt(0);
+        for (double[] column : values) {
+            block.asDoubleBuffer().put(column, 0, rows);
+            block.position(block.position() + rows * Double.BYTES);
+        }
+        block.flip();
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        rows = 0;
+    }
+
+    /**
+     * Nagłówek pliku dla bieżącej listy kolumn.
+     */
+    private static ByteBuffer header() {
+        int size = MAGIC.length + 2 * Integer.BYTES;
+        byte[][] names = new byte[COLUMNS.length][];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            names[c] = COLUMNS[c].getHeader().getBytes(StandardCharsets.UTF_8);
+            size += Short.BYTES + names[c].length;
+        }
+        size = (size + 7) & ~7;
+        ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putInt(COLUMNS.length).putInt(BLOCK_ROWS);
+        for (byte[] name : names) {
+            header.putShort((short) name.length).put(name);
+        }
+        header.position(size);
+        return header.flip();
+    }
+}
@@ -0,0 +1,399 @@
+package org.example;
+
+import lombok.Getter;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Etykietowanie składowych spójnych obrazu binarnego (piksel różny od 0 - obiekt, jak w findContours),
+ * w 4- lub 8-sąsiedztwie. Algorytm dwuprzebiegowy z union-find:
+ * pasy wierszy są etykietowane równolegle, każdy we własnym zakresie etykiet tymczasowych,
+ * a styki pasów są scalane w drzewie podziału fork/join - styk dwóch połówek dotyka tylko etykiet
+ * tych połówek, więc styki różnych poddrzew są scalane równolegle, bez blokad.
+ * W przejściu etykietującym dla każdej etykiety tymczasowej zbierane są pole, prostokąt otaczający
+ * i momenty surowe do rzędu 3; po ujednoliceniu etykiet są one sumowane do etykiet końcowych 1..count.
+ */
+public final class ConnectedComponents {
+
+    public enum Connectivity {
+        FOUR,
+        EIGHT
+    }
+
+    /** rzędy (p, q) momentów surowych m_pq w tablicy moments (m00 to pole) */
+    private static final int[][] MOMENT_ORDERS = {
+            {1, 0}, {0, 1}, {2, 0}, {1, 1}, {0, 2}, {3, 0}, {2, 1}, {1, 2}, {0, 3}
+    };
+    private static final int MOMENTS = MOMENT_ORDERS.length;
+    private static final int MIN_PIXELS_PER_TASK = 1 << 16;
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    /** liczba obiektów (etykiety 1..count) */
+    @Getter
+    private final int count;
+    private final int[] labels;
+    private final long[] area;
+    /** minX, minY, maxX, maxY dla każdej etykiety */
+    private final int[] bounds;
+    private final double[] moments;
+
+    private ConnectedComponents(int width, int height, int count, int[] labels, long[] area, int[] bounds,
+                                double[] moments) {
+        this.width = width;
+        this.height = height;
+        this.count = count;
+        this.labels = labels;
+        this.area = area;
+        this.bounds = bounds;
+        this.moments = moments;
+    }
+
+    public static ConnectedComponents label(BufferedImage binaryImage, Connectivity connectivity) {
+        if (binaryImage == null) {
+            throw new IllegalArgumentException("Image cannot be null.");
+        }
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(binaryImage);
+        return label(RasterBytes.grayBytes(grayImage), grayImage.getWidth(), grayImage.getHeight(), connectivity);
+    }
+
+    static ConnectedComponents label(byte[] image, int width, int height, Connectivity connectivity) {
+        return new Labeler(image, width, height, connectivity == Connectivity.EIGHT).run();
+    }
+
+    /**
+     * Etykiety pikseli wierszami (0 - tło). Tablica nie jest kopiowana.
+     */
+    public int[] getLabels() {
+        return labels;
+    }
+
+    public int getLabel(int x, int y) {
+        return labels[y * width + x];
+    }
+
+    public long getArea(int label) {
+        return area[checked(label)];
+    }
+
+    public Rectangle getBoundingBox(int label) {
+        int b = checked(label) * 4;
+        return new Rectangle(bounds[b], bounds[b + 1], bounds[b + 2] - bounds[b] + 1, bounds[b + 3] - bounds[b + 1] + 1);
+    }
+
+    public double getCentroidX(int label) {
+        return getMoment(label, 1, 0) / area[label];
+    }
+
+    public double getCentroidY(int label) {
+        return getMoment(label, 0, 1) / area[label];
+    }
+
+    /**
+     * Moment surowy m_pq = suma x^p y^q po pikselach obiektu (p + q nie większe niż 3).
+     */
+    public double getMoment(int label, int p, int q) {
+        checked(label);
+        if (p == 0 && q == 0) {
+            return area[label];
+        }
+        for (int m = 0; m < MOMENTS; m++) {
+            if (MOMENT_ORDERS[m][0] == p && MOMENT_ORDERS[m][1] == q) {
+                return moments[label * MOMENTS + m];
+            }
+        }
+        throw new IllegalArgumentException("Moment order must satisfy p + q <= 3.");
+    }
+
+    /**
+     * Obraz etykiet: każdy obiekt w innym kolorze, tło czarne.
+     */
+    public BufferedImage toColorImage() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = RasterBytes.denseInts(image);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+                int label = labels[i];
+                if (label != 0) {
+                    // mieszanie bitów etykiety - sąsiednie etykiety dostają wyraźnie różne kolory
+                    int hash = label * 0x9E3779B1;
+                    pixels[i] = (hash ^ (hash >>> 15)) | 0x404040;
+                }
+            }
+        });
+        return image;
+    }
+
+    private int checked(int label) {
+        if (label < 1 || label > count) {
+            throw new IllegalArgumentException("Label must be between 1 and " + count + ".");
+        }
+        return label;
+    }
+
+    /**
+     * Pas wierszy: zakres etykiet tymczasowych [firstLabel, firstLabel + labelCount) i ich statystyki.
+     */
+    private static final class Strip {
+        private final int firstLabel;
+        private int labelCount;
+        private long[] area = new long[64];
+        private int[] bounds = new int[64 * 4];
+        private double[] moments = new double[64 * MOMENTS];
+
+        private Strip(int firstLabel) {
+            this.firstLabel = firstLabel;
+        }
+
+        private int newLabel(int x, int y) {
+            if (labelCount == area.length) {
+                int capacity = labelCount * 2;
+                area = Arrays.copyOf(area, capacity);
+                bounds = Arrays.copyOf(bounds, capacity * 4);
+                moments = Arrays.copyOf(moments, capacity * MOMENTS);
+            }
+            int b = labelCount * 4;
+            bounds[b] = x;
+            bounds[b + 1] = y;
+            bounds[b + 2] = x;
+            bounds[b + 3] = y;
+            return firstLabel + labelCount++;
+        }
+
+        private void add(int label, int x, int y) {
+            int k = label - firstLabel;
+            area[k]++;
+            int b = k * 4;
+            if (x < bounds[b]) {
+                bounds[b] = x;
+            } else if (x > bounds[b + 2]) {
+                bounds[b + 2] = x;
+            }
+            bounds[b + 3] = y; // wiersze są przeglądane w kolejności rosnącej
+            double dx = x;
+            double dy = y;
+            double xx = dx * dx;
+            double yy = dy * dy;
+            int m = k * MOMENTS;
+            moments[m] += dx;
+            moments[m + 1] += dy;
+            moments[m + 2] += xx;
+            moments[m + 3] += dx * dy;
+            moments[m + 4] += yy;
+            moments[m + 5] += xx * dx;
+            moments[m + 6] += xx * dy;
+            moments[m + 7] += dx * yy;
+            moments[m + 8] += yy * dy;
+        }
+    }
+
+    private static final class Labeler {
+        private final byte[] image;
+        private final int width;
+        private final int height;
+        private final boolean eight;
+        private final int[] labels;
+        /** union-find na etykietach tymczasowych; korzeń to najmniejsza etykieta zbioru */
+        private final int[] parent;
+        /** pasy według pierwszego wiersza (null - wiersz nie zaczyna pasa) */
+        private final Strip[] strips;
+
+        private Labeler(byte[] image, int width, int height, boolean eight) {
+            if (image.length < width * height) {
+                throw new IllegalArgumentException("Image array is smaller than width * height.");
+            }
+            this.image = image;
+            this.width = width;
+            this.height = height;
+            this.eight = eight;
+            this.labels = new int[width * height];
+            this.parent = new int[width * height + 1];
+            this.strips = new Strip[height];
+        }
+
+        private ConnectedComponents run() {
+            if (width == 0 || height == 0) {
+                return new ConnectedComponents(width, height, 0, labels, new long[1], new int[4], new double[MOMENTS]);
+            }
+            int minRows = Math.max(1, MIN_PIXELS_PER_TASK / width);
+            int parallelism = ForkJoinPool.getCommonPoolParallelism();
+            if (parallelism <= 1 || height <= minRows) {
+                scan(0, height);
+            } else {
+                int rowsPerTask = Math.max(minRows, (height + parallelism * 4 - 1) / (parallelism * 4));
+                ForkJoinPool.commonPool().invoke(new StripTask(this, 0, height, rowsPerTask));
+            }
+
+            // etykiety końcowe: przejście po etykietach tymczasowych w kolejności rosnącej,
+            // korzeń (parent[l] == l) dostaje kolejny numer, pozostałe - numer swojego (mniejszego) rodzica;
+            // numer końcowy zapisywany jest w parent jako liczba ujemna
+            int count = 0;
+            for (Strip strip : strips) {
+                if (strip == null) {
+                    continue;
+                }
+                for (int l = strip.firstLabel, end = l + strip.labelCount; l < end; l++) {
+                    parent[l] = parent[l] == l ? -(++count) : parent[parent[l]];
+                }
+            }
+
+            long[] area = new long[count + 1];
+            int[] bounds = new int[(count + 1) * 4];
+            double[] moments = new double[(count + 1) * MOMENTS];
+            Arrays.fill(bounds, 4, bounds.length, -1);
+            for (Strip strip : strips) {
+                if (strip == null) {
+                    continue;
+                }
+                for (int k = 0; k < strip.labelCount; k++) {
+                    int label = -parent[strip.firstLabel + k];
+                    area[label] += strip.area[k];
+                    int b = label * 4;
+                    int s = k * 4;
+                    if (bounds[b] < 0) {
+                        System.arraycopy(strip.bounds, s, bounds, b, 4);
+                    } else {
+                        bounds[b] = Math.min(bounds[b], strip.bounds[s]);
+                        bounds[b + 1] = Math.min(bounds[b + 1], strip.bounds[s + 1]);
+                        bounds[b + 2] = Math.max(bounds[b + 2], strip.bounds[s + 2]);
+                        bounds[b + 3] = Math.max(bounds[b + 3], strip.bounds[s + 3]);
+                    }
+                    for (int m = 0; m < MOMENTS; m++) {
+                        moments[label * MOMENTS + m] += strip.moments[k * MOMENTS + m];
+                    }
+                }
+            }
+
+            ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+                for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+                    if (labels[i] != 0) {
+                        labels[i] = -parent[labels[i]];
+                    }
+                }
+            });
+            return new ConnectedComponents(width, height, count, labels, area, bounds, moments);
+        }
+
+        /**
+         * Pierwszy przebieg dla pasa [fromRow, toRow): sąsiedzi z wiersza powyżej są brani pod uwagę
+         * tylko wewnątrz pasa - połączenia przez styk dodaje mergeSeam.
+         */
+        private void scan(int fromRow, int toRow) {
+            Strip strip = new Strip(fromRow * width + 1);
+            strips[fromRow] = strip;
+            for (int y = fromRow; y < toRow; y++) {
+                boolean hasUp = y > fromRow;
+                int row = y * width;
+                for (int x = 0; x < width; x++) {
+                    int i = row + x;
+                    if (image[i] == 0) {
+                        continue;
+                    }
+                    int west = x > 0 ? labels[i - 1] : 0;
+                    int north = hasUp ? labels[i - width] : 0;
+                    int label;
+                    if (eight) {
+                        if (north != 0) {
+                            // N sąsiaduje z W, NW i NE, więc te etykiety są już z nim połączone
+                            label = north;
+                        } else {
+                            int northWest = hasUp && x > 0 ? labels[i - width - 1] : 0;
+                            int northEast = hasUp && x < width - 1 ? labels[i - width + 1] : 0;
+                            // W i NW sąsiadują ze sobą - wystarczy jedna z nich
+                            label = west != 0 ? west : northWest;
+                            if (northEast != 0) {
+                                label = label == 0 ? northEast : union(label, northEast);
+                            }
+                        }
+                    } else if (north != 0) {
+                        label = west != 0 ? union(north, west) : north;
+                    } else {
+                        label = west;
+                    }
+                    if (label == 0) {
+                        label = strip.newLabel(x, y);
+                        parent[label] = label;
+                    }
+                    labels[i] = label;
+                    strip.add(label, x, y);
+                }
+            }
+        }
+
+        /**
+         * Łączy etykiety pikseli wiersza row z ich sąsiadami w wierszu row - 1.
+         */
+        private void mergeSeam(int row) {
+            int below = row * width;
+            int above = below - width;
+            for (int x = 0; x < width; x++) {
+                int label = labels[below + x];
+                if (label == 0) {
+                    continue;
+                }
+                int from = eight ? Math.max(0, x - 1) : x;
+                int to = eight ? Math.min(width - 1, x + 1) : x;
+                for (int nx = from; nx <= to; nx++) {
+                    int neighbor = labels[above + nx];
+                    if (neighbor != 0) {
+                        union(label, neighbor);
+                    }
+                }
+            }
+        }
+
+        private int find(int label) {
+            while (parent[label] != label) {
+                parent[label] = parent[parent[label]];
+                label = parent[label];
+            }
+            return label;
+        }
+
+        private int union(int a, int b) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA < rootB) {
+                parent[rootB] = rootA;
+                return rootA;
+            }
+            parent[rootA] = rootB;
+            return rootB;
+        }
+    }
+
+    /**
+     * Zadanie fork/join dla pasa wierszy: połówki etykietowane równolegle, potem scalany ich styk.
+     */
+    private static final class StripTask extends RecursiveAction {
+        private final Labeler labeler;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerTask;
+
+        private StripTask(Labeler labeler, int fromRow, int toRow, int rowsPerTask) {
+            this.labeler = labeler;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerTask) {
+                labeler.scan(fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new StripTask(labeler, fromRow, middle, rowsPerTask),
+                    new StripTask(labeler, middle, toRow, rowsPerTask));
+            labeler.mergeSeam(middle);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.example;
+
+import org.opencv.core.MatOfPoint;
+import org.opencv.imgproc.Moments;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * Geometria konturu w czystej Javie. Kontur jest pobierany z MatOfPoint jednym wywołaniem do tablicy
+ * int[] {x0, y0, x1, y1, ...}; pole, obwód, otoczka wypukła (monotone chain), prostokąt otaczający,
+ * prostokąt o najmniejszym polu i średnice Fereta (rotating calipers) liczone są już bez JNI.
+ */
+public final class ContourGeometry {
+
+    private ContourGeometry() {
+    }
+
+    /**
+     * Punkty konturu (CV_32SC2) jako tablica {x0, y0, x1, y1, ...} - jedno kopiowanie zamiast get/put dla punktu.
+     */
+    public static int[] points(MatOfPoint contour) {
+        int[] points = new int[(int) contour.total() * 2];
+        if (points.length > 0) {
+            contour.get(0, 0, points);
+        }
+        return points;
+    }
+
+    /**
+     * Pole wielokąta (wzór Gaussa), jak contourArea.
+     */
+    public static double area(int[] points) {
+        int n = points.length / 2;
+        long twice = 0;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            twice += (long) points[2 * j] * points[2 * i + 1] - (long) points[2 * i] * points[2 * j + 1];
+        }
+        return Math.abs(twice) / 2.0;
+    }
+
+    /**
+     * Obwód zamkniętego wielokąta, jak arcLength(contour, true).
+     */
+    public static double perimeter(int[] points) {
+        int n = points.length / 2;
+        double perimeter = 0;
+        for (int i = 0, j = n - 1; i < n && n > 1; j = i++) {
+            perimeter += Math.hypot(points[2 * i] - points[2 * j], points[2 * i + 1] - points[2 * j + 1]);
+        }
+        return perimeter;
+    }
+
+    /**
+     * Prostokąt otaczający punkty, jak boundingRect (szerokość i wysokość liczone w pikselach).
+     */
+    public static Rectangle boundingBox(int[] points) {
+        if (points.length == 0) {
+            return new Rectangle();
+        }
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < points.length; i += 2) {
+            minX = Math.min(minX, points[i]);
+            maxX = Math.max(maxX, points[i]);
+            minY = Math.min(minY, points[i + 1]);
+            maxY = Math.max(maxY, points[i + 1]);
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /**
+     * Otoczka wypukła (algorytm monotone chain, O(n log n)): wierzchołki bez punktów współliniowych,
+     * w kolejności dodatniej orientacji (pole ze znakiem > 0 w układzie x, y).
+     */
+    public static int[] convexHull(int[] points) {
+        int n = points.length / 2;
+        // sortowanie punktów po (x, y) przez klucz long (y z odwróconym bitem znaku - kolejność bez znaku)
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = ((long) points[2 * i] << 32) | ((points[2 * i + 1] ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+        }
+        Arrays.sort(keys);
+        int unique = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                keys[unique++] = keys[i];
+            }
+        }
+        if (unique <= 2) {
+            int[] hull = new int[unique * 2];
+            for (int i = 0; i < unique; i++) {
+                hull[2 * i] = (int) (keys[i] >> 32);
+                hull[2 * i + 1] = (int) keys[i] ^ Integer.MIN_VALUE;
+            }
+            return hull;
+        }
+
+        int[] xs = new int[unique];
+        int[] ys = new int[unique];
+        for (int i = 0; i < unique; i++) {
+            xs[i] = (int) (keys[i] >> 32);
+            ys[i] = (int) keys[i] ^ Integer.MIN_VALUE;
+        }
+        int[] hull = new int[2 * unique];
+        int size = 0;
+        // dolna część otoczki, potem górna
+        for (int i = 0; i < unique; i++) {
+            while (size >= 2 && cross(xs, ys, hull[size - 2], hull[size - 1], i) <= 0) {
+                size--;
+            }
+            hull[size++] = i;
+        }
+        for (int i = unique - 2, lower = size + 1; i >= 0; i--) {
+            while (size >= lower && cross(xs, ys, hull[size - 2], hull[size - 1], i) <= 0) {
+                size--;
+            }
+            hull[size++] = i;
+        }
+        size--; // ostatni punkt to pierwszy punkt otoczki
+
+        int[] result = new int[size * 2];
+        for (int i = 0; i < size; i++) {
+            result[2 * i] = xs[hull[i]];
+            result[2 * i + 1] = ys[hull[i]];
+        }
+        return result;
+    }
+
+    private static long cross(int[] xs, int[] ys, int o, int a, int b) {
+        return (long) (xs[a] - xs[o]) * (ys[b] - ys[o]) - (long) (ys[a] - ys[o]) * (xs[b] - xs[o]);
+    }
+
+    /**
+     * Niezmienniki Hu z momentów znormalizowanych (te same wzory co HuMoments, bez dodatkowej macierzy).
+     */
+    public static double[] huMoments(Moments moments) {
+        double n20 = moments.nu20;
+        double n11 = moments.nu11;
+        double n02 = moments.nu02;
+        double n30 = moments.nu30;
+        double n21 = moments.nu21;
+        double n12 = moments.nu12;
+        double n03 = moments.nu03;
+        double t0 = n30 + n12;
+        double t1 = n21 + n03;
+        double q0 = t0 * t0;
+        double q1 = t1 * t1;
+        double n4 = 4 * n11;
+        double s = n20 + n02;
+        double d = n20 - n02;
+        double[] hu = new double[7];
+        hu[0] = s;
+        hu[1] = d * d + n4 * n11;
+        hu[3] = q0 + q1;
+        hu[5] = d * (q0 - q1) + n4 * t0 * t1;
+        double a = n30 - 3 * n12;
+        double b = 3 * n21 - n03;
+        hu[2] = a * a + b * b;
+        hu[4] = a * t0 * (q0 - 3 * q1) + b * t1 * (3 * q0 - q1);
+        hu[6] = b * t0 * (q0 - 3 * q1) - a * t1 * (3 * q0 - q1);
+        return hu;
+    }
+
+    /**
+     * Rotating calipers dla otoczki wypukłej (wynik convexHull): dla każdej krawędzi otoczki
+     * punkt najdalszy od krawędzi i skrajne rzuty na jej kierunek są przesuwane tylko do przodu,
+     * więc całość to O(h). Wynik: średnice Fereta i prostokąt o najmniejszym polu.
+     */
+    public static Calipers calipers(int[] hull) {
+        int n = hull.length / 2;
+        if (n == 0) {
+            return new Calipers(0, 0, 0, 0, 0, 0, 0);
+        }
+        if (n <= 2) {
+            double dx = hull[2 * (n - 1)] - hull[0];
+            double dy = hull[2 * (n - 1) + 1] - hull[1];
+            double length = Math.hypot(dx, dy);
+            return new Calipers(length, 0, (hull[0] + hull[2 * (n - 1)]) / 2.0,
+                    (hull[1] + hull[2 * (n - 1) + 1]) / 2.0, length, 0, Math.toDegrees(Math.atan2(dy, dx)));
+        }
+
+        double maxFeret = 0;
+        double minFeret = Double.MAX_VALUE;
+        double bestArea = Double.MAX_VALUE;
+        double[] box = new double[5];
+
+        int far = -1;
+        int right = -1;
+        int left = -1;
+        for (int i = 0; i < n; i++) {
+            int next = (i + 1) % n;
+            long ex = hull[2 * next] - hull[2 * i];
+            long ey = hull[2 * next + 1] - hull[2 * i + 1];
+            if (far < 0) {
+                far = extreme(hull, i, ex, ey, true, true);
+                right = extreme(hull, i, ex, ey, false, true);
+                left = extreme(hull, i, ex, ey, false, false);
+            } else {
+                far = advance(hull, i, far, ex, ey, true, true);
+                right = advance(hull, i, right, ex, ey, false, true);
+                left = advance(hull, i, left, ex, ey, false, false);
+            }
+
+            // para antypodyczna: wierzchołki krawędzi i punkt najdalszy od niej
+            maxFeret = Math.max(maxFeret, distance(hull, i, far));
+            maxFeret = Math.max(maxFeret, distance(hull, next, far));
+
+            double length = Math.hypot(ex, ey);
+            double width = projection(hull, i, far, ex, ey, true) / length;
+            double low = projection(hull, i, left, ex, ey, false) / length;
+            double high = projection(hull, i, right, ex, ey, false) / length;
+            minFeret = Math.min(minFeret, width);
+            double area = width * (high - low);
+            if (area < bestArea) {
+                bestArea = area;
+                double ux = ex / length;
+                double uy = ey / length;
+                double along = (low + high) / 2;
+                // normalna skierowana do wnętrza otoczki
+                box[0] = hull[2 * i] + ux * along - uy * width / 2;
+                box[1] = hull[2 * i + 1] + uy * along + ux * width / 2;
+                box[2] = high - low;
+                box[3] = width;
+                box[4] = Math.toDegrees(Math.atan2(ey, ex));
+            }
+        }
+        return new Calipers(maxFeret, minFeret, box[0], box[1], box[2], box[3], box[4]);
+    }
+
+    /**
+     * Iloczyn wektorowy (normal = true, odległość od prostej krawędzi razy jej długość)
+     * albo skalarny (rzut na kierunek krawędzi razy jej długość) dla wierzchołka k względem wierzchołka i.
+     */
+    private static double projection(int[] hull, int i, int k, long ex, long ey, boolean normal) {
+        long vx = hull[2 * k] - hull[2 * i];
+        long vy = hull[2 * k + 1] - hull[2 * i + 1];
+        return normal ? ex * vy - ey * vx : ex * vx + ey * vy;
+    }
+
+    private static int extreme(int[] hull, int i, long ex, long ey, boolean normal, boolean maximum) {
+        int n = hull.length / 2;
+        int best = 0;
+        for (int k = 1; k < n; k++) {
+            double value = projection(hull, i, k, ex, ey, normal);
+            double current = projection(hull, i, best, ex, ey, normal);
+            if (maximum ? value > current : value < current) {
+                best = k;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Przesuwa wskaźnik do przodu, dopóki wartość nie maleje (maximum) lub nie rośnie (minimum).
+     */
+    private static int advance(int[] hull, int i, int k, long ex, long ey, boolean normal, boolean maximum) {
+        int n = hull.length / 2;
+        for (int step = 0; step < n; step++) {
+            int next = (k + 1) % n;
+            double current = projection(hull, i, k, ex, ey, normal);
+            double candidate = projection(hull, i, next, ex, ey, normal);
+            if (maximum ? candidate < current : candidate > current) {
+                break;
+            }
+            k = next;
+        }
+        return k;
+    }
+
+    private static double distance(int[] hull, int a, int b) {
+        return Math.hypot(hull[2 * a] - hull[2 * b], hull[2 * a + 1] - hull[2 * b + 1]);
+    }
+
+    /**
+     * Wynik rotating calipers. Prostokąt o najmniejszym polu: środek, bok wzdłuż krawędzi otoczki (width),
+     * bok prostopadły (height) i kąt tej krawędzi w stopniach.
+     */
+    public static final class Calipers {
+        private final double maxFeret;
+        private final double minFeret;
+        private final double rectCenterX;
+        private final double rectCenterY;
+        private final double rectWidth;
+        private final double rectHeight;
+        private final double rectAngle;
+
+        private Calipers(double maxFeret, double minFeret, double rectCenterX, double rectCenterY,
+                         double rectWidth, double rectHeight, double rectAngle) {
+            this.maxFeret = maxFeret;
+            this.minFeret = minFeret;
+            this.rectCenterX = rectCenterX;
+            this.rectCenterY = rectCenterY;
+            this.rectWidth = rectWidth;
+            this.rectHeight = rectHeight;
+            this.rectAngle = rectAngle;
+        }
+
+        /**
+         * Największa odległość dwóch punktów otoczki.
+         */
+        public double getMaxFeret() {
+            return maxFeret;
+        }
+
+        /**
+         * Najmniejsza szerokość (odległość dwóch równoległych prostych podpierających).
+         */
+        public double getMinFeret() {
+            return minFeret;
+        }
+
+        public double getRectCenterX() {
+            return rectCenterX;
+        }
+
+        public double getRectCenterY() {
+            return rectCenterY;
+        }
+
+        public double getRectWidth() {
+            return rectWidth;
+        }
+
+        public double getRectHeight() {
+            return rectHeight;
+        }
+
+        public double getRectAngle() {
+            return rectAngle;
+        }
+    }
+}
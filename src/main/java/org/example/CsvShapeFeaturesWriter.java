@@ -0,0 +1,261 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+
+/**
+ * Zapis cech do CSV: liczby są zamieniane na znaki ASCII bezpośrednio w buforze wiersza
+ * (bez String.format i bez obiektów String dla wartości), zawsze z kropką dziesiętną -
+ * wynik nie zależy od ustawień regionalnych. Tekst jest identyczny z String.format(Locale.ROOT, ...);
+ * nieliczne wartości bliskie połowy ostatniej cyfry lub skrajnie duże / małe są formatowane przez String.format.
+ */
+final class CsvShapeFeaturesWriter implements ShapeFeaturesWriter {
+
+    private static final ShapeFeatures.Column[] COLUMNS = ShapeFeatures.Column.values();
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+    private static final int FIXED_DIGITS = 4;
+    private static final int SCIENTIFIC_DIGITS = 6;
+    /**
+     * Od tej wartości iloczyn value * 10^4 traci cyfry ułamkowe (błąd zaokrąglenia ~0.1),
+     * więc liczby są formatowane przez String.format.
+     */
+    private static final double FIXED_LIMIT = 1e11;
+    /** zakres wykładników, w którym Math.pow(10, exponent) jest liczbą znormalizowaną */
+    private static final double SCIENTIFIC_MIN = 1e-300;
+    private static final double SCIENTIFIC_MAX = 1e300;
+    /** względny błąd iloczynu / ilorazu użytego do zaokrąglenia (kilka ulp) */
+    private static final double TIE_TOLERANCE = 1e-15;
+
+    private final OutputStream output;
+    private byte[] row = new byte[1024];
+    private int length;
+
+    CsvShapeFeaturesWriter(Path file, boolean append) throws IOException {
+        boolean existing = append && Files.exists(file) && Files.size(file) > 0;
+        boolean newLineMissing = false;
+        if (existing) {
+            // dopisywanie tylko do pliku z tymi samymi kolumnami - bez mieszania układów w jednym pliku
+            String firstLine;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+                firstLine = reader.readLine();
+            }
+            if (!header().equals(firstLine)) {
+                throw new IllegalArgumentException("File " + file + " has different feature columns.");
+            }
+            try (SeekableByteChannel channel = Files.newByteChannel(file, StandardOpenOption.READ)) {
+                ByteBuffer last = ByteBuffer.allocate(1);
+                channel.position(channel.size() - 1).read(last);
+                newLineMissing = last.get(0) != '\n';
+            }
+        }
+        this.output = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING),
+                1 << 16);
+        if (!existing) {
+            putAscii(header());
+            endRow();
+        } else if (newLineMissing) {
+            endRow();
+        }
+    }
+
+    /**
+     * Wiersz nagłówka: nazwy kolumn oddzielone przecinkami.
+     */
+    static String header() {
+        StringBuilder header = new StringBuilder();
+        for (ShapeFeatures.Column column : COLUMNS) {
+            if (header.length() > 0) {
+                header.append(',');
+            }
+            header.append(column.getHeader());
+        }
+        return header.toString();
+    }
+
+    @Override
+    public void write(ShapeFeatures features) throws IOException {
+        for (int c = 0; c < COLUMNS.length; c++) {
+            if (c > 0) {
+                put((byte) ',');
+            }
+            double value = COLUMNS[c].valueOf(features);
+            switch (COLUMNS[c].getFormat()) {
+                case INTEGER:
+                    putLong((long) value);
+                    break;
+                case FIXED:
+                    putFixed(value);
+                    break;
+                default:
+                    putScientific(value);
+                    break;
+            }
+        }
+        endRow();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+
+    private void endRow() throws IOException {
+        put((byte) '\n');
+        output.write(row, 0, length);
+        length = 0;
+    }
+
+    private void put(byte b) {
+        if (length == row.length) {
+            byte[] grown = new byte[row.length * 2];
+            System.arraycopy(row, 0, grown, 0, length);
+            row = grown;
+        }
+        row[length++] = b;
+    }
+
+    private void putAscii(String text) {
+        for (byte b : text.getBytes(StandardCharsets.US_ASCII)) {
+            put(b);
+        }
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            put((byte) '-');
+            value = -value;
+        }
+        putDigits(value, 1);
+    }
+
+    /**
+     * Cyfry liczby nieujemnej, uzupełnione zerami z przodu do minDigits.
+     */
+    private void putDigits(long value, int minDigits) {
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        for (int i = digits; i < minDigits; i++) {
+            put((byte) '0');
+        }
+        int start = length;
+        for (int i = 0; i < digits; i++) {
+            put((byte) '0');
+        }
+        for (int i = start + digits - 1; i >= start; i--) {
+            row[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Wartość z 4 miejscami po kropce - znak po znaku jak %.4f z Locale.ROOT (także "-0.0000"
+     * dla ujemnych wartości zaokrąglonych do zera).
+     */
+    private void putFixed(double value) {
+        if (!finite(value)) {
+            return;
+        }
+        double magnitude = Math.abs(value);
+        double scaledExact = magnitude * POWERS_OF_TEN[FIXED_DIGITS];
+        if (magnitude >= FIXED_LIMIT || nearTie(scaledExact)) {
+            putAscii(String.format(Locale.ROOT, "%.4f", value));
+            return;
+        }
+        long scaled = Math.round(scaledExact);
+        if (negative(value)) {
+            put((byte) '-');
+        }
+        putDigits(scaled / POWERS_OF_TEN[FIXED_DIGITS], 1);
+        put((byte) '.');
+        putDigits(scaled % POWERS_OF_TEN[FIXED_DIGITS], FIXED_DIGITS);
+    }
+
+    /**
+     * Wartość w postaci d.dddddde+XX - znak po znaku jak %.6e z Locale.ROOT.
+     */
+    private void putScientific(double value) {
+        if (!finite(value)) {
+            return;
+        }
+        double magnitude = Math.abs(value);
+        int exponent = 0;
+        long mantissa = 0;
+        if (magnitude > 0) {
+            if (magnitude < SCIENTIFIC_MIN || magnitude > SCIENTIFIC_MAX) {
+                putAscii(String.format(Locale.ROOT, "%.6e", value));
+                return;
+            }
+            exponent = (int) Math.floor(Math.log10(magnitude));
+            double mantissaExact = magnitude / Math.pow(10, exponent) * POWERS_OF_TEN[SCIENTIFIC_DIGITS];
+            mantissa = Math.round(mantissaExact);
+            // poprawka błędu zaokrąglenia log10 / pow
+            if (mantissa >= 10 * POWERS_OF_TEN[SCIENTIFIC_DIGITS]) {
+                exponent++;
+                mantissaExact = magnitude / Math.pow(10, exponent) * POWERS_OF_TEN[SCIENTIFIC_DIGITS];
+                mantissa = Math.round(mantissaExact);
+            } else if (mantissa < POWERS_OF_TEN[SCIENTIFIC_DIGITS]) {
+                exponent--;
+                mantissaExact = magnitude / Math.pow(10, exponent) * POWERS_OF_TEN[SCIENTIFIC_DIGITS];
+                mantissa = Math.round(mantissaExact);
+            }
+            if (nearTie(mantissaExact)) {
+                putAscii(String.format(Locale.ROOT, "%.6e", value));
+                return;
+            }
+        }
+        if (negative(value)) {
+            put((byte) '-');
+        }
+        putDigits(mantissa / POWERS_OF_TEN[SCIENTIFIC_DIGITS], 1);
+        put((byte) '.');
+        putDigits(mantissa % POWERS_OF_TEN[SCIENTIFIC_DIGITS], SCIENTIFIC_DIGITS);
+        put((byte) 'e');
+        put(exponent < 0 ? (byte) '-' : (byte) '+');
+        putDigits(Math.abs(exponent), 2);
+    }
+
+    /**
+     * Formatter zaokrągla połówki w górę najkrótszy zapis dziesiętny liczby (jak Double.toString),
+     * a Math.round działa na iloczynie obarczonym błędem zaokrąglenia. Gdy część ułamkowa jest
+     * w granicach tego błędu od 0.5, wynik mógłby się różnić o 1 na ostatniej cyfrze - wtedy
+     * (rzadko) formatujemy przez String.format.
+     */
+    private static boolean nearTie(double scaled) {
+        double fraction = scaled - Math.floor(scaled);
+        return Math.abs(fraction - 0.5) <= scaled * TIE_TOLERANCE + Double.MIN_NORMAL;
+    }
+
+    /**
+     * Znak minus także dla -0.0 (jak w String.format).
+     */
+    private static boolean negative(double value) {
+        return Double.doubleToRawLongBits(value) < 0;
+    }
+
+    /**
+     * NaN i nieskończoności zapisywane są słownie (jak w Double.toString).
+     */
+    private boolean finite(double value) {
+        if (Double.isNaN(value)) {
+            putAscii("NaN");
+            return false;
+        }
+        if (Double.isInfinite(value)) {
+            putAscii(value > 0 ? "Infinity" : "-Infinity");
+            return false;
+        }
+        return true;
+    }
+}
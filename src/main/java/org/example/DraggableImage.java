@@ -2,6 +2,8 @@ package org.example;
 
 import lombok.Getter;
 import org.example.appinterface.MultiImageApp;
+import org.example.histogram.HistogramEngine;
+import org.example.histogram.ImageHistogram;
 
 import javax.swing.*;
 import java.awt.*;
@@ -22,15 +24,26 @@ public class DraggableImage extends JLabel {
 
     private Point initialClick;
     private final JPanel parentPanel;
+    private final MultiImageApp mainApp;
     private final JPopupMenu popupMenu;
     private final ImageScaler imageScaler;
     private final String fileName;
     private final JLabel nameLabel;
 
+    /**
+     * Licznik zmian obrazu - zwiększany przy każdej podmianie lub modyfikacji obrazu.
+     */
+    @Getter
+    private long modificationCount;
+    private ImageHistogram cachedHistogram;
+    private BufferedImage cachedHistogramImage;
+    private long cachedHistogramVersion = -1;
+
     public DraggableImage(BufferedImage image, JPanel parentPanel, MultiImageApp mainApp, String fileName) {
         this.originalImage = image;
         this.currentImage = image;
         this.parentPanel = parentPanel;
+        this.mainApp = mainApp;
         this.fileName = fileName;
         this.imageScaler = new ImageScaler();
 
@@ -46,13 +59,25 @@ public class DraggableImage extends JLabel {
         popupMenu = new JPopupMenu();
 
         JMenuItem fitToWindowItem = new JMenuItem("Fit to Window");
-        fitToWindowItem.addActionListener(e -> scaleImageToWindow());
+        fitToWindowItem.addActionListener(e -> {
+            if (mainApp.checkIdle(this)) {
+                scaleImageToWindow();
+            }
+        });
 
         JMenuItem fullScreenItem = new JMenuItem("Full Screen");
-        fullScreenItem.addActionListener(e -> scaleImageToFullScreen());
+        fullScreenItem.addActionListener(e -> {
+            if (mainApp.checkIdle(this)) {
+                scaleImageToFullScreen();
+            }
+        });
 
         JMenuItem naturalSizeItem = new JMenuItem("Natural Size");
-        naturalSizeItem.addActionListener(e -> scaleImageToNaturalSize());
+        naturalSizeItem.addActionListener(e -> {
+            if (mainApp.checkIdle(this)) {
+                scaleImageToNaturalSize();
+            }
+        });
 
         JMenuItem closeItem = new JMenuItem("Close");
         closeItem.addActionListener(e -> closeImage());
@@ -103,6 +128,7 @@ public class DraggableImage extends JLabel {
 
     public void updateImage(BufferedImage newImage) {
         this.currentImage = newImage;
+        markModified();
         setIcon(new ImageIcon(newImage));
         setSize(newImage.getWidth(), newImage.getHeight());
         nameLabel.setLocation(getX(), getY() + getHeight()); // Update label position
@@ -114,6 +140,28 @@ public class DraggableImage extends JLabel {
         return currentImage;
     }
 
+    /**
+     * Unieważnia dane policzone dla obrazu (np. po zmianie pikseli w miejscu bez updateImage).
+     */
+    public synchronized void markModified() {
+        modificationCount++;
+    }
+
+    /**
+     * Histogram i statystyki bieżącego obrazu. Liczone tylko przy pierwszym wywołaniu
+     * po zmianie obrazu - kolejne wywołania zwracają zapamiętany wynik.
+     */
+    public synchronized ImageHistogram getHistogram() {
+        if (cachedHistogram == null
+                || cachedHistogramVersion != modificationCount
+                || cachedHistogramImage != currentImage) {
+            cachedHistogram = HistogramEngine.compute(currentImage);
+            cachedHistogramImage = currentImage;
+            cachedHistogramVersion = modificationCount;
+        }
+        return cachedHistogram;
+    }
+
     @Override
     public void setLocation(int x, int y) {
         super.setLocation(x, y);
@@ -152,6 +200,7 @@ public class DraggableImage extends JLabel {
         parentPanel.remove(nameLabel);
         parentPanel.revalidate();
         parentPanel.repaint();
+        mainApp.imageClosed(this);
         System.out.println("Image closed.");
     }
 }
@@ -6,21 +6,24 @@ import org.opencv.imgproc.Imgproc;
 public class GrabCutProcessor {
 
     /**
-     * Zastosowanie algorytmu GrabCut do segmentacji obrazu.
+     * Zastosowanie algorytmu GrabCut do segmentacji obrazu (cały obraz w pełnej rozdzielczości).
+     * Dla dużych obrazów i kolejnych iteracji - GrabCutSession.
      */
     public Mat applyGrabCut(Mat inputImage, Rect rect, int iterCount) {
-        Mat mask = new Mat(inputImage.size(), CvType.CV_8UC1, new Scalar(Imgproc.GC_BGD));
+        try (MatArena arena = new MatArena()) {
+            Mat mask = arena.track(new Mat(inputImage.size(), CvType.CV_8UC1, new Scalar(Imgproc.GC_BGD)));
 
-        Mat bgdModel = new Mat();
-        Mat fgdModel = new Mat();
+            Mat bgdModel = arena.newMat();
+            Mat fgdModel = arena.newMat();
 
-        Imgproc.grabCut(inputImage, mask, rect, bgdModel, fgdModel, iterCount, Imgproc.GC_INIT_WITH_RECT);
+            Imgproc.grabCut(inputImage, mask, rect, bgdModel, fgdModel, iterCount, Imgproc.GC_INIT_WITH_RECT);
 
-        Mat binaryMask = new Mat();
-        Core.compare(mask, new Scalar(Imgproc.GC_PR_FGD), binaryMask, Core.CMP_EQ);
-        binaryMask.convertTo(binaryMask, CvType.CV_8UC1, 255);
+            Mat binaryMask = new Mat();
+            Core.compare(mask, new Scalar(Imgproc.GC_PR_FGD), binaryMask, Core.CMP_EQ);
+            binaryMask.convertTo(binaryMask, CvType.CV_8UC1, 255);
 
-        return binaryMask;
+            return binaryMask;
+        }
     }
 
     public Mat extractForeground(Mat inputImage, Mat binaryMask) {
@@ -0,0 +1,317 @@
+package org.example;
+
+import org.opencv.core.CvType;
+import org.opencv.core.Mat;
+import org.opencv.core.Rect;
+import org.opencv.imgproc.Imgproc;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Interaktywna segmentacja GrabCut ograniczona do prostokąta użytkownika z marginesem tła.
+ * Iteracje liczone są na pomniejszonym poziomie piramidy, a w pełnej rozdzielczości rozstrzygany
+ * jest tylko niepewny pas wzdłuż granicy obiektu (kafelkami, równolegle). Modele kolorów
+ * (bgdModel/fgdModel) i maska poziomu piramidy są pamiętane między wywołaniami iterate(),
+ * więc kolejne wywołania kontynuują poprzedni stan. Sesję należy zamknąć (close()).
+ */
+public class GrabCutSession implements AutoCloseable {
+
+    /** maksymalny dłuższy bok obszaru na poziomie piramidy, na którym liczone są iteracje */
+    private static final int COARSE_MAX_SIDE = 512;
+    /** minimalny margines tła wokół prostokąta (w pikselach obrazu) */
+    private static final int MIN_MARGIN = 16;
+    private static final int TILE_SIZE = 256;
+    /** kontekst wokół kafelka - piksele z ustalonymi etykietami po obu stronach pasa */
+    private static final int TILE_PADDING = 16;
+
+    private final MatArena mats = new MatArena();
+    private final int imageWidth;
+    private final int imageHeight;
+    /** przetwarzany obszar we współrzędnych obrazu */
+    private final Rect roi;
+    /** prostokąt użytkownika we współrzędnych roi */
+    private final Rect rect;
+    private final int levels;
+    private final Mat roiImage;
+    private final Mat coarseImage;
+    private final Rect coarseRect;
+    private final Mat coarseMask;
+    private final Mat bgdModel;
+    private final Mat fgdModel;
+    /** etykiety GC_* pikseli roi w pełnej rozdzielczości, null przed pierwszym iterate() */
+    private byte[] labels;
+    private boolean closed;
+
+    /**
+     * Sesja dla prostokąta rect obrazu image. Do pamięci natywnej kopiowany jest tylko
+     * prostokąt powiększony o margines tła.
+     */
+    public GrabCutSession(BufferedImage image, Rect rect) {
+        if (image == null || rect == null) {
+            throw new IllegalArgumentException("Image and rectangle must not be null.");
+        }
+        this.imageWidth = image.getWidth();
+        this.imageHeight = image.getHeight();
+        if (rect.width <= 0 || rect.height <= 0 || rect.x < 0 || rect.y < 0
+                || rect.x + rect.width > imageWidth || rect.y + rect.height > imageHeight) {
+            throw new IllegalArgumentException("Rectangle must lie inside the image.");
+        }
+        if (rect.width == imageWidth && rect.height == imageHeight) {
+            throw new IllegalArgumentException("Rectangle must leave some background around the object.");
+        }
+
+        int margin = Math.max(MIN_MARGIN, Math.max(rect.width, rect.height) / 8);
+        int x0 = Math.max(0, rect.x - margin);
+        int y0 = Math.max(0, rect.y - margin);
+        int x1 = Math.min(imageWidth, rect.x + rect.width + margin);
+        int y1 = Math.min(imageHeight, rect.y + rect.height + margin);
+        this.roi = new Rect(x0, y0, x1 - x0, y1 - y0);
+        this.rect = new Rect(rect.x - x0, rect.y - y0, rect.width, rect.height);
+
+        int levelCount = 0;
+        while ((Math.max(roi.width, roi.height) >> levelCount) > COARSE_MAX_SIDE) {
+            levelCount++;
+        }
+        this.levels = levelCount;
+
+        try {
+            this.roiImage = mats.track(OpenCVUtils.bufferedImageToBgrMat(
+                    image.getSubimage(roi.x, roi.y, roi.width, roi.height)));
+            Mat current = roiImage;
+            for (int level = 0; level < levels; level++) {
+                Mat next = mats.newMat();
+                Imgproc.pyrDown(current, next);
+                current = next;
+            }
+            this.coarseImage = current;
+            int coarseWidth = ceilShift(roi.width, levels);
+            int coarseHeight = ceilShift(roi.height, levels);
+            int cx0 = this.rect.x >> levels;
+            int cy0 = this.rect.y >> levels;
+            int cx1 = Math.min(coarseWidth, ceilShift(this.rect.x + this.rect.width, levels));
+            int cy1 = Math.min(coarseHeight, ceilShift(this.rect.y + this.rect.height, levels));
+            if (cx1 - cx0 == coarseWidth && cy1 - cy0 == coarseHeight) {
+                throw new IllegalArgumentException("Rectangle must leave some background around the object.");
+            }
+            this.coarseRect = new Rect(cx0, cy0, Math.max(1, cx1 - cx0), Math.max(1, cy1 - cy0));
+            this.coarseMask = mats.newMat();
+            this.bgdModel = mats.newMat();
+            this.fgdModel = mats.newMat();
+        } catch (RuntimeException e) {
+            mats.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Kolejne iterCount iteracji GrabCut na poziomie piramidy (pierwsze wywołanie inicjalizuje
+     * modele prostokątem), a następnie doprecyzowanie granicy w pełnej rozdzielczości.
+     */
+    public synchronized void iterate(int iterCount) {
+        ensureOpen();
+        if (iterCount < 1) {
+            throw new IllegalArgumentException("Iteration count must be positive.");
+        }
+        Imgproc.grabCut(coarseImage, coarseMask, coarseRect, bgdModel, fgdModel, iterCount,
+                labels == null ? Imgproc.GC_INIT_WITH_RECT : Imgproc.GC_EVAL);
+
+        int coarseWidth = coarseMask.cols();
+        int coarseHeight = coarseMask.rows();
+        byte[] coarse = new byte[coarseWidth * coarseHeight];
+        coarseMask.get(0, 0, coarse);
+        if (levels == 0) {
+            labels = coarse;
+            return;
+        }
+
+        byte[] cells = bandLabels(coarse, coarseWidth, coarseHeight);
+        byte[] upsampled = upsample(cells, coarseWidth, coarseHeight, levels, roi.width, roi.height, rect);
+        labels = refineBand(upsampled, cells, coarseWidth);
+    }
+
+    /**
+     * Prostokąt przetwarzanego obszaru we współrzędnych obrazu.
+     */
+    public Rect getRoi() {
+        return new Rect(roi.x, roi.y, roi.width, roi.height);
+    }
+
+    /**
+     * Obraz TYPE_3BYTE_BGR wielkości wejściowego: piksele pierwszego planu (GC_FGD i GC_PR_FGD)
+     * skopiowane z oryginału, reszta czarna.
+     */
+    public synchronized BufferedImage extractForeground() {
+        ensureOpen();
+        if (labels == null) {
+            throw new IllegalStateException("GrabCut has not been run yet.");
+        }
+        byte[] bgr = new byte[roi.width * roi.height * 3];
+        roiImage.get(0, 0, bgr);
+        BufferedImage result = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_3BYTE_BGR);
+        byte[] output = RasterBytes.denseBytes(result);
+        byte[] current = labels;
+        ParallelRows.forEachStrip(roi.width, roi.height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int source = y * roi.width;
+                int target = ((roi.y + y) * imageWidth + roi.x) * 3;
+                for (int x = 0; x < roi.width; x++) {
+                    if ((current[source + x] & 1) != 0) {
+                        int s = (source + x) * 3;
+                        int t = target + x * 3;
+                        output[t] = bgr[s];
+                        output[t + 1] = bgr[s + 1];
+                        output[t + 2] = bgr[s + 2];
+                    }
+                }
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!closed) {
+            closed = true;
+            labels = null;
+            mats.close();
+        }
+    }
+
+    /**
+     * Etykiety komórek poziomu piramidy: komórka, której wszyscy sąsiedzi (8-sąsiedztwo) należą
+     * do tej samej klasy, dostaje etykietę pewną (GC_FGD/GC_BGD), pozostałe - prawdopodobną
+     * (GC_PR_FGD/GC_PR_BGD). Komórki prawdopodobne tworzą pas granicy.
+     */
+    static byte[] bandLabels(byte[] coarse, int width, int height) {
+        byte[] cells = new byte[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int foreground = coarse[y * width + x] & 1;
+                boolean certain = true;
+                for (int ny = Math.max(0, y - 1); certain && ny <= Math.min(height - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                        if ((coarse[ny * width + nx] & 1) != foreground) {
+                            certain = false;
+                            break;
+                        }
+                    }
+                }
+                int label;
+                if (foreground != 0) {
+                    label = certain ? Imgproc.GC_FGD : Imgproc.GC_PR_FGD;
+                } else {
+                    label = certain ? Imgproc.GC_BGD : Imgproc.GC_PR_BGD;
+                }
+                cells[y * width + x] = (byte) label;
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * Etykiety komórek powielone do pełnej rozdzielczości (komórka = 2^levels x 2^levels pikseli);
+     * piksele poza prostokątem użytkownika są zawsze tłem.
+     */
+    static byte[] upsample(byte[] cells, int cellWidth, int cellHeight, int levels,
+                           int width, int height, Rect rect) {
+        byte[] result = new byte[width * height];
+        int rectRight = rect.x + rect.width;
+        int rectBottom = rect.y + rect.height;
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                if (y < rect.y || y >= rectBottom) {
+                    continue; // GC_BGD == 0
+                }
+                int cellRow = Math.min(cellHeight - 1, y >> levels) * cellWidth;
+                int offset = y * width;
+                for (int x = rect.x; x < rectRight; x++) {
+                    result[offset + x] = cells[cellRow + Math.min(cellWidth - 1, x >> levels)];
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Numery kafelków (wierszami, TILE_SIZE x TILE_SIZE), w których leży choć jedna komórka pasa.
+     */
+    static int[] bandTiles(byte[] cells, int cellWidth, int cellHeight, int levels, int width, int height) {
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        int[] tiles = new int[tilesX * tilesY];
+        int count = 0;
+        for (int tile = 0; tile < tiles.length; tile++) {
+            int cx0 = ((tile % tilesX) * TILE_SIZE) >> levels;
+            int cy0 = ((tile / tilesX) * TILE_SIZE) >> levels;
+            int cx1 = Math.min(cellWidth - 1, (Math.min(width, (tile % tilesX + 1) * TILE_SIZE) - 1) >> levels);
+            int cy1 = Math.min(cellHeight - 1, (Math.min(height, (tile / tilesX + 1) * TILE_SIZE) - 1) >> levels);
+            boolean band = false;
+            for (int cy = cy0; !band && cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) {
+                    if (cells[cy * cellWidth + cx] >= Imgproc.GC_PR_BGD) {
+                        band = true;
+                        break;
+                    }
+                }
+            }
+            if (band) {
+                tiles[count++] = tile;
+            }
+        }
+        return Arrays.copyOf(tiles, count);
+    }
+
+    /**
+     * Jedna iteracja GrabCut (z zamrożonymi modelami) w każdym kafelku pasa. Kafelek czyta etykiety
+     * z kontekstem z tablicy źródłowej, a zapisuje tylko swój obszar tablicy wynikowej.
+     */
+    private byte[] refineBand(byte[] source, byte[] cells, int cellWidth) {
+        int width = roi.width;
+        int height = roi.height;
+        int tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int[] tiles = bandTiles(cells, cellWidth, cells.length / cellWidth, levels, width, height);
+        byte[] result = source.clone();
+        ParallelRows.forEachStrip(TILE_SIZE * TILE_SIZE, tiles.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                int tileX = (tiles[i] % tilesX) * TILE_SIZE;
+                int tileY = (tiles[i] / tilesX) * TILE_SIZE;
+                int x0 = Math.max(0, tileX - TILE_PADDING);
+                int y0 = Math.max(0, tileY - TILE_PADDING);
+                int x1 = Math.min(width, tileX + TILE_SIZE + TILE_PADDING);
+                int y1 = Math.min(height, tileY + TILE_SIZE + TILE_PADDING);
+                int tileWidth = x1 - x0;
+                int tileHeight = y1 - y0;
+
+                byte[] tileLabels = new byte[tileWidth * tileHeight];
+                for (int y = 0; y < tileHeight; y++) {
+                    System.arraycopy(source, (y0 + y) * width + x0, tileLabels, y * tileWidth, tileWidth);
+                }
+                try (MatArena arena = new MatArena()) {
+                    Mat tileMask = arena.newMat(tileHeight, tileWidth, CvType.CV_8UC1);
+                    tileMask.put(0, 0, tileLabels);
+                    Imgproc.grabCut(arena.track(roiImage.submat(new Rect(x0, y0, tileWidth, tileHeight))),
+                            tileMask, new Rect(), arena.track(bgdModel.clone()), arena.track(fgdModel.clone()),
+                            1, Imgproc.GC_EVAL_FREEZE_MODEL);
+                    tileMask.get(0, 0, tileLabels);
+                }
+                int coreWidth = Math.min(TILE_SIZE, width - tileX);
+                for (int y = tileY; y < Math.min(height, tileY + TILE_SIZE); y++) {
+                    System.arraycopy(tileLabels, (y - y0) * tileWidth + (tileX - x0),
+                            result, y * width + tileX, coreWidth);
+                }
+            }
+        });
+        return result;
+    }
+
+    private static int ceilShift(int value, int shift) {
+        return (value + (1 << shift) - 1) >> shift;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("GrabCut session is already closed.");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.example;
 
+import org.example.histogram.HistogramEngine;
+import org.example.histogram.ImageHistogram;
 import org.example.histogram.LUTGenerator;
 
 import java.awt.image.BufferedImage;
@@ -18,7 +20,14 @@ public class HistogramEqualizer {
     }
 
     public void applyHistogramEqualization(BufferedImage image) {
-        int[] histogram = lutGenerator.generateHistogramLUT(image);
+        applyHistogramEqualization(image, HistogramEngine.compute(image));
+    }
+
+    /**
+     * Equalizacja z gotowym histogramem obrazu (policzonym wcześniej przez HistogramEngine).
+     */
+    public void applyHistogramEqualization(BufferedImage image, ImageHistogram imageHistogram) {
+        int[] histogram = imageHistogram.getLuminance();
         int totalPixels = image.getWidth() * image.getHeight();
 
         int[] equalizationLUT = lutGenerator.generateEqualizationLUT(histogram, totalPixels);
@@ -1,10 +1,14 @@
 package org.example;
 
+import org.example.histogram.LUTGenerator;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
 
 public class HistogramStretching {
 
+    private final LUTGenerator lutGenerator = new LUTGenerator();
+
     /**
      Rozciąganie histogramu w zadanym przez użytkownika zakresie: p1-p2 (obraz źródłowy) do
      zakresu q3-q4 (obraz wynikowy).
@@ -26,17 +30,7 @@ public class HistogramStretching {
         int width = grayImage.getWidth();
         int height = grayImage.getHeight();
 
-        int[] lut = new int[256];
-        for (int i = 0; i < 256; i++) {
-            if (i <= p1) {
-                lut[i] = q3;
-            } else if (i >= p2) {
-                lut[i] = q4;
-            } else {
-                double fraction = (double) (i - p1) / (p2 - p1);
-                lut[i] = (int) (q3 + fraction * (q4 - q3));
-            }
-        }
+        int[] lut = lutGenerator.generateRangeStretchLUT(p1, p2, q3, q4);
 
         int[] pixels = grayImage.getRaster().getPixels(0, 0, width, height, (int[]) null);
 
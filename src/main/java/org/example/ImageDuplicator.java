@@ -1,15 +1,14 @@
 package org.example;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
 
 public class ImageDuplicator {
+    /**
+     * Kopia obrazu: ten sam model koloru i kopia rastra (bez przechodzenia piksel po pikselu przez getRGB/setRGB).
+     */
     public BufferedImage duplicateImage(BufferedImage image) {
-        BufferedImage newImage = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                newImage.setRGB(x, y, image.getRGB(x, y));
-            }
-        }
-        return newImage;
+        WritableRaster raster = image.getRaster().createCompatibleWritableRaster(image.getWidth(), image.getHeight());
+        return new BufferedImage(image.getColorModel(), image.copyData(raster), image.isAlphaPremultiplied(), null);
     }
 }
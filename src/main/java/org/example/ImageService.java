@@ -1,11 +1,15 @@
 package org.example;
 
 import lombok.AllArgsConstructor;
+import org.example.histogram.ImageHistogram;
+import org.example.histogram.LutChain;
 import org.example.linearops.*;
 import org.example.linearstreach.LinearStretchProcessor;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 
 @AllArgsConstructor
 public class ImageService {
@@ -40,10 +44,35 @@ public class ImageService {
         linearStretchProcessor.applyLinearStretch(image, withClipping, clippingPercentage);
     }
 
+    public void applyLinearStretch(BufferedImage image, ImageHistogram histogram, boolean withClipping, double clippingPercentage) {
+        linearStretchProcessor.applyLinearStretch(image, histogram, withClipping, clippingPercentage);
+    }
+
     public void applyHistogramEqualization(BufferedImage image) {
         histogramEqualizer.applyHistogramEqualization(image);
     }
 
+    public void applyHistogramEqualization(BufferedImage image, ImageHistogram histogram) {
+        histogramEqualizer.applyHistogramEqualization(image, histogram);
+    }
+
+    /**
+     * Wykonuje kolejkę operacji punktowych jednym przejściem po obrazie.
+     */
+    public BufferedImage applyPointOperations(BufferedImage image, LutChain chain) {
+        return applyPointOperations(image, null, chain);
+    }
+
+    /**
+     * Jak wyżej, z gotowym histogramem obrazu (null - histogram zostanie policzony, jeżeli jest potrzebny).
+     */
+    public BufferedImage applyPointOperations(BufferedImage image, ImageHistogram histogram, LutChain chain) {
+        if (chain == null) {
+            throw new IllegalArgumentException("LutChain cannot be null.");
+        }
+        return chain.apply(image, histogram);
+    }
+
     public BufferedImage applySmoothing(BufferedImage inputImage, String method, int k, int borderType, int constantValue) {
         return imageSmoothingProcessor.applySmoothing(inputImage, method, k, borderType, constantValue);
     }
@@ -65,8 +94,7 @@ public class ImageService {
             int borderType,
             int constantValue
     ) {
-        PrewittEdgeDetector detector = new PrewittEdgeDetector();
-        return detector.applyPrewittEdgeDetection(
+        return prewittEdgeDetector.applyPrewittEdgeDetection(
                 inputImage,
                 direction,
                 borderType,
@@ -74,6 +102,16 @@ public class ImageService {
         );
     }
 
+    /**
+     * Osiem masek Sobela lub Prewitta w jednym przejściu po obrazie.
+     */
+    public CompassGradient.Result applyCompassGradient(BufferedImage image, CompassGradient.Family family,
+                                                       int borderType, int constantValue) {
+        return family == CompassGradient.Family.SOBEL
+                ? sobelEdgeDetector.applyCompassSobel(image, borderType, constantValue)
+                : prewittEdgeDetector.applyCompassPrewitt(image, borderType, constantValue);
+    }
+
 
     public BufferedImage applyBorderFill(BufferedImage inputImage, int borderTypeCode, int constantValue) {
         return borderFillProcessor.applyBorderFill(inputImage, borderTypeCode, constantValue);
@@ -83,10 +121,45 @@ public class ImageService {
         return processor.applyMedianFilter(inputImage, kernelSize, borderTypeCode);
     }
 
+    public BufferedImage applyRankFilter(BufferedImage inputImage, int kernelSize, double percentile, int borderTypeCode, int constantValue) {
+        return processor.applyRankFilter(inputImage, kernelSize, percentile, borderTypeCode, constantValue);
+    }
+
     public BufferedImage applyCanny(BufferedImage inputImage, double threshold1, double threshold2, int apertureSize, boolean l2Gradient) {
         return detector.applyCanny(inputImage, threshold1, threshold2, apertureSize, l2Gradient);
     }
+
+    /**
+     * Sesja Canny'ego: gradienty liczone raz, zmiana progów wykonuje tylko histerezę.
+     */
+    public CannySession createCannySession(BufferedImage inputImage, int apertureSize, boolean l2Gradient) {
+        return detector.session(inputImage, apertureSize, l2Gradient);
+    }
+    public ConnectedComponents labelComponents(BufferedImage image, ConnectedComponents.Connectivity connectivity) {
+        return ConnectedComponents.label(image, connectivity);
+    }
+
     public String calculateShapeFeatures(BufferedImage image) {
-        return shapeFeatureExtractor.calculateFeatures(OpenCVUtils.bufferedImageToMat(image));
+        try (MatArena arena = new MatArena()) {
+            return shapeFeatureExtractor.calculateFeatures(arena.track(OpenCVUtils.bufferedImageToGrayMat(image)));
+        }
+    }
+
+    public ShapeFeatures extractShapeFeatures(BufferedImage image) {
+        try (MatArena arena = new MatArena()) {
+            return ShapeFeatureExtractor.extractLargestFeatures(arena.track(OpenCVUtils.bufferedImageToGrayMat(image)));
+        }
+    }
+
+    /**
+     * Cechy wszystkich obiektów obrazu zapisane do pliku (CSV lub kolumnowo); zwraca liczbę obiektów.
+     */
+    public int saveAllShapeFeatures(BufferedImage image, Path file, boolean columnar) throws IOException {
+        try (MatArena arena = new MatArena();
+             ShapeFeaturesWriter writer = columnar
+                     ? ShapeFeaturesWriter.columnar(file, false)
+                     : ShapeFeaturesWriter.csv(file, false)) {
+            return ShapeFeatureExtractor.writeAllFeatures(arena.track(OpenCVUtils.bufferedImageToGrayMat(image)), writer);
+        }
     }
 }
@@ -0,0 +1,146 @@
+package org.example;
+
+import lombok.extern.log4j.Log4j2;
+import org.opencv.core.Mat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Zakres życia macierzy natywnych jednej operacji.
+ * Wszystkie macierze utworzone lub zarejestrowane w arenie są zwalniane (Mat.release())
+ * przy zamknięciu areny, a macierze robocze wracają do wspólnej puli:
+ * <pre>
+ * try (MatArena arena = new MatArena()) {
+ *     Mat gray = arena.track(OpenCVUtils.bufferedImageToGrayMat(image));
+ *     Mat tmp = arena.scratch(gray.rows(), gray.cols(), CvType.CV_32F);
+ *     ...
+ *     return OpenCVUtils.matToBufferedImage(result);
+ * }
+ * </pre>
+ * Macierz, która ma przeżyć operację (np. wynik metody zwracającej Mat), należy wyjąć z areny przez keep().
+ */
+@Log4j2
+public class MatArena implements AutoCloseable {
+
+    /** górna granica pamięci natywnej trzymanej we wspólnej puli */
+    private static final long SHARED_POOL_BYTES = 256L * 1024 * 1024;
+    private static final MatPool SHARED_POOL = new MatPool(4, SHARED_POOL_BYTES);
+    private static final Set<MatArena> OPEN_ARENAS = ConcurrentHashMap.newKeySet();
+
+    private final MatPool pool;
+    private final List<Mat> owned = new ArrayList<>();
+    private final List<Mat> scratch = new ArrayList<>();
+    private boolean closed;
+
+    public MatArena() {
+        this(SHARED_POOL);
+    }
+
+    public MatArena(MatPool pool) {
+        this.pool = pool;
+        OPEN_ARENAS.add(this);
+    }
+
+    /**
+     * Rejestruje macierz w arenie - zostanie zwolniona przy zamknięciu.
+     */
+    public synchronized <T extends Mat> T track(T mat) {
+        ensureOpen();
+        if (mat != null) {
+            owned.add(mat);
+        }
+        return mat;
+    }
+
+    public Mat newMat() {
+        return track(new Mat());
+    }
+
+    public Mat newMat(int rows, int cols, int type) {
+        return track(new Mat(rows, cols, type));
+    }
+
+    /**
+     * Macierz robocza z puli (zawartość nieokreślona). Wraca do puli przy zamknięciu areny.
+     */
+    public synchronized Mat scratch(int rows, int cols, int type) {
+        ensureOpen();
+        Mat mat = pool.acquire(rows, cols, type);
+        scratch.add(mat);
+        return mat;
+    }
+
+    /**
+     * Wyjmuje macierz spod kontroli areny (np. wynik zwracany do wywołującego).
+     */
+    public synchronized <T extends Mat> T keep(T mat) {
+        owned.remove(mat);
+        scratch.remove(mat);
+        return mat;
+    }
+
+    /**
+     * Liczba bajtów natywnych trzymanych obecnie przez tę arenę.
+     */
+    public synchronized long nativeBytes() {
+        long bytes = 0;
+        for (Mat mat : owned) {
+            bytes += MatPool.nativeBytes(mat);
+        }
+        for (Mat mat : scratch) {
+            bytes += MatPool.nativeBytes(mat);
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        long released;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            released = nativeBytes();
+            for (Mat mat : owned) {
+                mat.release();
+            }
+            for (Mat mat : scratch) {
+                pool.release(mat);
+            }
+            owned.clear();
+            scratch.clear();
+            closed = true;
+        }
+        OPEN_ARENAS.remove(this);
+        // poza blokadą areny - liveNativeBytes() odpytuje pozostałe otwarte areny
+        log.debug("MatArena closed: released {} bytes, live native bytes {}", released, liveNativeBytes());
+    }
+
+    /**
+     * Łączna liczba bajtów natywnych w otwartych arenach i we wspólnej puli.
+     * Przy stałym obciążeniu wartość ta powinna pozostawać stała.
+     */
+    public static long liveNativeBytes() {
+        long bytes = SHARED_POOL.pooledBytes();
+        for (MatArena arena : OPEN_ARENAS) {
+            bytes += arena.nativeBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Zwalnia macierze przechowywane we wspólnej puli.
+     */
+    public static void clearSharedPool() {
+        SHARED_POOL.clear();
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("MatArena is already closed.");
+        }
+    }
+}
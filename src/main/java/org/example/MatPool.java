@@ -0,0 +1,141 @@
+package org.example;
+
+import org.opencv.core.Mat;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Pula macierzy roboczych Mat grupowanych według (wiersze, kolumny, typ).
+ * Zawartość pobranej macierzy jest nieokreślona - to tylko zaalokowana pamięć natywna
+ * do ponownego wykorzystania. Nadmiarowe macierze (ponad maxPerKey) są zwalniane od razu.
+ * Łączny rozmiar puli jest ograniczony przez maxBytes - po jego przekroczeniu zwalniane są
+ * macierze z najdawniej używanych rozmiarów (LRU), więc obrazy o wielu różnych wymiarach
+ * nie zostawiają w puli pamięci na zawsze.
+ */
+public class MatPool {
+
+    /** kolejność dostępu: pierwszy klucz to najdawniej używany rozmiar */
+    private final Map<Key, ArrayDeque<Mat>> free = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxPerKey;
+    private final long maxBytes;
+    private long pooledBytes;
+
+    public MatPool(int maxPerKey, long maxBytes) {
+        if (maxPerKey < 0) {
+            throw new IllegalArgumentException("maxPerKey must be >= 0.");
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must be >= 0.");
+        }
+        this.maxPerKey = maxPerKey;
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized Mat acquire(int rows, int cols, int type) {
+        Key key = new Key(rows, cols, type);
+        ArrayDeque<Mat> mats = free.get(key);
+        if (mats != null) {
+            Mat mat = mats.pop();
+            if (mats.isEmpty()) {
+                free.remove(key);
+            }
+            pooledBytes -= nativeBytes(mat);
+            return mat;
+        }
+        return new Mat(rows, cols, type);
+    }
+
+    /**
+     * Zwraca macierz do puli (lub ją zwalnia, gdy pula dla danego klucza jest pełna
+     * albo macierz sama przekracza maxBytes).
+     */
+    public synchronized void release(Mat mat) {
+        if (mat == null || mat.empty()) {
+            if (mat != null) {
+                mat.release();
+            }
+            return;
+        }
+        long bytes = nativeBytes(mat);
+        ArrayDeque<Mat> mats = free.get(new Key(mat.rows(), mat.cols(), mat.type()));
+        if (bytes > maxBytes || (mats != null ? mats.size() : 0) >= maxPerKey) {
+            mat.release();
+            return;
+        }
+        if (mats == null) {
+            mats = new ArrayDeque<>();
+            free.put(new Key(mat.rows(), mat.cols(), mat.type()), mats);
+        }
+        mats.push(mat);
+        pooledBytes += bytes;
+        evictToLimit();
+    }
+
+    /**
+     * Zwalnia macierze z najdawniej używanych rozmiarów, aż pula zmieści się w maxBytes.
+     * Rozmiar właśnie zwróconej macierzy jest ostatni w kolejności, więc zostaje usunięty najpóźniej.
+     */
+    private void evictToLimit() {
+        Iterator<ArrayDeque<Mat>> iterator = free.values().iterator();
+        while (pooledBytes > maxBytes && iterator.hasNext()) {
+            ArrayDeque<Mat> mats = iterator.next();
+            while (pooledBytes > maxBytes && !mats.isEmpty()) {
+                Mat mat = mats.removeLast();
+                pooledBytes -= nativeBytes(mat);
+                mat.release();
+            }
+            if (mats.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized long pooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Zwalnia wszystkie macierze przechowywane w puli.
+     */
+    public synchronized void clear() {
+        for (ArrayDeque<Mat> mats : free.values()) {
+            for (Mat mat : mats) {
+                mat.release();
+            }
+        }
+        free.clear();
+        pooledBytes = 0;
+    }
+
+    static long nativeBytes(Mat mat) {
+        return mat.empty() ? 0 : mat.total() * mat.elemSize();
+    }
+
+    private static final class Key {
+        private final int rows;
+        private final int cols;
+        private final int type;
+
+        private Key(int rows, int cols, int type) {
+            this.rows = rows;
+            this.cols = cols;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return rows == key.rows && cols == key.cols && type == key.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return (rows * 31 + cols) * 31 + type;
+        }
+    }
+}
@@ -2,43 +2,283 @@ package org.example;
 
 import org.opencv.core.CvType;
 import org.opencv.core.Mat;
+import org.opencv.imgproc.Imgproc;
 
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
 
+/**
+ * Konwersja BufferedImage <-> Mat przez bezpośrednie kopiowanie bajtów rastra
+ * (bez kodowania/dekodowania PNG). Obsługiwane typy: TYPE_BYTE_GRAY, TYPE_3BYTE_BGR,
+ * TYPE_4BYTE_ABGR, TYPE_INT_RGB, TYPE_INT_ARGB i TYPE_BYTE_BINARY; pozostałe są
+ * najpierw przerysowywane do TYPE_3BYTE_BGR.
+ */
 public class OpenCVUtils {
 
+    /**
+     * BufferedImage -> Mat (CV_8UC1, CV_8UC3 w kolejności BGR lub CV_8UC4 w kolejności BGRA).
+     */
     public static Mat bufferedImageToMat(BufferedImage image) {
-        int type = image.getType();
-        Mat mat;
+        int width = image.getWidth();
+        int height = image.getHeight();
 
-        if (type == BufferedImage.TYPE_BYTE_GRAY) {
-            mat = new Mat(image.getHeight(), image.getWidth(), CvType.CV_8UC1);
-        } else {
-            mat = new Mat(image.getHeight(), image.getWidth(), CvType.CV_8UC3);
+        switch (image.getType()) {
+            case BufferedImage.TYPE_BYTE_GRAY: {
+                Mat mat = new Mat(height, width, CvType.CV_8UC1);
+                mat.put(0, 0, RasterBytes.grayBytes(image));
+                return mat;
+            }
+            case BufferedImage.TYPE_BYTE_BINARY: {
+                Mat mat = new Mat(height, width, CvType.CV_8UC1);
+                mat.put(0, 0, unpackBinary(image));
+                return mat;
+            }
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                byte[] data = RasterBytes.denseBytes(image);
+                if (data == null) {
+                    data = RasterBytes.denseBytes(redraw(image, BufferedImage.TYPE_3BYTE_BGR));
+                }
+                Mat mat = new Mat(height, width, CvType.CV_8UC3);
+                mat.put(0, 0, data);
+                return mat;
+            }
+            case BufferedImage.TYPE_4BYTE_ABGR: {
+                byte[] abgr = RasterBytes.denseBytes(image);
+                if (abgr == null) {
+                    abgr = RasterBytes.denseBytes(redraw(image, BufferedImage.TYPE_4BYTE_ABGR));
+                }
+                byte[] bgra = new byte[abgr.length];
+                for (int i = 0; i < abgr.length; i += 4) {
+                    bgra[i] = abgr[i + 1];
+                    bgra[i + 1] = abgr[i + 2];
+                    bgra[i + 2] = abgr[i + 3];
+                    bgra[i + 3] = abgr[i];
+                }
+                Mat mat = new Mat(height, width, CvType.CV_8UC4);
+                mat.put(0, 0, bgra);
+                return mat;
+            }
+            case BufferedImage.TYPE_INT_RGB: {
+                int[] rgb = RasterBytes.denseInts(image);
+                if (rgb == null) {
+                    rgb = RasterBytes.denseInts(redraw(image, BufferedImage.TYPE_INT_RGB));
+                }
+                byte[] bgr = new byte[rgb.length * 3];
+                for (int i = 0, j = 0; i < rgb.length; i++, j += 3) {
+                    int pixel = rgb[i];
+                    bgr[j] = (byte) pixel;
+                    bgr[j + 1] = (byte) (pixel >> 8);
+                    bgr[j + 2] = (byte) (pixel >> 16);
+                }
+                Mat mat = new Mat(height, width, CvType.CV_8UC3);
+                mat.put(0, 0, bgr);
+                return mat;
+            }
+            case BufferedImage.TYPE_INT_ARGB: {
+                int[] argb = RasterBytes.denseInts(image);
+                if (argb == null) {
+                    argb = RasterBytes.denseInts(redraw(image, BufferedImage.TYPE_INT_ARGB));
+                }
+                byte[] bgra = new byte[argb.length * 4];
+                for (int i = 0, j = 0; i < argb.length; i++, j += 4) {
+                    int pixel = argb[i];
+                    bgra[j] = (byte) pixel;
+                    bgra[j + 1] = (byte) (pixel >> 8);
+                    bgra[j + 2] = (byte) (pixel >> 16);
+                    bgra[j + 3] = (byte) (pixel >>> 24);
+                }
+                Mat mat = new Mat(height, width, CvType.CV_8UC4);
+                mat.put(0, 0, bgra);
+                return mat;
+            }
+            default: {
+                Mat mat = new Mat(height, width, CvType.CV_8UC3);
+                mat.put(0, 0, RasterBytes.denseBytes(redraw(image, BufferedImage.TYPE_3BYTE_BGR)));
+                return mat;
+            }
         }
+    }
+
+    /**
+     * BufferedImage -> jednokanałowy Mat CV_8UC1 (obrazy kolorowe przez COLOR_BGR2GRAY).
+     */
+    public static Mat bufferedImageToGrayMat(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Input image is null.");
+        }
+        Mat mat = bufferedImageToMat(image);
+        if (mat.channels() == 1) {
+            return mat;
+        }
+        Mat gray = new Mat();
+        Imgproc.cvtColor(mat, gray, mat.channels() == 4 ? Imgproc.COLOR_BGRA2GRAY : Imgproc.COLOR_BGR2GRAY);
+        mat.release();
+        return gray;
+    }
 
-        byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
-        mat.put(0, 0, data);
+    /**
+     * Obraz TYPE_BYTE_GRAY do przetwarzania w Javie: obraz TYPE_BYTE_GRAY jest zwracany bez zmian,
+     * pozostałe są konwertowane tak jak w bufferedImageToGrayMat.
+     */
+    public static BufferedImage toGrayImage(BufferedImage image) {
+        if (image != null && image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        Mat gray = bufferedImageToGrayMat(image);
+        try {
+            return matToBufferedImage(gray, BufferedImage.TYPE_BYTE_GRAY);
+        } finally {
+            gray.release();
+        }
+    }
 
-        return mat;
+    /**
+     * BufferedImage -> trzykanałowy Mat CV_8UC3 (BGR), np. dla GrabCut.
+     */
+    public static Mat bufferedImageToBgrMat(BufferedImage image) {
+        Mat mat = bufferedImageToMat(image);
+        if (mat.channels() == 3) {
+            return mat;
+        }
+        Mat bgr = new Mat();
+        Imgproc.cvtColor(mat, bgr, mat.channels() == 4 ? Imgproc.COLOR_BGRA2BGR : Imgproc.COLOR_GRAY2BGR);
+        mat.release();
+        return bgr;
     }
 
+    /**
+     * Mat -> BufferedImage: 1 kanał -> TYPE_BYTE_GRAY, 3 kanały -> TYPE_3BYTE_BGR,
+     * 4 kanały -> TYPE_INT_ARGB. Macierze o innej głębi niż CV_8U są najpierw rzutowane do CV_8U.
+     */
     public static BufferedImage matToBufferedImage(Mat mat) {
-        int type;
-        if (mat.channels() == 1) {
-            type = BufferedImage.TYPE_BYTE_GRAY;
-        } else if (mat.channels() == 3) {
-            type = BufferedImage.TYPE_3BYTE_BGR;
-        } else {
-            throw new IllegalArgumentException("Unsupported Mat channel count: " + mat.channels());
+        if (mat == null || mat.empty()) {
+            throw new IllegalArgumentException("Input Mat is null or empty.");
+        }
+        if (mat.depth() != CvType.CV_8U) {
+            Mat mat8U = new Mat();
+            mat.convertTo(mat8U, CvType.CV_8U);
+            BufferedImage image = matToBufferedImage(mat8U);
+            mat8U.release();
+            return image;
         }
 
-        BufferedImage image = new BufferedImage(mat.width(), mat.height(), type);
-        byte[] data = new byte[mat.channels() * mat.width() * mat.height()];
-        mat.get(0, 0, data);
-        image.getRaster().setDataElements(0, 0, mat.width(), mat.height(), data);
+        int width = mat.cols();
+        int height = mat.rows();
+
+        switch (mat.channels()) {
+            case 1: {
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+                mat.get(0, 0, RasterBytes.denseBytes(image));
+                return image;
+            }
+            case 3: {
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+                mat.get(0, 0, RasterBytes.denseBytes(image));
+                return image;
+            }
+            case 4: {
+                BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                byte[] bgra = new byte[width * height * 4];
+                mat.get(0, 0, bgra);
+                int[] argb = RasterBytes.denseInts(image);
+                for (int i = 0, j = 0; i < argb.length; i++, j += 4) {
+                    argb[i] = ((bgra[j + 3] & 0xFF) << 24)
+                            | ((bgra[j + 2] & 0xFF) << 16)
+                            | ((bgra[j + 1] & 0xFF) << 8)
+                            | (bgra[j] & 0xFF);
+                }
+                return image;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported Mat channel count: " + mat.channels());
+        }
+    }
+
+    /**
+     * Mat -> BufferedImage wskazanego typu (np. powrót do typu obrazu wejściowego).
+     */
+    public static BufferedImage matToBufferedImage(Mat mat, int imageType) {
+        BufferedImage image = matToBufferedImage(mat);
+        if (image.getType() == imageType) {
+            return image;
+        }
+        if (imageType == BufferedImage.TYPE_BYTE_BINARY && image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return packBinary(image);
+        }
+        return redraw(image, imageType);
+    }
+
+    /**
+     * Rozpakowanie TYPE_BYTE_BINARY do bajtów 0..255 według palety obrazu.
+     */
+    private static byte[] unpackBinary(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        byte[] gray = new byte[width * height];
+
+        if (image.getRaster().getSampleModel() instanceof MultiPixelPackedSampleModel
+                && image.getColorModel() instanceof IndexColorModel
+                && image.getRaster().getSampleModel().getSampleSize(0) == 1
+                && image.getRaster().getSampleModelTranslateX() == 0
+                && image.getRaster().getSampleModelTranslateY() == 0) {
+            MultiPixelPackedSampleModel sampleModel = (MultiPixelPackedSampleModel) image.getRaster().getSampleModel();
+            IndexColorModel colorModel = (IndexColorModel) image.getColorModel();
+            byte zero = (byte) luminance(colorModel.getRGB(0));
+            byte one = (byte) luminance(colorModel.getRGB(1));
+            byte[] packed = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+            int stride = sampleModel.getScanlineStride();
+            int bitOffset = sampleModel.getDataBitOffset();
+
+            for (int y = 0; y < height; y++) {
+                int rowStart = y * stride * 8 + bitOffset;
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int bit = rowStart + x;
+                    int value = (packed[bit >> 3] >> (7 - (bit & 7))) & 1;
+                    gray[offset + x] = value == 0 ? zero : one;
+                }
+            }
+            return gray;
+        }
+
+        return RasterBytes.grayBytes(redraw(image, BufferedImage.TYPE_BYTE_GRAY));
+    }
+
+    private static BufferedImage packBinary(BufferedImage gray) {
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        byte[] data = RasterBytes.denseBytes(gray);
+        BufferedImage binary = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] packed = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        int stride = (width + 7) / 8;
+
+        for (int y = 0; y < height; y++) {
+            int offset = y * width;
+            int rowStart = y * stride;
+            for (int x = 0; x < width; x++) {
+                if ((data[offset + x] & 0xFF) >= 128) {
+                    packed[rowStart + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+                }
+            }
+        }
+        return binary;
+    }
+
+    private static int luminance(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (r * 19595 + g * 38470 + b * 7471 + 32768) >> 16;
+    }
 
-        return image;
+    private static BufferedImage redraw(BufferedImage image, int imageType) {
+        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), imageType);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
     }
 }
@@ -0,0 +1,68 @@
+package org.example;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Podział przetwarzania obrazu na pasy wierszy wykonywane równolegle (fork/join).
+ * Każdy pas [fromRow, toRow) trafia do jednego zadania, więc zadanie może swobodnie
+ * pisać do "swoich" wierszy tablicy wynikowej bez synchronizacji.
+ */
+public final class ParallelRows {
+
+    /**
+     * Minimalna liczba pikseli w jednym zadaniu - mniejsze obrazy są przetwarzane w wątku wywołującym.
+     */
+    private static final int MIN_PIXELS_PER_TASK = 1 << 16;
+
+    private ParallelRows() {
+    }
+
+    @FunctionalInterface
+    public interface RowRange {
+        void apply(int fromRow, int toRow);
+    }
+
+    /**
+     * Wykonuje action dla rozłącznych pasów wierszy obrazu o podanych wymiarach.
+     */
+    public static void forEachStrip(int width, int height, RowRange action) {
+        if (height <= 0) {
+            return;
+        }
+        int minRows = Math.max(1, MIN_PIXELS_PER_TASK / Math.max(1, width));
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (parallelism <= 1 || height <= minRows) {
+            action.apply(0, height);
+            return;
+        }
+        // kilka pasów na rdzeń, żeby wyrównać obciążenie
+        int rowsPerTask = Math.max(minRows, (height + parallelism * 4 - 1) / (parallelism * 4));
+        ForkJoinPool.commonPool().invoke(new StripTask(action, 0, height, rowsPerTask));
+    }
+
+    private static final class StripTask extends RecursiveAction {
+        private final RowRange action;
+        private final int fromRow;
+        private final int toRow;
+        private final int rowsPerTask;
+
+        private StripTask(RowRange action, int fromRow, int toRow, int rowsPerTask) {
+            this.action = action;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= rowsPerTask) {
+                action.apply(fromRow, toRow);
+                return;
+            }
+            int middle = (fromRow + toRow) >>> 1;
+            invokeAll(new StripTask(action, fromRow, middle, rowsPerTask),
+                    new StripTask(action, middle, toRow, rowsPerTask));
+        }
+    }
+}
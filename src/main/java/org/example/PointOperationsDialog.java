@@ -0,0 +1,147 @@
+package org.example;
+
+import lombok.Getter;
+import org.example.histogram.LutChain;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/*
+Kolejka operacji punktowych (negacja, redukcja poziomów szarości, progowanie,
+rozciąganie, equalizacja) wykonywana jednym przejściem po obrazie (LutChain).
+ */
+public class PointOperationsDialog extends JDialog {
+
+    private static final String NEGATE = "Negate";
+    private static final String QUANTIZE = "Reduce Grayscale Levels (levels)";
+    private static final String BINARIZE = "Binary Threshold (threshold)";
+    private static final String THRESHOLD = "Threshold with Gray Levels (threshold)";
+    private static final String STRETCH = "Stretch Histogram (p1 p2 q3 q4)";
+    private static final String LINEAR_STRETCH = "Linear Stretch (No Clipping)";
+    private static final String LINEAR_STRETCH_CLIPPING = "Linear Stretch (clipping %)";
+    private static final String EQUALIZE = "Equalize Histogram";
+
+    private final LutChain chain = new LutChain();
+    private final DefaultListModel<String> stepsModel = new DefaultListModel<>();
+    @Getter
+    private BufferedImage processedImage;
+
+    public PointOperationsDialog(JFrame parent, DraggableImage target, ImageService imageService) {
+        super(parent, "Point Operations Pipeline", true);
+        setLayout(new BorderLayout());
+
+        JList<String> stepsList = new JList<>(stepsModel);
+        JScrollPane stepsScroll = new JScrollPane(stepsList);
+        stepsScroll.setPreferredSize(new Dimension(360, 180));
+        add(stepsScroll, BorderLayout.CENTER);
+
+        JComboBox<String> operationBox = new JComboBox<>(new String[]{
+                NEGATE, QUANTIZE, BINARIZE, THRESHOLD, STRETCH, LINEAR_STRETCH, LINEAR_STRETCH_CLIPPING, EQUALIZE
+        });
+        JTextField parametersField = new JTextField(10);
+
+        JButton addButton = new JButton("Add");
+        addButton.addActionListener(e -> {
+            try {
+                addStep((String) operationBox.getSelectedItem(), parametersField.getText());
+                refreshSteps();
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "Invalid parameters. Please enter valid numbers.", "Error", JOptionPane.ERROR_MESSAGE);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+
+        JButton removeButton = new JButton("Remove Last");
+        removeButton.addActionListener(e -> {
+            chain.removeLast();
+            refreshSteps();
+        });
+
+        JPanel addPanel = new JPanel(new FlowLayout());
+        addPanel.add(operationBox);
+        addPanel.add(new JLabel("Parameters:"));
+        addPanel.add(parametersField);
+        addPanel.add(addButton);
+        addPanel.add(removeButton);
+        add(addPanel, BorderLayout.NORTH);
+
+        JButton applyButton = new JButton("Apply");
+        applyButton.addActionListener(e -> {
+            if (chain.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Add at least one operation.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            // histogram wyświetlanego obrazu jest zapamiętany w DraggableImage - bez ponownego liczenia
+            processedImage = imageService.applyPointOperations(target.getImage(),
+                    chain.needsHistogram() ? target.getHistogram() : null, chain);
+            dispose();
+        });
+
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> {
+            processedImage = null;
+            dispose();
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        buttonPanel.add(applyButton);
+        buttonPanel.add(cancelButton);
+        add(buttonPanel, BorderLayout.SOUTH);
+
+        pack();
+        setLocationRelativeTo(parent);
+    }
+
+    private void addStep(String operation, String parametersText) {
+        String[] tokens = parametersText.trim().isEmpty() ? new String[0] : parametersText.trim().split("[\\s,;]+");
+        switch (operation) {
+            case NEGATE:
+                chain.negate();
+                break;
+            case QUANTIZE:
+                chain.quantize(intParameter(tokens, 0));
+                break;
+            case BINARIZE:
+                chain.binarize(intParameter(tokens, 0));
+                break;
+            case THRESHOLD:
+                chain.thresholdWithGrayLevels(intParameter(tokens, 0));
+                break;
+            case STRETCH:
+                chain.stretch(intParameter(tokens, 0), intParameter(tokens, 1), intParameter(tokens, 2), intParameter(tokens, 3));
+                break;
+            case LINEAR_STRETCH:
+                chain.linearStretch();
+                break;
+            case LINEAR_STRETCH_CLIPPING:
+                chain.linearStretch(Double.parseDouble(parameter(tokens, 0)) / 100.0);
+                break;
+            case EQUALIZE:
+                chain.equalize();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+
+    private int intParameter(String[] tokens, int index) {
+        return Integer.parseInt(parameter(tokens, index));
+    }
+
+    private String parameter(String[] tokens, int index) {
+        if (index >= tokens.length) {
+            throw new IllegalArgumentException("Missing parameter #" + (index + 1) + ".");
+        }
+        return tokens[index];
+    }
+
+    private void refreshSteps() {
+        stepsModel.clear();
+        int index = 1;
+        for (String name : chain.getStepNames()) {
+            stepsModel.addElement(index++ + ". " + name);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Bezpośredni dostęp do tablic pikseli obrazu (bez getSample/setSample dla każdego piksela).
+ * Tablica jest zwracana tylko wtedy, gdy raster jest "gęsty": jeden bank, brak przesunięć,
+ * wiersze ułożone jeden za drugim - tak jak w obrazach tworzonych przez new BufferedImage(...)
+ * i wczytywanych przez ImageIO.
+ */
+public final class RasterBytes {
+
+    private RasterBytes() {
+    }
+
+    /**
+     * Tablica bajtów obrazu (np. TYPE_BYTE_GRAY, TYPE_3BYTE_BGR) lub null, gdy raster nie jest gęsty.
+     */
+    public static byte[] denseBytes(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferByte) || !isDense(raster)) {
+            return null;
+        }
+        return ((DataBufferByte) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * Tablica int obrazu (np. TYPE_INT_RGB, TYPE_INT_ARGB) lub null, gdy raster nie jest gęsty.
+     */
+    public static int[] denseInts(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt) || !isDense(raster)) {
+            return null;
+        }
+        return ((DataBufferInt) raster.getDataBuffer()).getData();
+    }
+
+    /**
+     * Kanał 0 obrazu jako tablica width*height bajtów.
+     * Dla gęstego obrazu TYPE_BYTE_GRAY zwracana jest tablica samego obrazu (bez kopiowania),
+     * w pozostałych przypadkach kanał 0 jest kopiowany wiersz po wierszu.
+     */
+    public static byte[] grayBytes(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] data = denseBytes(image);
+            if (data != null) {
+                return data;
+            }
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+        byte[] gray = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                gray[offset + x] = (byte) row[x];
+            }
+        }
+        return gray;
+    }
+
+    /**
+     * Nowy obraz TYPE_BYTE_GRAY (zawsze gęsty, można od razu pobrać jego tablicę przez denseBytes).
+     */
+    public static BufferedImage newGray(int width, int height) {
+        return new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    private static boolean isDense(WritableRaster raster) {
+        if (raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0) {
+            return false;
+        }
+        DataBuffer buffer = raster.getDataBuffer();
+        if (buffer.getNumBanks() != 1 || buffer.getOffset() != 0) {
+            return false;
+        }
+
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        SampleModel sampleModel = raster.getSampleModel();
+
+        if (sampleModel instanceof ComponentSampleModel) {
+            ComponentSampleModel csm = (ComponentSampleModel) sampleModel;
+            int pixelStride = csm.getPixelStride();
+            return pixelStride == csm.getNumBands()
+                    && csm.getScanlineStride() == width * pixelStride
+                    && buffer.getSize() == width * height * pixelStride;
+        }
+        if (sampleModel instanceof SinglePixelPackedSampleModel) {
+            SinglePixelPackedSampleModel spp = (SinglePixelPackedSampleModel) sampleModel;
+            return spp.getScanlineStride() == width && buffer.getSize() == width * height;
+        }
+        return false;
+    }
+}
@@ -4,11 +4,16 @@ import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 import org.opencv.imgproc.Moments;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.awt.Rectangle;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * Zadanie 1.
@@ -18,31 +23,43 @@ import java.util.List;
  * b) Pole powierzchni i obwód
  * c) Współczynniki kształtu: aspectRatio, extent, solidity, equivalentDiameter
  * Przygotować zapis wyników w postaci pliku tekstowego do wczytanie do oprogramowania Excel
+ * (ShapeFeaturesWriter: CSV lub binarny plik kolumnowy, wiersze zapisywane strumieniowo).
  * Program przetestować na podstawowych figurach znakach graficznych (gwiazdka, wykrzyknik,
  * dwukropek, przecinek, średnik, itp.).
+ * Dla obrazów z wieloma obiektami - describeComponents (etykietowanie ConnectedComponents).
+ * Geometria konturu (otoczka, obwód, średnice Fereta) liczona jest w Javie - ContourGeometry.
  */
 public class ShapeFeatureExtractor {
 
     /**
-     * Metoda wyszukuje największy kontur w obrazie binarnym.
+     * Kontury zewnętrzne obiektów obrazu binarnego.
      */
-    public static MatOfPoint findLargestContour(Mat binaryImage) {
+    public static List<MatOfPoint> findExternalContours(Mat binaryImage) {
         List<MatOfPoint> contours = new ArrayList<>();
         Mat hierarchy = new Mat();
+        try {
+            Imgproc.findContours(
+                    binaryImage,
+                    contours,
+                    hierarchy,
+                    Imgproc.RETR_EXTERNAL,
+                    Imgproc.CHAIN_APPROX_SIMPLE
+            );
+        } finally {
+            hierarchy.release();
+        }
+        return contours;
+    }
 
-        Imgproc.findContours(
-                binaryImage,
-                contours,
-                hierarchy,
-                Imgproc.RETR_EXTERNAL,
-                Imgproc.CHAIN_APPROX_SIMPLE
-        );
-
+    /**
+     * Metoda wyszukuje największy kontur w obrazie binarnym.
+     */
+    public static MatOfPoint findLargestContour(Mat binaryImage) {
         MatOfPoint largestContour = null;
         double maxArea = 0.0;
 
-        for (MatOfPoint contour : contours) {
-            double area = Imgproc.contourArea(contour);
+        for (MatOfPoint contour : findExternalContours(binaryImage)) {
+            double area = ContourGeometry.area(ContourGeometry.points(contour));
             if (area > maxArea) {
                 maxArea = area;
                 largestContour = contour;
@@ -52,131 +69,131 @@ public class ShapeFeatureExtractor {
     }
 
     /**
-     * Metoda oblicza cechy kształtu obiektu binarnego:
+     * Metoda oblicza cechy kształtu obiektu binarnego (największego konturu) jako tekst do wyświetlenia:
      *  - momenty
      *  - pole i obwód
      *  - aspectRatio, extent, solidity, equivalentDiameter
+     *  - średnice Fereta i prostokąt o najmniejszym polu
      */
     public static String calculateFeatures(Mat binaryImage) {
         MatOfPoint contour = findLargestContour(binaryImage);
         if (contour == null) {
             return "No contours found.";
         }
+        return extractFeatures(contour, 1).describe();
+    }
 
+    /**
+     * Cechy największego konturu lub null, gdy w obrazie nie ma obiektów.
+     */
+    public static ShapeFeatures extractLargestFeatures(Mat binaryImage) {
+        MatOfPoint contour = findLargestContour(binaryImage);
+        return contour == null ? null : extractFeatures(contour, 1);
+    }
 
-        Moments moments = Imgproc.moments(contour);
+    /**
+     * Cechy każdego konturu zewnętrznego zapisywane od razu do writer (numeracja od 1).
+     * Zwraca liczbę zapisanych obiektów.
+     */
+    public static int writeAllFeatures(Mat binaryImage, ShapeFeaturesWriter writer) throws IOException {
+        int label = 0;
+        for (MatOfPoint contour : findExternalContours(binaryImage)) {
+            try {
+                writer.write(extractFeatures(contour, ++label));
+            } finally {
+                contour.release();
+            }
+        }
+        return label;
+    }
+
+    /**
+     * Dopisuje opis cech (ShapeFeatures.describe()) do pliku tekstowego - każda linia opisu
+     * jako pary "nazwa,wartość" oddzielone przecinkami.
+     */
+    public static void saveResultsToFile(ShapeFeatures features, Path file) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String line : features.describe().split("\n")) {
+            String[] pairs = line.split(",");
+            for (int i = 0; i < pairs.length; i++) {
+                String[] parts = pairs[i].trim().split(":");
+                if (parts.length == 2) {
+                    text.append(parts[0].trim()).append(',').append(parts[1].trim());
+                } else {
+                    text.append(pairs[i].trim());
+                }
+                if (i < pairs.length - 1) {
+                    text.append(',');
+                }
+            }
+            text.append(System.lineSeparator());
+        }
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
 
-        Mat huMomentsMat = new Mat(1, 7, CvType.CV_64F);
-        Imgproc.HuMoments(moments, huMomentsMat);
-        double[] huMoments = new double[7];
-        huMomentsMat.get(0, 0, huMoments);
+    /**
+     * Wektor cech jednego konturu.
+     */
+    public static ShapeFeatures extractFeatures(MatOfPoint contour, int label) {
+        // kontur pobierany do tablicy raz - dalej tylko Java, jedno wywołanie JNI na momenty
+        int[] points = ContourGeometry.points(contour);
+        Moments moments = Imgproc.moments(contour);
+        double[] huMoments = ContourGeometry.huMoments(moments);
 
-        double area = Imgproc.contourArea(contour);
-        double perimeter = Imgproc.arcLength(new MatOfPoint2f(contour.toArray()), true);
+        double area = ContourGeometry.area(points);
+        double perimeter = ContourGeometry.perimeter(points);
 
-        Rect boundingRect = Imgproc.boundingRect(contour);
+        Rectangle boundingRect = ContourGeometry.boundingBox(points);
         double aspectRatio = (double) boundingRect.width / boundingRect.height; // W/H
 
-        double rectArea = boundingRect.width * boundingRect.height;
+        double rectArea = (double) boundingRect.width * boundingRect.height;
         double extent = (rectArea > 0) ? area / rectArea : 0.0;
 
-        MatOfInt hullIndices = new MatOfInt();
-        Imgproc.convexHull(contour, hullIndices);
-        MatOfPoint hullPoints = new MatOfPoint();
-        hullPoints.create((int) hullIndices.size().height, 1, CvType.CV_32SC2);
-
-        for (int i = 0; i < hullIndices.size().height; i++) {
-            int index = (int) hullIndices.get(i, 0)[0];
-            double[] point = contour.get(index, 0);
-            hullPoints.put(i, 0, point);
-        }
-
-        double hullArea = Imgproc.contourArea(hullPoints);
+        int[] hull = ContourGeometry.convexHull(points);
+        double hullArea = ContourGeometry.area(hull);
         double solidity = (hullArea > 0) ? area / hullArea : 0.0;
 
         double equivalentDiameter = Math.sqrt(4 * area / Math.PI);
 
-        StringBuilder result = new StringBuilder();
+        // średnice Fereta i prostokąt o najmniejszym polu (rotating calipers na otoczce)
+        ContourGeometry.Calipers calipers = ContourGeometry.calipers(hull);
 
-        result.append(String.format(
-                "Area: %.4f, Perimeter: %.4f\n",
-                area, perimeter
-        ));
-        result.append(String.format(
-                "AspectRatio: %.4f, Extent: %.4f, Solidity: %.4f, EquivalentDiameter: %.4f\n",
-                aspectRatio, extent, solidity, equivalentDiameter
-        ));
-        for (int i = 0; i < huMoments.length; i++) {
-            result.append(
-                    String.format("HuMoment[%d]: %.6e\n", i, huMoments[i])
-            );
-        }
+        // środek ciężkości z momentów; dla konturu bez pola (linia, punkt) - środek prostokąta otaczającego
+        double centroidX = moments.m00 != 0 ? moments.m10 / moments.m00 : boundingRect.x + (boundingRect.width - 1) / 2.0;
+        double centroidY = moments.m00 != 0 ? moments.m01 / moments.m00 : boundingRect.y + (boundingRect.height - 1) / 2.0;
 
-        return result.toString();
+        return new ShapeFeatures(label, area, perimeter, centroidX, centroidY,
+                boundingRect.x, boundingRect.y, boundingRect.width, boundingRect.height,
+                aspectRatio, extent, solidity, equivalentDiameter,
+                calipers.getMaxFeret(), calipers.getMinFeret(),
+                calipers.getRectWidth(), calipers.getRectHeight(), calipers.getRectAngle(),
+                huMoments);
     }
 
     /**
-     * metoda do zapisu wyników do pliku.
+     * Podsumowanie wszystkich obiektów obrazu (ConnectedComponents): liczba obiektów, pole łączne
+     * i tabela maxRows obiektów o największym polu - pole, środek ciężkości, prostokąt otaczający.
      */
-    public static void saveResultsToFile(String features, String filePath) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            String[] lines = features.split("\\r?\\n");
-
-            for (String line : lines) {
-                String[] pairs = line.split(",");
-
-                StringBuilder csvRow = new StringBuilder();
-                for (int i = 0; i < pairs.length; i++) {
-                    String pair = pairs[i].trim();
-                    String[] parts = pair.split(":");
-                    if (parts.length == 2) {
-                        String name = parts[0].trim();
-                        String value = parts[1].trim();
-                        csvRow.append(name).append(",").append(value);
-                    } else {
-                        csvRow.append(pair);
-                    }
-                    if (i < pairs.length - 1) {
-                        csvRow.append(",");
-                    }
-                }
-                writer.write(csvRow.toString());
-                writer.newLine();
-            }
-
-        } catch (IOException e) {
-            e.printStackTrace();
+    public static String describeComponents(ConnectedComponents components, int maxRows) {
+        int count = components.getCount();
+        Integer[] order = new Integer[count];
+        long totalArea = 0;
+        for (int label = 1; label <= count; label++) {
+            order[label - 1] = label;
+            totalArea += components.getArea(label);
         }
-    }
-    public static void saveResultsToCsvFile(String features, String filePath) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            String[] lines = features.split("\\r?\\n");
-
-            for (String line : lines) {
-                String[] pairs = line.split(",");
-
-                StringBuilder csvRow = new StringBuilder();
-                for (int i = 0; i < pairs.length; i++) {
-                    String pair = pairs[i].trim();
-                    String[] parts = pair.split(":");
-                    if (parts.length == 2) {
-                        String name = parts[0].trim();
-                        String value = parts[1].trim();
-                        csvRow.append(name).append(",").append(value);
-                    } else {
-                        csvRow.append(pair);
-                    }
-                    if (i < pairs.length - 1) {
-                        csvRow.append(",");
-                    }
-                }
-                writer.write(csvRow.toString());
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        Arrays.sort(order, (a, b) -> Long.compare(components.getArea(b), components.getArea(a)));
+
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(Locale.ROOT, "Objects: %d, TotalArea: %d, MeanArea: %.4f\n",
+                count, totalArea, count > 0 ? (double) totalArea / count : 0.0));
+        for (int i = 0; i < Math.min(maxRows, count); i++) {
+            int label = order[i];
+            Rectangle box = components.getBoundingBox(label);
+            result.append(String.format(Locale.ROOT, "Object[%d]: Area %d, Centroid (%.2f; %.2f), BoundingBox %dx%d at (%d; %d)\n",
+                    label, components.getArea(label), components.getCentroidX(label), components.getCentroidY(label),
+                    box.width, box.height, box.x, box.y));
         }
+        return result.toString();
     }
-
-
 }
@@ -0,0 +1,178 @@
+package org.example;
+
+import lombok.Getter;
+
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Wektor cech kształtu jednego obiektu (jednego konturu) - wynik ShapeFeatureExtractor.
+ * Kolumny zapisu (CSV, plik kolumnowy) opisuje enum Column; zapis nie wymaga formatowania
+ * cech do tekstu i ponownego parsowania.
+ */
+public final class ShapeFeatures {
+
+    /**
+     * Sposób zapisu wartości kolumny w CSV.
+     */
+    public enum Format {
+        /** liczba całkowita */
+        INTEGER,
+        /** stałoprzecinkowo, 4 miejsca po kropce */
+        FIXED,
+        /** wykładniczo, 6 miejsc po kropce */
+        SCIENTIFIC
+    }
+
+    /**
+     * Kolumny wektora cech w kolejności zapisu.
+     */
+    public enum Column {
+        LABEL("Label", Format.INTEGER, f -> f.label),
+        AREA("Area", Format.FIXED, f -> f.area),
+        PERIMETER("Perimeter", Format.FIXED, f -> f.perimeter),
+        CENTROID_X("CentroidX", Format.FIXED, f -> f.centroidX),
+        CENTROID_Y("CentroidY", Format.FIXED, f -> f.centroidY),
+        BOUNDING_X("BoundingX", Format.INTEGER, f -> f.boundingX),
+        BOUNDING_Y("BoundingY", Format.INTEGER, f -> f.boundingY),
+        BOUNDING_WIDTH("BoundingWidth", Format.INTEGER, f -> f.boundingWidth),
+        BOUNDING_HEIGHT("BoundingHeight", Format.INTEGER, f -> f.boundingHeight),
+        ASPECT_RATIO("AspectRatio", Format.FIXED, f -> f.aspectRatio),
+        EXTENT("Extent", Format.FIXED, f -> f.extent),
+        SOLIDITY("Solidity", Format.FIXED, f -> f.solidity),
+        EQUIVALENT_DIAMETER("EquivalentDiameter", Format.FIXED, f -> f.equivalentDiameter),
+        MAX_FERET("MaxFeret", Format.FIXED, f -> f.maxFeret),
+        MIN_FERET("MinFeret", Format.FIXED, f -> f.minFeret),
+        MIN_AREA_RECT_WIDTH("MinAreaRectWidth", Format.FIXED, f -> f.minAreaRectWidth),
+        MIN_AREA_RECT_HEIGHT("MinAreaRectHeight", Format.FIXED, f -> f.minAreaRectHeight),
+        MIN_AREA_RECT_ANGLE("MinAreaRectAngle", Format.FIXED, f -> f.minAreaRectAngle),
+        HU_1("HuMoment1", Format.SCIENTIFIC, f -> f.huMoments[0]),
+        HU_2("HuMoment2", Format.SCIENTIFIC, f -> f.huMoments[1]),
+        HU_3("HuMoment3", Format.SCIENTIFIC, f -> f.huMoments[2]),
+        HU_4("HuMoment4", Format.SCIENTIFIC, f -> f.huMoments[3]),
+        HU_5("HuMoment5", Format.SCIENTIFIC, f -> f.huMoments[4]),
+        HU_6("HuMoment6", Format.SCIENTIFIC, f -> f.huMoments[5]),
+        HU_7("HuMoment7", Format.SCIENTIFIC, f -> f.huMoments[6]);
+
+        private final String header;
+        private final Format format;
+        private final ToDoubleFunction<ShapeFeatures> accessor;
+
+        Column(String header, Format format, ToDoubleFunction<ShapeFeatures> accessor) {
+            this.header = header;
+            this.format = format;
+            this.accessor = accessor;
+        }
+
+        public String getHeader() {
+            return header;
+        }
+
+        public Format getFormat() {
+            return format;
+        }
+
+        public double valueOf(ShapeFeatures features) {
+            return accessor.applyAsDouble(features);
+        }
+    }
+
+    /** numer obiektu (kolejność konturu w obrazie) */
+    @Getter
+    private final int label;
+    @Getter
+    private final double area;
+    @Getter
+    private final double perimeter;
+    @Getter
+    private final double centroidX;
+    @Getter
+    private final double centroidY;
+    @Getter
+    private final int boundingX;
+    @Getter
+    private final int boundingY;
+    @Getter
+    private final int boundingWidth;
+    @Getter
+    private final int boundingHeight;
+    @Getter
+    private final double aspectRatio;
+    @Getter
+    private final double extent;
+    @Getter
+    private final double solidity;
+    @Getter
+    private final double equivalentDiameter;
+    @Getter
+    private final double maxFeret;
+    @Getter
+    private final double minFeret;
+    @Getter
+    private final double minAreaRectWidth;
+    @Getter
+    private final double minAreaRectHeight;
+    @Getter
+    private final double minAreaRectAngle;
+    private final double[] huMoments;
+
+    ShapeFeatures(int label, double area, double perimeter, double centroidX, double centroidY,
+                  int boundingX, int boundingY, int boundingWidth, int boundingHeight,
+                  double aspectRatio, double extent, double solidity, double equivalentDiameter,
+                  double maxFeret, double minFeret,
+                  double minAreaRectWidth, double minAreaRectHeight, double minAreaRectAngle,
+                  double[] huMoments) {
+        if (huMoments == null || huMoments.length != 7) {
+            throw new IllegalArgumentException("Seven Hu moments are required.");
+        }
+        this.label = label;
+        this.area = area;
+        this.perimeter = perimeter;
+        this.centroidX = centroidX;
+        this.centroidY = centroidY;
+        this.boundingX = boundingX;
+        this.boundingY = boundingY;
+        this.boundingWidth = boundingWidth;
+        this.boundingHeight = boundingHeight;
+        this.aspectRatio = aspectRatio;
+        this.extent = extent;
+        this.solidity = solidity;
+        this.equivalentDiameter = equivalentDiameter;
+        this.maxFeret = maxFeret;
+        this.minFeret = minFeret;
+        this.minAreaRectWidth = minAreaRectWidth;
+        this.minAreaRectHeight = minAreaRectHeight;
+        this.minAreaRectAngle = minAreaRectAngle;
+        this.huMoments = huMoments.clone();
+    }
+
+    public double[] getHuMoments() {
+        return huMoments.clone();
+    }
+
+    /**
+     * Niezmiennik Hu o indeksie 0..6.
+     */
+    public double getHuMoment(int index) {
+        return huMoments[index];
+    }
+
+    /**
+     * Opis do wyświetlenia w oknie dialogowym (kropka dziesiętna niezależnie od ustawień regionalnych).
+     */
+    public String describe() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format(Locale.ROOT, "Area: %.4f, Perimeter: %.4f\n", area, perimeter));
+        result.append(String.format(Locale.ROOT,
+                "AspectRatio: %.4f, Extent: %.4f, Solidity: %.4f, EquivalentDiameter: %.4f\n",
+                aspectRatio, extent, solidity, equivalentDiameter));
+        result.append(String.format(Locale.ROOT, "MaxFeret: %.4f, MinFeret: %.4f\n", maxFeret, minFeret));
+        result.append(String.format(Locale.ROOT,
+                "MinAreaRectWidth: %.4f, MinAreaRectHeight: %.4f, MinAreaRectAngle: %.4f\n",
+                minAreaRectWidth, minAreaRectHeight, minAreaRectAngle));
+        for (int i = 0; i < huMoments.length; i++) {
+            result.append(String.format(Locale.ROOT, "HuMoment[%d]: %.6e\n", i, huMoments[i]));
+        }
+        return result.toString();
+    }
+}
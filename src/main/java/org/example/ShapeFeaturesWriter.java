@@ -0,0 +1,29 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Strumieniowy zapis wektorów cech - każdy wiersz trafia do pliku bezpośrednio z ShapeFeatures,
+ * bez budowania tekstu całego wyniku w pamięci.
+ */
+public interface ShapeFeaturesWriter extends Closeable {
+
+    void write(ShapeFeatures features) throws IOException;
+
+    /**
+     * CSV (przecinek, kropka dziesiętna) z wierszem nagłówka; append = true dopisuje do istniejącego pliku,
+     * o ile ma ten sam nagłówek (w przeciwnym razie IllegalArgumentException).
+     */
+    static ShapeFeaturesWriter csv(Path file, boolean append) throws IOException {
+        return new CsvShapeFeaturesWriter(file, append);
+    }
+
+    /**
+     * Binarny plik kolumnowy (ColumnarShapeFeaturesWriter); append = true dopisuje bloki do istniejącego pliku.
+     */
+    static ShapeFeaturesWriter columnar(Path file, boolean append) throws IOException {
+        return new ColumnarShapeFeaturesWriter(file, append);
+    }
+}
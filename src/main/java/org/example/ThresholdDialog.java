@@ -4,11 +4,19 @@ package org.example;
 
 import lombok.Getter;
 import org.example.grayscale.GrayscaleImageProcessorService;
+import org.example.grayscale.PointKernels;
 
 import javax.swing.*;
 
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /*
 Opracować algorytm i uruchomić funkcjonalności realizującą typowe
@@ -17,25 +25,52 @@ operacje punktowe jednoargumentowe na obrazach w odcieniach szarości:
 kontekście histogramu wyświetlonego na ekranie),
 • progowanie z zachowaniem poziomów szarości z progiem wskazywanym
 przez użytkownika (w kontekście histogramu wyświetlonego na ekranie),
+
+Podgląd jest liczony poza EDT na pomniejszonej kopii obrazu (tablica LUT dla progu),
+do dwóch naprzemiennie używanych buforów. Zmiany suwaka w trakcie liczenia są pomijane -
+liczony jest tylko ostatni próg. Pełna rozdzielczość jest przetwarzana dopiero po OK.
  */
 
 public class ThresholdDialog extends JDialog {
     private final BufferedImage originalImage;
     @Getter
     private BufferedImage processedImage;
-    private final JLabel imageLabel;
     private final GrayscaleImageProcessorService grayscaleService;
 
+    private final PreviewPanel previewPanel;
+    private final byte[] previewSource;
+    private final BufferedImage[] previewBuffers = new BufferedImage[2];
+    private int backBuffer;
+
+    private final AtomicReference<PreviewRequest> pendingRequest = new AtomicReference<>();
+    private final AtomicBoolean rendering = new AtomicBoolean();
+    private final ExecutorService previewExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "threshold-preview");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     public ThresholdDialog(JFrame parent, BufferedImage image, GrayscaleImageProcessorService grayscaleService) {
         super(parent, "Picture Thresholding", true);
         this.originalImage = image;
-        this.processedImage = deepCopyImage(image);
         this.grayscaleService = grayscaleService;
 
+        Dimension previewSize = previewSize(image);
+        this.previewSource = createPreviewSource(image, previewSize.width, previewSize.height);
+        this.previewBuffers[0] = RasterBytes.newGray(previewSize.width, previewSize.height);
+        this.previewBuffers[1] = RasterBytes.newGray(previewSize.width, previewSize.height);
+
         setLayout(new BorderLayout());
+        setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                cancel();
+            }
+        });
 
-        imageLabel = new JLabel(new ImageIcon(processedImage));
-        add(new JScrollPane(imageLabel), BorderLayout.CENTER);
+        previewPanel = new PreviewPanel(previewSize);
+        add(new JScrollPane(previewPanel), BorderLayout.CENTER);
 
         JPanel controlsPanel = new JPanel();
         controlsPanel.setLayout(new BoxLayout(controlsPanel, BoxLayout.Y_AXIS));
@@ -53,7 +88,7 @@ public class ThresholdDialog extends JDialog {
         thresholdSlider.addChangeListener(e -> {
             int threshold = thresholdSlider.getValue();
             thresholdField.setText(String.valueOf(threshold));
-            updateImage(threshold, binaryModeCheckBox.isSelected());
+            requestPreview(threshold, binaryModeCheckBox.isSelected());
         });
 
         thresholdField.addActionListener(e -> {
@@ -61,7 +96,7 @@ public class ThresholdDialog extends JDialog {
                 int threshold = Integer.parseInt(thresholdField.getText());
                 threshold = Math.max(0, Math.min(255, threshold));
                 thresholdSlider.setValue(threshold);
-                updateImage(threshold, binaryModeCheckBox.isSelected());
+                requestPreview(threshold, binaryModeCheckBox.isSelected());
             } catch (NumberFormatException ex) {
                 JOptionPane.showMessageDialog(this, "Enter a valid number (0-255).", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -69,7 +104,7 @@ public class ThresholdDialog extends JDialog {
 
         binaryModeCheckBox.addActionListener(e -> {
             int threshold = thresholdSlider.getValue();
-            updateImage(threshold, binaryModeCheckBox.isSelected());
+            requestPreview(threshold, binaryModeCheckBox.isSelected());
         });
 
         JPanel sliderPanel = new JPanel(new FlowLayout());
@@ -83,14 +118,18 @@ public class ThresholdDialog extends JDialog {
         JPanel buttonPanel = new JPanel(new FlowLayout());
         JButton okButton = new JButton("OK");
         okButton.addActionListener(e -> {
+            // pełna rozdzielczość dopiero teraz
+            int threshold = thresholdSlider.getValue();
+            if (binaryModeCheckBox.isSelected()) {
+                processedImage = grayscaleService.binarizeImage(originalImage, threshold);
+            } else {
+                processedImage = grayscaleService.thresholdWithGrayLevels(originalImage, threshold);
+            }
             dispose();
         });
 
         JButton cancelButton = new JButton("Cancel");
-        cancelButton.addActionListener(e -> {
-            processedImage = originalImage; // Przywróć oryginał
-            dispose();
-        });
+        cancelButton.addActionListener(e -> cancel());
 
         buttonPanel.add(okButton);
         buttonPanel.add(cancelButton);
@@ -102,25 +141,144 @@ public class ThresholdDialog extends JDialog {
         pack();
         setLocationRelativeTo(parent);
 
-        updateImage(0, false);
+        requestPreview(0, false);
     }
 
+    @Override
+    public void dispose() {
+        previewExecutor.shutdownNow();
+        super.dispose();
+    }
+
+    private void cancel() {
+        processedImage = null; // oryginał pozostaje bez zmian
+        dispose();
+    }
 
-    private void updateImage(int threshold, boolean binaryMode) {
-        if (binaryMode) {
-            processedImage = grayscaleService.binarizeImage(originalImage, threshold);
-        } else {
-            processedImage = grayscaleService.thresholdWithGrayLevels(originalImage, threshold);
+    /**
+     * Zapamiętuje ostatni próg; jeżeli podgląd nie jest właśnie liczony, zleca jego policzenie.
+     */
+    private void requestPreview(int threshold, boolean binaryMode) {
+        pendingRequest.set(new PreviewRequest(threshold, binaryMode));
+        if (rendering.compareAndSet(false, true)) {
+            previewExecutor.execute(this::renderPending);
         }
-        imageLabel.setIcon(new ImageIcon(processedImage));
     }
 
+    /**
+     * Wątek podglądu: liczy ostatnie zlecenie do bufora tylnego i podmienia bufory na EDT.
+     */
+    private void renderPending() {
+        do {
+            try {
+                PreviewRequest request;
+                while ((request = pendingRequest.getAndSet(null)) != null) {
+                    BufferedImage target = previewBuffers[backBuffer];
+                    byte[] lut = request.lut();
+                    byte[] pixels = RasterBytes.denseBytes(target);
+                    int width = target.getWidth();
+                    ParallelRows.forEachStrip(width, target.getHeight(), (fromRow, toRow) ->
+                            PointKernels.lookup(previewSource, pixels, fromRow * width, toRow * width, lut));
+                    backBuffer ^= 1;
+                    // po powrocie EDT wyświetla już target, więc drugi bufor można nadpisać
+                    SwingUtilities.invokeAndWait(() -> previewPanel.show(target));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (InvocationTargetException e) {
+                throw new IllegalStateException("Preview update failed.", e.getCause());
+            } finally {
+                rendering.set(false);
+            }
+            // zlecenie mogło przyjść między opróżnieniem kolejki a zwolnieniem flagi
+        } while (pendingRequest.get() != null && rendering.compareAndSet(false, true));
+    }
+
+    /**
+     * Rozmiar podglądu - obraz pomniejszony tak, żeby zmieścił się na ekranie.
+     */
+    private static Dimension previewSize(BufferedImage image) {
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        double scale = Math.min(1.0, Math.min(
+                screen.width * 0.8 / image.getWidth(),
+                screen.height * 0.7 / image.getHeight()));
+        return new Dimension(
+                Math.max(1, (int) Math.round(image.getWidth() * scale)),
+                Math.max(1, (int) Math.round(image.getHeight() * scale)));
+    }
+
+    /**
+     * Kanał 0 obrazu w rozmiarze podglądu (najbliższy sąsiad - wartości pikseli się nie zmieniają).
+     */
+    private static byte[] createPreviewSource(BufferedImage image, int width, int height) {
+        int sourceWidth = image.getWidth();
+        int sourceHeight = image.getHeight();
+        if (width == sourceWidth && height == sourceHeight) {
+            return RasterBytes.grayBytes(image);
+        }
 
-    private BufferedImage deepCopyImage(BufferedImage image) {
-        BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
-        Graphics g = copy.getGraphics();
-        g.drawImage(image, 0, 0, null);
-        g.dispose();
-        return copy;
+        byte[] preview = new byte[width * height];
+        int[] columns = new int[width];
+        for (int x = 0; x < width; x++) {
+            columns[x] = (int) ((x + 0.5) * sourceWidth / width);
+        }
+        int[] row = new int[sourceWidth];
+        for (int y = 0; y < height; y++) {
+            int sourceY = (int) ((y + 0.5) * sourceHeight / height);
+            image.getRaster().getSamples(0, sourceY, sourceWidth, 1, 0, row);
+            int offset = y * width;
+            for (int x = 0; x < width; x++) {
+                preview[offset + x] = (byte) row[columns[x]];
+            }
+        }
+        return preview;
+    }
+
+    private static final class PreviewRequest {
+        private final int threshold;
+        private final boolean binaryMode;
+
+        private PreviewRequest(int threshold, boolean binaryMode) {
+            this.threshold = threshold;
+            this.binaryMode = binaryMode;
+        }
+
+        /**
+         * Tablica LUT progowania - ta sama reguła co binarizeImage / thresholdWithGrayLevels.
+         */
+        private byte[] lut() {
+            byte[] lut = new byte[256];
+            for (int value = 0; value < 256; value++) {
+                if (value > threshold) {
+                    lut[value] = binaryMode ? (byte) 255 : (byte) value;
+                }
+            }
+            return lut;
+        }
+    }
+
+    /**
+     * Komponent rysujący bieżący bufor podglądu (bez tworzenia nowych ImageIcon).
+     */
+    private static final class PreviewPanel extends JComponent {
+        private BufferedImage image;
+
+        private PreviewPanel(Dimension size) {
+            setPreferredSize(size);
+        }
+
+        private void show(BufferedImage image) {
+            this.image = image;
+            repaint();
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            if (image != null) {
+                g.drawImage(image, 0, 0, null);
+            }
+        }
     }
 }
@@ -8,17 +8,21 @@ import org.example.grayscale.GrayscaleImageProcessorService;
 import org.example.histogram.HistogramDataGenerator;
 import org.example.histogram.HistogramDrawer;
 import org.example.histogram.HistogramPanel;
+import org.example.histogram.ImageHistogram;
 import org.example.histogram.LUTGenerator;
 import org.example.linearops.*;
 import org.example.linearstreach.LinearStretchProcessor;
 import org.example.mathoperations.LogicalImageProcessor;
 import org.example.mathoperations.MultiArgumentImageProcessor;
 import org.example.projectaverage.ImageAverageInterface;
+import org.example.segmentaionlab5.HistogramThresholds;
+import org.example.segmentaionlab5.LocalThreshold;
 import org.example.segmentaionlab5.MorphologyProcessor;
 import org.example.segmentaionlab5.SegmentationProcessor;
 import org.example.segmentaionlab5.SkeletonizationProcessor;
+import org.example.segmentaionlab5.StructuringElement;
+import org.example.segmentaionlab5.Thinning;
 import org.opencv.core.Core;
-import org.opencv.core.Mat;
 import org.opencv.core.Rect;
 
 import javax.swing.*;
@@ -26,6 +30,8 @@ import java.awt.*;
 import java.awt.datatransfer.DataFlavor;
 import java.awt.dnd.DropTarget;
 import java.awt.dnd.DropTargetDropEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -34,6 +40,7 @@ import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Log4j2
 public class MultiImageApp extends JFrame {
@@ -50,6 +57,15 @@ public class MultiImageApp extends JFrame {
     private final MorphologyProcessor morphologyProcessor;
     private final SkeletonizationProcessor skeletonProcessor;
     private final JLabel selectedImageLabel;
+    private final OperationExecutor operationExecutor;
+    /**
+     * Ostatnia sesja GrabCut - należy do aplikacji od chwili utworzenia w wątku roboczym, więc jest
+     * zamykana także po anulowaniu operacji (przy kolejnym GrabCut, zamknięciu obrazu lub aplikacji).
+     */
+    private final AtomicReference<GrabCutSession> grabCutSession = new AtomicReference<>();
+    /** obraz, dla którego sesja zakończyła się wynikiem, i jego licznik zmian po wstawieniu wyniku (tylko na EDT) */
+    private DraggableImage grabCutTarget;
+    private long grabCutModificationCount;
 
 
 
@@ -62,9 +78,9 @@ public class MultiImageApp extends JFrame {
                 new ImageDuplicator(),
                 new LinearStretchProcessor(),
                 new HistogramEqualizer(new LUTGenerator()),
-                new ImageSmoothingProcessor(new BorderFillProcessor()),
+                new ImageSmoothingProcessor(),
                 new LaplacianSharpeningProcessor(),
-                new SobelEdgeDetector(new BorderFillProcessor()),
+                new SobelEdgeDetector(),
                 new PrewittEdgeDetector(),
                 new BorderFillProcessor(),
                 new MedianFilterProcessor(),
@@ -82,7 +98,12 @@ public class MultiImageApp extends JFrame {
         this.imagePanel = new JPanel(null);
         selectedImageLabel = new JLabel("No image selected");
         selectedImageLabel.setHorizontalAlignment(SwingConstants.CENTER);
-        add(selectedImageLabel, BorderLayout.SOUTH);
+        this.operationExecutor = new OperationExecutor(this);
+        // pasek statusu: wybrany obraz + operacje wykonywane w tle
+        JPanel statusBar = new JPanel(new BorderLayout());
+        statusBar.add(selectedImageLabel, BorderLayout.CENTER);
+        statusBar.add(operationExecutor.getStatusComponent(), BorderLayout.EAST);
+        add(statusBar, BorderLayout.SOUTH);
         JScrollPane scrollPane = new JScrollPane(imagePanel);
         add(scrollPane, BorderLayout.CENTER);
 
@@ -91,6 +112,14 @@ public class MultiImageApp extends JFrame {
 
         setSize(800, 600);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                operationExecutor.shutdown();
+                replaceGrabCutSession(null);
+                MatArena.clearSharedPool();
+            }
+        });
         setLocationRelativeTo(null);
         setVisible(true);
     }
@@ -145,7 +174,7 @@ public class MultiImageApp extends JFrame {
         JMenuItem histogramMenuItem = new JMenuItem("Generate Histogram");
         histogramMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
-                generateHistogram(selectedImage.getImage());
+                generateHistogram(selectedImage);
             }
         });
 
@@ -181,6 +210,9 @@ public class MultiImageApp extends JFrame {
         JMenuItem negateMenuItem = new JMenuItem("Negate Image");
         negateMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 try {
                     BufferedImage negatedImage = grayscaleImageProcessorService.negateImage(selectedImage.getImage());
                     selectedImage.updateImage(negatedImage);
@@ -193,6 +225,9 @@ public class MultiImageApp extends JFrame {
         JMenuItem quantizeMenuItem = new JMenuItem("Reduce Grayscale Levels");
         quantizeMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 try {
                     // Pobranie liczby poziomów szarości od użytkownika
                     String input = JOptionPane.showInputDialog(this, "Enter the number of grayscale levels (2-256):",
@@ -238,9 +273,10 @@ public class MultiImageApp extends JFrame {
                             throw new IllegalArgumentException("Ensure p1 < p2 and q3 < q4.");
                         }
 
-                        // Wywołanie metody rozciągania histogramu
-                        BufferedImage stretchedImage = histogramStretching.stretchHistogram(selectedImage.getImage(), p1, p2, q3, q4);
-                        selectedImage.updateImage(stretchedImage); // Aktualizacja obrazu
+                        // Wywołanie metody rozciągania histogramu w tle
+                        BufferedImage source = selectedImage.getImage();
+                        operationExecutor.submit("Stretch Histogram", selectedImage,
+                                () -> histogramStretching.stretchHistogram(source, p1, p2, q3, q4));
                     }
                 } catch (NumberFormatException ex) {
                     JOptionPane.showMessageDialog(this, "Invalid input. Please enter valid numbers.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -255,6 +291,9 @@ public class MultiImageApp extends JFrame {
         JMenuItem thresholdMenuItem = new JMenuItem("Threshold");
         thresholdMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 ThresholdDialog dialog = new ThresholdDialog(this, selectedImage.getImage(), grayscaleImageProcessorService);
                 dialog.setVisible(true);
 
@@ -267,9 +306,30 @@ public class MultiImageApp extends JFrame {
             }
         });
 
+        JMenuItem pointPipelineMenuItem = new JMenuItem("Point Operations Pipeline");
+        pointPipelineMenuItem.addActionListener(e -> {
+            if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
+                PointOperationsDialog dialog = new PointOperationsDialog(this, selectedImage, imageService);
+                dialog.setVisible(true);
+
+                BufferedImage processedImage = dialog.getProcessedImage();
+                if (processedImage != null) {
+                    selectedImage.updateImage(processedImage);
+                }
+            } else {
+                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+
         JMenuItem addImagesMenuItem = new JMenuItem("Add Images");
         addImagesMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 // Wybierz drugi obraz z załadowanych w aplikacji
                 DraggableImage secondImage = selectImage("Select the second image for addition:");
                 if (secondImage != null) {
@@ -297,9 +357,57 @@ public class MultiImageApp extends JFrame {
             }
         });
 
+        JMenuItem combineAllImagesMenuItem = new JMenuItem("Sum / Average All Images");
+        combineAllImagesMenuItem.addActionListener(e -> {
+            java.util.List<BufferedImage> images = new java.util.ArrayList<>();
+            for (Component component : imagePanel.getComponents()) {
+                if (component instanceof DraggableImage) {
+                    images.add(((DraggableImage) component).getImage());
+                }
+            }
+            if (images.size() < 2) {
+                JOptionPane.showMessageDialog(this, "At least two images must be loaded.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            String[] modes = {"Sum", "Average"};
+            String selectedMode = (String) JOptionPane.showInputDialog(
+                    this,
+                    "Combine " + images.size() + " images:",
+                    "Sum / Average All Images",
+                    JOptionPane.QUESTION_MESSAGE,
+                    null,
+                    modes,
+                    "Average"
+            );
+            if (selectedMode == null) {
+                return;
+            }
+            try {
+                BufferedImage resultImage;
+                if ("Sum".equals(selectedMode)) {
+                    boolean withSaturation = JOptionPane.showConfirmDialog(
+                            this,
+                            "Apply saturation?",
+                            "Saturation",
+                            JOptionPane.YES_NO_OPTION
+                    ) == JOptionPane.YES_OPTION;
+                    resultImage = multiArgumentImageProcessor.sumImages(images, withSaturation);
+                } else {
+                    resultImage = multiArgumentImageProcessor.averageImages(images);
+                }
+                addImageToPanel(resultImage, selectedMode + " of " + images.size() + " images");
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+
         JMenuItem scalarOperationMenuItem = new JMenuItem("Scalar Operation");
         scalarOperationMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 String[] operations = {"Add", "Multiply", "Divide"};
                 String selectedOperation = (String) JOptionPane.showInputDialog(
                         this,
@@ -343,6 +451,9 @@ public class MultiImageApp extends JFrame {
         JMenuItem absoluteDifferenceMenuItem = new JMenuItem("Absolute Difference");
         absoluteDifferenceMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 DraggableImage secondImage = selectImage("Select the second image for absolute difference:");
                 if (secondImage != null) {
                     try {
@@ -366,6 +477,9 @@ public class MultiImageApp extends JFrame {
         JMenuItem notMenuItem = new JMenuItem("NOT Operation");
         notMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 BufferedImage result = logicalImageProcessor.notOperation(selectedImage.getImage());
                 log.info("NOT operation applied to image");
                 selectedImage.updateImage(result);
@@ -380,6 +494,9 @@ public class MultiImageApp extends JFrame {
             JMenuItem menuItem = new JMenuItem(op + " Operation");
             menuItem.addActionListener(e -> {
                 if (selectedImage != null) {
+                    if (!operationExecutor.checkIdle(selectedImage)) {
+                        return;
+                    }
                     DraggableImage secondImage = selectImage("Select the second image for " + op + " operation:");
                     if (secondImage != null) {
                         try {
@@ -404,6 +521,9 @@ public class MultiImageApp extends JFrame {
         JMenuItem toBinaryMenuItem = new JMenuItem("Convert to Binary Mask");
         toBinaryMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 String input = JOptionPane.showInputDialog(this, "Enter threshold (0-255):");
                 try {
                     int threshold = Integer.parseInt(input);
@@ -419,6 +539,9 @@ public class MultiImageApp extends JFrame {
         JMenuItem toMonochromeMenuItem = new JMenuItem("Convert to Monochrome Mask");
         toMonochromeMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 BufferedImage monochromeImage = logicalImageProcessor.convertToMonochromeMask(selectedImage.getImage());
                 selectedImage.updateImage(monochromeImage);
             } else {
@@ -494,16 +617,17 @@ public class MultiImageApp extends JFrame {
                                 throw new IllegalArgumentException("Invalid border type selected.");
                         }
 
-                        // Apply the Sobel edge detection
-                        BufferedImage sobelImage = imageService.applyDirectionalSobel(
-                                selectedImage.getImage(),
-                                selectedDirection,
-                                borderType,
-                                constantValue
-                        );
-
-                        selectedImage.updateImage(sobelImage);
-                        imagePanel.repaint(); // Refresh the panel to display the updated image
+                        // Apply the Sobel edge detection in the background
+                        BufferedImage source = selectedImage.getImage();
+                        int sobelBorderType = borderType;
+                        int sobelConstantValue = constantValue;
+                        operationExecutor.submit("Sobel Edge Detection", selectedImage,
+                                () -> imageService.applyDirectionalSobel(
+                                        source,
+                                        selectedDirection,
+                                        sobelBorderType,
+                                        sobelConstantValue
+                                ));
 
                     } catch (NumberFormatException ex) {
                         JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -534,8 +658,9 @@ public class MultiImageApp extends JFrame {
                         int p1 = Integer.parseInt(p1Input);
                         int p2 = Integer.parseInt(p2Input);
                         // Wywołujemy SegmentationProcessor
-                        BufferedImage result = segmentationProcessor.doubleThreshold(selectedImage.getImage(), p1, p2);
-                        selectedImage.updateImage(result);
+                        BufferedImage source = selectedImage.getImage();
+                        operationExecutor.submit("Double Threshold", selectedImage,
+                                () -> segmentationProcessor.doubleThreshold(source, p1, p2));
                     } catch (NumberFormatException ex) {
                         JOptionPane.showMessageDialog(this, "Invalid threshold values.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
@@ -546,99 +671,153 @@ public class MultiImageApp extends JFrame {
         });
         segmentationMenu.add(doubleThresholdItem);
 
-        // 2. Otsu Threshold
-        JMenuItem otsuItem = new JMenuItem("Otsu Threshold");
-        otsuItem.addActionListener(e -> {
-            if (selectedImage != null) {
-                BufferedImage result = segmentationProcessor.otsuThreshold(selectedImage.getImage());
-                selectedImage.updateImage(result);
-            } else {
-                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        });
-        segmentationMenu.add(otsuItem);
-
-        // 3. Adaptive Threshold
-        JMenuItem adaptiveItem = new JMenuItem("Adaptive Threshold");
-        adaptiveItem.addActionListener(e -> {
+        JMenuItem multiThresholdItem = new JMenuItem("Multi Threshold");
+        multiThresholdItem.addActionListener(e -> {
             if (selectedImage != null) {
-                String blockSizeStr = JOptionPane.showInputDialog(this, "Enter block size (odd number, e.g. 11):", "11");
-                String cStr = JOptionPane.showInputDialog(this, "Enter constant C (e.g. 2):", "2");
-                if (blockSizeStr != null && cStr != null) {
+                String input = JOptionPane.showInputDialog(this, "Enter thresholds (comma separated, ascending):", "64, 128, 192");
+                if (input != null) {
                     try {
-                        int blockSize = Integer.parseInt(blockSizeStr);
-                        int C = Integer.parseInt(cStr);
-                        BufferedImage result = segmentationProcessor.adaptiveThreshold(selectedImage.getImage(), blockSize, C);
-                        selectedImage.updateImage(result);
+                        String[] parts = input.split(",");
+                        int[] thresholds = new int[parts.length];
+                        for (int i = 0; i < parts.length; i++) {
+                            thresholds[i] = Integer.parseInt(parts[i].trim());
+                        }
+                        BufferedImage source = selectedImage.getImage();
+                        operationExecutor.submit("Multi Threshold", selectedImage,
+                                () -> segmentationProcessor.multiThreshold(source, thresholds));
                     } catch (NumberFormatException ex) {
-                        JOptionPane.showMessageDialog(this, "Invalid blockSize/C.", "Error", JOptionPane.ERROR_MESSAGE);
+                        JOptionPane.showMessageDialog(this, "Invalid threshold values.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
                 }
             } else {
                 JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
-        segmentationMenu.add(adaptiveItem);
+        segmentationMenu.add(multiThresholdItem);
 
-        JMenuItem erosionItem = new JMenuItem("Erosion");
-        erosionItem.addActionListener(e -> {
+        // 2. Otsu Threshold
+        JMenuItem otsuItem = new JMenuItem("Otsu Threshold");
+        otsuItem.addActionListener(e -> {
             if (selectedImage != null) {
-                String shape = chooseStructElementShape();
-                if (shape == null) return; // user canceled
-                BufferedImage result = morphologyProcessor.erode(selectedImage.getImage(), shape);
-                selectedImage.updateImage(result);
+                BufferedImage source = selectedImage.getImage();
+                operationExecutor.submit("Otsu Threshold", selectedImage,
+                        () -> segmentationProcessor.otsuThreshold(source));
             } else {
                 JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
-        morphologyMenu.add(erosionItem);
+        segmentationMenu.add(otsuItem);
 
-        // Dilation
-        JMenuItem dilationItem = new JMenuItem("Dilation");
-        dilationItem.addActionListener(e -> {
+        JMenuItem histogramThresholdItem = new JMenuItem("Multi-level Threshold (Otsu / Kapur / Triangle)");
+        histogramThresholdItem.addActionListener(e -> {
             if (selectedImage != null) {
-                String shape = chooseStructElementShape();
-                if (shape == null) return;
-                BufferedImage result = morphologyProcessor.dilate(selectedImage.getImage(), shape);
-                selectedImage.updateImage(result);
+                String[] methods = {"Otsu", "Kapur", "Triangle"};
+                String method = (String) JOptionPane.showInputDialog(this, "Select method:", "Multi-level Threshold",
+                        JOptionPane.QUESTION_MESSAGE, null, methods, methods[0]);
+                if (method == null) return;
+                HistogramThresholds.Method thresholdMethod = HistogramThresholds.Method.valueOf(method.toUpperCase());
+
+                int classes = 2;
+                if (thresholdMethod != HistogramThresholds.Method.TRIANGLE) {
+                    Integer[] classOptions = {2, 3, 4, 5};
+                    Integer selected = (Integer) JOptionPane.showInputDialog(this, "Number of levels:", "Multi-level Threshold",
+                            JOptionPane.QUESTION_MESSAGE, null, classOptions, classOptions[1]);
+                    if (selected == null) return;
+                    classes = selected;
+                }
+                int classCount = classes;
+                DraggableImage target = selectedImage;
+                BufferedImage source = target.getImage();
+                operationExecutor.submit(method + " Threshold (" + classCount + " levels)", target,
+                        () -> segmentationProcessor.histogramThreshold(source, target.getHistogram(), thresholdMethod, classCount));
             } else {
                 JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
-        morphologyMenu.add(dilationItem);
+        segmentationMenu.add(histogramThresholdItem);
 
-        // Opening
-        JMenuItem openingItem = new JMenuItem("Opening");
-        openingItem.addActionListener(e -> {
+        // 3. Adaptive Threshold
+        JMenuItem adaptiveItem = new JMenuItem("Adaptive Threshold");
+        adaptiveItem.addActionListener(e -> {
             if (selectedImage != null) {
-                String shape = chooseStructElementShape();
-                if (shape == null) return;
-                BufferedImage result = morphologyProcessor.opening(selectedImage.getImage(), shape);
-                selectedImage.updateImage(result);
-            } else {
-                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        });
-        morphologyMenu.add(openingItem);
+                // Gauss z OpenCV albo metody lokalne z obrazu całkowego (koszt niezależny od rozmiaru okna)
+                String[] methods = {"Gaussian (OpenCV)", "Mean - C", "Niblack", "Sauvola", "Bradley"};
+                String method = (String) JOptionPane.showInputDialog(this, "Select adaptive method:", "Adaptive Threshold",
+                        JOptionPane.QUESTION_MESSAGE, null, methods, methods[0]);
+                if (method == null) return;
+
+                if (method.equals(methods[0])) {
+                    String blockSizeStr = JOptionPane.showInputDialog(this, "Enter block size (odd number, e.g. 11):", "11");
+                    String cStr = JOptionPane.showInputDialog(this, "Enter constant C (e.g. 2):", "2");
+                    if (blockSizeStr != null && cStr != null) {
+                        try {
+                            int blockSize = Integer.parseInt(blockSizeStr);
+                            int C = Integer.parseInt(cStr);
+                            BufferedImage source = selectedImage.getImage();
+                            operationExecutor.submit("Adaptive Threshold", selectedImage,
+                                    () -> segmentationProcessor.adaptiveThreshold(source, blockSize, C));
+                        } catch (NumberFormatException ex) {
+                            JOptionPane.showMessageDialog(this, "Invalid blockSize/C.", "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                    return;
+                }
 
-        // Closing
-        JMenuItem closingItem = new JMenuItem("Closing");
-        closingItem.addActionListener(e -> {
-            if (selectedImage != null) {
-                String shape = chooseStructElementShape();
-                if (shape == null) return;
-                BufferedImage result = morphologyProcessor.closing(selectedImage.getImage(), shape);
-                selectedImage.updateImage(result);
+                LocalThreshold.Method localMethod;
+                String parameterPrompt;
+                switch (method) {
+                    case "Mean - C":
+                        localMethod = LocalThreshold.Method.MEAN_C;
+                        parameterPrompt = "Enter constant C:";
+                        break;
+                    case "Niblack":
+                        localMethod = LocalThreshold.Method.NIBLACK;
+                        parameterPrompt = "Enter k (usually negative):";
+                        break;
+                    case "Sauvola":
+                        localMethod = LocalThreshold.Method.SAUVOLA;
+                        parameterPrompt = "Enter k:";
+                        break;
+                    default:
+                        localMethod = LocalThreshold.Method.BRADLEY;
+                        parameterPrompt = "Enter t (fraction below the local mean):";
+                        break;
+                }
+                String windowStr = JOptionPane.showInputDialog(this, "Enter window size (odd number, e.g. 101):", "101");
+                if (windowStr == null) return;
+                String parameterStr = JOptionPane.showInputDialog(this, parameterPrompt,
+                        String.valueOf(localMethod.getDefaultParameter()));
+                if (parameterStr == null) return;
+                try {
+                    int windowSize = Integer.parseInt(windowStr);
+                    double parameter = Double.parseDouble(parameterStr);
+                    BufferedImage source = selectedImage.getImage();
+                    operationExecutor.submit(method + " Threshold", selectedImage,
+                            () -> segmentationProcessor.localThreshold(source, localMethod, windowSize, parameter));
+                } catch (NumberFormatException ex) {
+                    JOptionPane.showMessageDialog(this, "Invalid window size or parameter.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
             } else {
                 JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
-        morphologyMenu.add(closingItem);
+        segmentationMenu.add(adaptiveItem);
+
+        addMorphologyItem(morphologyMenu, "Erosion", MorphologyProcessor.Operation.ERODE);
+        addMorphologyItem(morphologyMenu, "Dilation", MorphologyProcessor.Operation.DILATE);
+        addMorphologyItem(morphologyMenu, "Opening", MorphologyProcessor.Operation.OPEN);
+        addMorphologyItem(morphologyMenu, "Closing", MorphologyProcessor.Operation.CLOSE);
+        addMorphologyItem(morphologyMenu, "Top-hat", MorphologyProcessor.Operation.TOPHAT);
+        addMorphologyItem(morphologyMenu, "Black-hat", MorphologyProcessor.Operation.BLACKHAT);
+        addMorphologyItem(morphologyMenu, "Morphological Gradient", MorphologyProcessor.Operation.GRADIENT);
 
         // Zakładam, że jest w createMenuBar(), obok innych opcji
         JMenuItem convertTo8BitItem = new JMenuItem("Convert to 8-bit Grayscale");
         convertTo8BitItem.addActionListener(e -> {
             if (selectedImage != null) {
+                if (!operationExecutor.checkIdle(selectedImage)) {
+                    return;
+                }
                 BufferedImage converted = convertTo8BitGray(selectedImage.getImage());
                 selectedImage.updateImage(converted);
                 JOptionPane.showMessageDialog(this,
@@ -656,9 +835,21 @@ public class MultiImageApp extends JFrame {
         JMenuItem skeletonItem = new JMenuItem("Skeletonize");
         skeletonItem.addActionListener(e -> {
             if (selectedImage != null) {
-                // Wywołujemy skeletonize z nowej klasy
-                BufferedImage result = skeletonProcessor.skeletonize(selectedImage.getImage());
-                selectedImage.updateImage(result);
+                String[] methods = {"Zhang-Suen thinning", "Guo-Hall thinning", "Morphological skeleton"};
+                String method = (String) JOptionPane.showInputDialog(this, "Select skeletonization method:", "Skeletonize",
+                        JOptionPane.QUESTION_MESSAGE, null, methods, methods[0]);
+                if (method == null) return;
+
+                BufferedImage source = selectedImage.getImage();
+                if (method.equals(methods[2])) {
+                    // Wywołujemy skeletonize z nowej klasy
+                    operationExecutor.submit("Skeletonize", selectedImage, () -> skeletonProcessor.skeletonize(source));
+                } else {
+                    Thinning.Algorithm algorithm = method.equals(methods[0])
+                            ? Thinning.Algorithm.ZHANG_SUEN
+                            : Thinning.Algorithm.GUO_HALL;
+                    operationExecutor.submit("Skeletonize", selectedImage, () -> skeletonProcessor.thin(source, algorithm));
+                }
             } else {
                 JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -668,44 +859,69 @@ public class MultiImageApp extends JFrame {
         extractShapeFeaturesMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
                 try {
-                    // 1. Obliczenie cech kształtu
-                    String features = imageService.calculateShapeFeatures(selectedImage.getImage());
+                    // 1. Obliczenie cech kształtu (największy obiekt)
+                    ShapeFeatures features = imageService.extractShapeFeatures(selectedImage.getImage());
+                    if (features == null) {
+                        JOptionPane.showMessageDialog(this, "No contours found.", "Shape Features",
+                                JOptionPane.INFORMATION_MESSAGE);
+                        return;
+                    }
 
                     // 2. Opcje w oknie dialogowym
-                    Object[] options = {"Save as TXT", "Save as CSV", "Close"};
-                    // Używamy YES_NO_CANCEL_OPTION, aby mieć 3 przyciski
+                    Object[] options = {"Save as TXT", "Save as CSV", "Save all objects as CSV",
+                            "Save all objects (binary columns)", "Close"};
                     int choice = JOptionPane.showOptionDialog(
                             this,
-                            features,
+                            features.describe(),
                             "Shape Features",
-                            JOptionPane.YES_NO_CANCEL_OPTION,
+                            JOptionPane.DEFAULT_OPTION,
                             JOptionPane.INFORMATION_MESSAGE,
                             null,
                             options,
                             options[0]
                     );
 
+                    File downloadsDir = new File(System.getProperty("user.home"), "Downloads");
                     if (choice == 0) {
-                        String userHome = System.getProperty("user.home");
-                        File downloadsDir = new File(userHome, "Downloads");
                         File file = new File(downloadsDir, "wynik.txt");
-
-                        ShapeFeatureExtractor.saveResultsToFile(features, file.getAbsolutePath());
+                        ShapeFeatureExtractor.saveResultsToFile(features, file.toPath());
                         JOptionPane.showMessageDialog(this,
                                 "Features saved to " + file.getAbsolutePath(),
                                 "Saved",
                                 JOptionPane.INFORMATION_MESSAGE);
-                    }
-                    else if (choice == 1) {
-                        String userHome = System.getProperty("user.home");
-                        File downloadsDir = new File(userHome, "Downloads");
+                    } else if (choice == 1) {
+                        // wiersz dopisywany do pliku (nagłówek tylko w nowym pliku); plik o innym
+                        // układzie kolumn jest nadpisywany tylko po potwierdzeniu
                         File file = new File(downloadsDir, "wynik.csv");
-
-                        ShapeFeatureExtractor.saveResultsToCsvFile(features, file.getAbsolutePath());
+                        try (ShapeFeaturesWriter writer = ShapeFeaturesWriter.csv(file.toPath(), true)) {
+                            writer.write(features);
+                        } catch (IllegalArgumentException columnsMismatch) {
+                            int overwrite = JOptionPane.showConfirmDialog(this,
+                                    file.getAbsolutePath() + " has a different column layout. Overwrite it?",
+                                    "Shape Features",
+                                    JOptionPane.YES_NO_OPTION);
+                            if (overwrite != JOptionPane.YES_OPTION) {
+                                return;
+                            }
+                            try (ShapeFeaturesWriter writer = ShapeFeaturesWriter.csv(file.toPath(), false)) {
+                                writer.write(features);
+                            }
+                        }
                         JOptionPane.showMessageDialog(this,
                                 "Features saved to " + file.getAbsolutePath(),
                                 "Saved",
                                 JOptionPane.INFORMATION_MESSAGE);
+                    } else if (choice == 2 || choice == 3) {
+                        boolean columnar = choice == 3;
+                        File file = new File(downloadsDir, columnar ? "wynik.shpf" : "wynik_all.csv");
+                        DraggableImage target = selectedImage;
+                        BufferedImage source = target.getImage();
+                        operationExecutor.submit("Save shape features", target,
+                                () -> imageService.saveAllShapeFeatures(source, file.toPath(), columnar),
+                                count -> JOptionPane.showMessageDialog(this,
+                                        "Features of " + count + " objects saved to " + file.getAbsolutePath(),
+                                        "Saved",
+                                        JOptionPane.INFORMATION_MESSAGE));
                     }
 
                 } catch (Exception ex) {
@@ -721,38 +937,111 @@ public class MultiImageApp extends JFrame {
             }
         });
 
+        // wszystkie obiekty obrazu binarnego - etykiety, pola, środki ciężkości, prostokąty otaczające
+        JMenuItem connectedComponentsMenuItem = new JMenuItem("Label Connected Components");
+        connectedComponentsMenuItem.addActionListener(e -> {
+            if (selectedImage != null) {
+                String[] options = {"8-connectivity", "4-connectivity"};
+                String choice = (String) JOptionPane.showInputDialog(this, "Select connectivity:", "Connected Components",
+                        JOptionPane.QUESTION_MESSAGE, null, options, options[0]);
+                if (choice == null) return;
+                ConnectedComponents.Connectivity connectivity = choice.equals(options[0])
+                        ? ConnectedComponents.Connectivity.EIGHT
+                        : ConnectedComponents.Connectivity.FOUR;
+                DraggableImage target = selectedImage;
+                BufferedImage source = target.getImage();
+                // obraz etykiet i opis powstają w wątku roboczym - na EDT tylko ich wyświetlenie
+                operationExecutor.submit("Connected Components", target, () -> {
+                            ConnectedComponents components = imageService.labelComponents(source, connectivity);
+                            return Map.entry(components.toColorImage(),
+                                    ShapeFeatureExtractor.describeComponents(components, 20));
+                        },
+                        result -> {
+                            target.updateImage(result.getKey());
+                            JOptionPane.showMessageDialog(this,
+                                    result.getValue(),
+                                    "Connected Components",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                        });
+            } else {
+                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+
 
         JMenuItem grabCutMenuItem = new JMenuItem("Apply GrabCut Segmentation");
         grabCutMenuItem.addActionListener(e -> {
             if (selectedImage != null) {
-                try {
-                    Mat inputMat = OpenCVUtils.bufferedImageToMat(selectedImage.getImage());
-                    int x = inputMat.cols() / 4;
-                    int y = inputMat.rows() / 4;
-                    int width = inputMat.cols() / 2;
-                    int height = inputMat.rows() / 2;
-                    Rect rect = new Rect(x, y, width, height);
+                DraggableImage target = selectedImage;
+                BufferedImage source = target.getImage();
+                grabCutTarget = null;
+                operationExecutor.submit("GrabCut", target, () -> {
+                    int x = source.getWidth() / 4;
+                    int y = source.getHeight() / 4;
+                    Rect rect = new Rect(x, y, source.getWidth() / 2, source.getHeight() / 2);
 
                     int iterCount = 5;
 
-                    GrabCutProcessor grabCutProcessor = new GrabCutProcessor();
-                    Mat binaryMask = grabCutProcessor.applyGrabCut(inputMat, rect, iterCount);
-                    Mat foreground = grabCutProcessor.extractForeground(inputMat, binaryMask);
-
-                    BufferedImage segmentedImage = OpenCVUtils.matToBufferedImage(foreground);
-                    selectedImage.updateImage(segmentedImage);
-
+                    GrabCutSession session = new GrabCutSession(source, rect);
+                    replaceGrabCutSession(session);
+                    try {
+                        session.iterate(iterCount);
+                        if (Thread.interrupted()) {
+                            throw new InterruptedException("GrabCut cancelled.");
+                        }
+                        return Map.entry(session, session.extractForeground());
+                    } catch (RuntimeException | InterruptedException ex) {
+                        discardGrabCutSession(session);
+                        throw ex;
+                    }
+                }, result -> {
+                    // w międzyczasie mógł ruszyć inny GrabCut albo obraz mógł zostać zamknięty
+                    if (grabCutSession.get() == result.getKey()) {
+                        if (target.getParent() != null) {
+                            grabCutTarget = target;
+                        } else {
+                            discardGrabCutSession(result.getKey());
+                        }
+                    }
+                    target.updateImage(result.getValue());
+                    grabCutModificationCount = target.getModificationCount();
                     JOptionPane.showMessageDialog(this, "GrabCut applied successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Error applying GrabCut: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                });
             } else {
                 JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
             }
         });
 
+        JMenuItem grabCutMoreMenuItem = new JMenuItem("GrabCut: More Iterations");
+        grabCutMoreMenuItem.addActionListener(e -> {
+            if (selectedImage == null) {
+                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
+            } else if (grabCutTarget == null || grabCutTarget != selectedImage) {
+                JOptionPane.showMessageDialog(this, "Apply GrabCut Segmentation to this image first.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            } else if (grabCutTarget.getModificationCount() != grabCutModificationCount) {
+                // sesja pamięta oryginalne piksele - kolejne iteracje zastąpiłyby późniejsze zmiany obrazu
+                JOptionPane.showMessageDialog(this,
+                        "The image has changed since GrabCut was applied. Apply GrabCut Segmentation again.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+            } else {
+                DraggableImage target = selectedImage;
+                GrabCutSession session = grabCutSession.get();
+                operationExecutor.submit("GrabCut", target, () -> {
+                    session.iterate(2);
+                    return session.extractForeground();
+                }, segmentedImage -> {
+                    target.updateImage(segmentedImage);
+                    if (grabCutTarget == target) {
+                        grabCutModificationCount = target.getModificationCount();
+                    }
+                });
+            }
+        });
+
 // Dodanie do menu "Operations"
         operationsMenu.add(grabCutMenuItem);
+        operationsMenu.add(grabCutMoreMenuItem);
 
 
 
@@ -774,6 +1063,7 @@ public class MultiImageApp extends JFrame {
 
 // Dodanie nowego elementu do istniejącego menu
         operationsMenu.add(extractShapeFeaturesMenuItem);
+        operationsMenu.add(connectedComponentsMenuItem);
 
 
         morphologyMenu.add(skeletonItem);
@@ -796,8 +1086,10 @@ public class MultiImageApp extends JFrame {
         pointOperationsMenu.add(quantizeMenuItem);
         pointOperationsMenu.add(negateMenuItem);
         pointOperationsMenu.add(thresholdMenuItem);
+        pointOperationsMenu.add(pointPipelineMenuItem);
         mathMenu.add(scalarOperationMenuItem);
         mathMenu.add(addImagesMenuItem);
+        mathMenu.add(combineAllImagesMenuItem);
         mathMenu.add(absoluteDifferenceMenuItem);
         mathMenu.add(notMenuItem);
         mathMenu.add(toBinaryMenuItem);
@@ -814,83 +1106,106 @@ public class MultiImageApp extends JFrame {
 
     private void addMedianFilterMenu(JMenu menu) {
         JMenuItem medianFilterItem = new JMenuItem("Apply Median Filter");
-        medianFilterItem.addActionListener(e -> {
-            if (selectedImage == null) {
-                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
-                return;
-            }
+        medianFilterItem.addActionListener(e -> applyRankFilter(false));
 
-            // Wybór rozmiaru jądra
-            String[] kernelOptions = {"3x3", "5x5", "7x7", "9x9"};
-            String kernelSizeOption = (String) JOptionPane.showInputDialog(
-                    this,
-                    "Select kernel size:",
-                    "Median Filter",
-                    JOptionPane.PLAIN_MESSAGE,
-                    null,
-                    kernelOptions,
-                    kernelOptions[0]
-            );
+        // Minimum, maksimum lub dowolny percentyl w oknie dowolnego rozmiaru
+        JMenuItem rankFilterItem = new JMenuItem("Apply Rank Filter (Percentile)");
+        rankFilterItem.addActionListener(e -> applyRankFilter(true));
 
-            if (kernelSizeOption == null) return;
+        menu.add(medianFilterItem);
+        menu.add(rankFilterItem);
+    }
 
-            int kernelSize = Integer.parseInt(kernelSizeOption.split("x")[0]);
+    private void applyRankFilter(boolean askPercentile) {
+        if (selectedImage == null) {
+            JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-            // Wybór metody uzupełniania marginesów
-            String[] borderOptions = {"Constant", "Reflect", "Replicate"};
-            String borderType = (String) JOptionPane.showInputDialog(
-                    this,
-                    "Select border type:",
-                    "Border Fill",
-                    JOptionPane.PLAIN_MESSAGE,
-                    null,
-                    borderOptions,
-                    borderOptions[0]
-            );
+        // Wybór rozmiaru jądra (koszt filtra nie zależy od rozmiaru)
+        String[] kernelOptions = {"3x3", "5x5", "7x7", "9x9", "15x15", "21x21", "25x25"};
+        String kernelSizeOption = (String) JOptionPane.showInputDialog(
+                this,
+                "Select kernel size:",
+                askPercentile ? "Rank Filter" : "Median Filter",
+                JOptionPane.PLAIN_MESSAGE,
+                null,
+                kernelOptions,
+                kernelOptions[0]
+        );
 
-            if (borderType == null) return;
+        if (kernelSizeOption == null) return;
 
-            int borderTypeCode;
-            int constantValue = 0;
+        int kernelSize = Integer.parseInt(kernelSizeOption.split("x")[0]);
 
-            switch (borderType.toLowerCase()) {
-                case "constant":
-                    borderTypeCode = Core.BORDER_CONSTANT;
-                    String input = JOptionPane.showInputDialog(this, "Enter constant value (0-255):", "128");
-                    try {
-                        constantValue = Integer.parseInt(input);
-                        if (constantValue < 0 || constantValue > 255) {
-                            throw new NumberFormatException();
-                        }
-                    } catch (NumberFormatException ex) {
-                        JOptionPane.showMessageDialog(this, "Invalid constant value. Please enter a number between 0 and 255.", "Error", JOptionPane.ERROR_MESSAGE);
-                        return;
-                    }
-                    break;
+        // Percentyl: 0 - minimum, 50 - mediana, 100 - maksimum
+        double percentile = 0.5;
+        if (askPercentile) {
+            String percentileInput = JOptionPane.showInputDialog(this, "Enter percentile (0 = min, 50 = median, 100 = max):", "50");
+            if (percentileInput == null) return;
+            try {
+                percentile = Double.parseDouble(percentileInput) / 100.0;
+                if (percentile < 0 || percentile > 1) {
+                    throw new NumberFormatException();
+                }
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "Invalid percentile. Please enter a number between 0 and 100.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
 
-                case "reflect":
-                    borderTypeCode = Core.BORDER_REFLECT;
-                    break;
+        // Wybór metody uzupełniania marginesów
+        String[] borderOptions = {"Constant", "Reflect", "Replicate"};
+        String borderType = (String) JOptionPane.showInputDialog(
+                this,
+                "Select border type:",
+                "Border Fill",
+                JOptionPane.PLAIN_MESSAGE,
+                null,
+                borderOptions,
+                borderOptions[0]
+        );
 
-                case "replicate":
-                    borderTypeCode = Core.BORDER_REPLICATE;
-                    break;
+        if (borderType == null) return;
 
-                default:
-                    JOptionPane.showMessageDialog(this, "Invalid border type selected.", "Error", JOptionPane.ERROR_MESSAGE);
+        int borderTypeCode;
+        int constantValue = 0;
+
+        switch (borderType.toLowerCase()) {
+            case "constant":
+                borderTypeCode = Core.BORDER_CONSTANT;
+                String input = JOptionPane.showInputDialog(this, "Enter constant value (0-255):", "128");
+                try {
+                    constantValue = Integer.parseInt(input);
+                    if (constantValue < 0 || constantValue > 255) {
+                        throw new NumberFormatException();
+                    }
+                } catch (NumberFormatException ex) {
+                    JOptionPane.showMessageDialog(this, "Invalid constant value. Please enter a number between 0 and 255.", "Error", JOptionPane.ERROR_MESSAGE);
                     return;
-            }
+                }
+                break;
 
-            // Aplikacja filtra medianowego
-            try {
-                BufferedImage resultImage = imageService.applyMedianFilter(selectedImage.getImage(), kernelSize, borderTypeCode);
-                selectedImage.updateImage(resultImage);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Error applying median filter: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
-        });
+            case "reflect":
+                borderTypeCode = Core.BORDER_REFLECT;
+                break;
 
-        menu.add(medianFilterItem);
+            case "replicate":
+                borderTypeCode = Core.BORDER_REPLICATE;
+                break;
+
+            default:
+                JOptionPane.showMessageDialog(this, "Invalid border type selected.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+        }
+
+        // Aplikacja filtra medianowego / rangowego
+        BufferedImage source = selectedImage.getImage();
+        int rankBorder = borderTypeCode;
+        int rankConstant = constantValue;
+        double rankPercentile = percentile;
+        operationExecutor.submit(askPercentile ? "rank filter" : "median filter", selectedImage,
+                () -> imageService.applyRankFilter(source, kernelSize, rankPercentile, rankBorder, rankConstant));
     }
 
 
@@ -901,6 +1216,9 @@ public class MultiImageApp extends JFrame {
                 JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
+            if (!operationExecutor.checkIdle(selectedImage)) {
+                return;
+            }
 
             try {
                 // 1. Wybór kierunku Prewitta (np. "East (E)")
@@ -968,8 +1286,7 @@ public class MultiImageApp extends JFrame {
                 }
 
                 // 3. Uruchom Prewitt
-                PrewittEdgeDetector detector = new PrewittEdgeDetector();
-                BufferedImage processedImage = detector.applyPrewittEdgeDetection(
+                BufferedImage processedImage = imageService.applyPrewittEdgeDetection(
                         selectedImage.getImage(),  // oryginalny obraz
                         directionKey,             // np. "E", "SE", "S", ...
                         borderType,               // BORDER_CONSTANT, etc.
@@ -997,6 +1314,78 @@ public class MultiImageApp extends JFrame {
         smoothingMenu.add(prewittEdgeDetectionItem);
     }
 
+    /**
+     * Mapa krawędzi z ośmiu masek kierunkowych (Sobel lub Prewitt) liczonych w jednym przejściu:
+     * maksymalna odpowiedź, moduł gradientu albo mapa kierunku maksimum.
+     */
+    private void addCompassEdgeMapMenu(JMenu smoothingMenu) {
+        JMenuItem compassItem = new JMenuItem("Compass Edge Map (8 directions)");
+        compassItem.addActionListener(e -> {
+            if (selectedImage == null) {
+                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+
+            String[] operators = {"Sobel", "Prewitt"};
+            String operator = (String) JOptionPane.showInputDialog(this, "Select operator:", "Compass Edge Map",
+                    JOptionPane.QUESTION_MESSAGE, null, operators, operators[0]);
+            if (operator == null) return;
+
+            String[] outputs = {"Maximum response", "Gradient magnitude", "Direction map"};
+            String output = (String) JOptionPane.showInputDialog(this, "Select output:", "Compass Edge Map",
+                    JOptionPane.QUESTION_MESSAGE, null, outputs, outputs[0]);
+            if (output == null) return;
+
+            String[] borderOptions = {"Constant", "Reflect", "Replicate"};
+            String selectedBorder = (String) JOptionPane.showInputDialog(this, "Select border type:", "Border Type",
+                    JOptionPane.QUESTION_MESSAGE, null, borderOptions, "Reflect");
+            if (selectedBorder == null) return;
+
+            int borderType;
+            int constantValue = 0;
+            switch (selectedBorder.toLowerCase()) {
+                case "constant":
+                    borderType = Core.BORDER_CONSTANT;
+                    String constantValueInput = JOptionPane.showInputDialog(this, "Enter constant value (0-255):", "128");
+                    if (constantValueInput == null) return;
+                    try {
+                        constantValue = Integer.parseInt(constantValueInput);
+                        if (constantValue < 0 || constantValue > 255) {
+                            throw new NumberFormatException();
+                        }
+                    } catch (NumberFormatException ex) {
+                        JOptionPane.showMessageDialog(this, "Invalid constant value. Please enter a number between 0 and 255.", "Error", JOptionPane.ERROR_MESSAGE);
+                        return;
+                    }
+                    break;
+                case "reflect":
+                    borderType = Core.BORDER_REFLECT;
+                    break;
+                default:
+                    borderType = Core.BORDER_REPLICATE;
+                    break;
+            }
+
+            BufferedImage source = selectedImage.getImage();
+            CompassGradient.Family family = "Sobel".equals(operator)
+                    ? CompassGradient.Family.SOBEL
+                    : CompassGradient.Family.PREWITT;
+            int compassConstant = constantValue;
+            operationExecutor.submit("compass edge map", selectedImage, () -> {
+                CompassGradient.Result result = imageService.applyCompassGradient(source, family, borderType, compassConstant);
+                switch (output) {
+                    case "Gradient magnitude":
+                        return result.toMagnitudeImage();
+                    case "Direction map":
+                        return result.toDirectionImage();
+                    default:
+                        return result.toMaxResponseImage();
+                }
+            });
+        });
+        smoothingMenu.add(compassItem);
+    }
+
     /**
      * Metoda pomocnicza: zamienia np. "East (E)" -> "E", "South (S)" -> "S" itp.
      */
@@ -1071,6 +1460,7 @@ public class MultiImageApp extends JFrame {
 
         // Additional methods (if implemented elsewhere)
         addPrewittEdgeDetectionMenu(smoothingMenu);
+        addCompassEdgeMapMenu(smoothingMenu);
 //        addBorderFillMenu(smoothingMenu);
         addMedianFilterMenu(smoothingMenu);
         addCannyEdgeDetectionMenu(smoothingMenu);
@@ -1085,7 +1475,7 @@ public class MultiImageApp extends JFrame {
         }
 
         try {
-            int k = 1; // Default value for `k` (only used for weighted_average)
+            int k = 1; // Default value for `k` (weight for weighted_average, kernel size for gaussian)
 
             // Prompt the user for the weight `k` only if the method is "weighted_average"
             if ("weighted_average".equalsIgnoreCase(method)) {
@@ -1094,6 +1484,15 @@ public class MultiImageApp extends JFrame {
                 if (k <= 0) {
                     throw new IllegalArgumentException("Value of k must be positive.");
                 }
+            } else if ("gaussian".equalsIgnoreCase(method)) {
+                String sizeInput = JOptionPane.showInputDialog(this, "Enter kernel size (odd number, e.g. 3 or 31):", "3");
+                if (sizeInput == null) {
+                    return;
+                }
+                k = Integer.parseInt(sizeInput);
+                if (k <= 0 || k % 2 == 0) {
+                    throw new IllegalArgumentException("Kernel size must be a positive odd number.");
+                }
             }
 
             // Prompt the user to select the border type
@@ -1135,9 +1534,12 @@ public class MultiImageApp extends JFrame {
             }
 
             // Apply the selected smoothing method
-            BufferedImage smoothedImage = imageService.applySmoothing(selectedImage.getImage(), method, k, borderType, constantValue);
-            selectedImage.updateImage(smoothedImage);
-            imagePanel.repaint(); // Refresh the panel to display the updated image
+            BufferedImage source = selectedImage.getImage();
+            int smoothingBorder = borderType;
+            int smoothingConstant = constantValue;
+            int smoothingParameter = k;
+            operationExecutor.submit("smoothing", selectedImage,
+                    () -> imageService.applySmoothing(source, method, smoothingParameter, smoothingBorder, smoothingConstant));
 
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -1156,43 +1558,17 @@ public class MultiImageApp extends JFrame {
                 return;
             }
 
-            try {
-                String threshold1Input = JOptionPane.showInputDialog(this, "Enter threshold 1 (low threshold):", "100");
-                double threshold1 = Double.parseDouble(threshold1Input);
-
-                String threshold2Input = JOptionPane.showInputDialog(this, "Enter threshold 2 (high threshold):", "200");
-                double threshold2 = Double.parseDouble(threshold2Input);
-
-                String[] apertureOptions = {"3", "5", "7"};
-                String apertureInput = (String) JOptionPane.showInputDialog(
-                        this,
-                        "Select aperture size (odd number):",
-                        "Aperture Size",
-                        JOptionPane.PLAIN_MESSAGE,
-                        null,
-                        apertureOptions,
-                        "3"
-                );
-
-                if (apertureInput == null) return;
-                int apertureSize = Integer.parseInt(apertureInput);
-
-                int l2GradientOption = JOptionPane.showConfirmDialog(
-                        this,
-                        "Use L2 Gradient?",
-                        "L2 Gradient",
-                        JOptionPane.YES_NO_OPTION
-                );
-
-                boolean l2Gradient = l2GradientOption == JOptionPane.YES_OPTION;
-
-                BufferedImage resultImage = imageService.applyCanny(selectedImage.getImage(), threshold1, threshold2, apertureSize, l2Gradient);
-                selectedImage.updateImage(resultImage);
-
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(this, "Invalid input. Please enter numeric values.", "Error", JOptionPane.ERROR_MESSAGE);
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(this, "Error applying Canny Edge Detection: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            // progi dobierane interaktywnie - gradienty są liczone raz dla obrazu i maski
+            DraggableImage target = selectedImage;
+            CannyDialog dialog = new CannyDialog(this, target.getImage(), imageService);
+            dialog.setVisible(true);
+
+            // histereza dla zatwierdzonych progów poza EDT, jak pozostałe operacje
+            CannySession session = dialog.getAcceptedSession();
+            if (session != null) {
+                double low = dialog.getAcceptedLowThreshold();
+                double high = dialog.getAcceptedHighThreshold();
+                operationExecutor.submit("Canny", target, () -> session.edges(low, high));
             }
         });
 
@@ -1347,16 +1723,17 @@ public class MultiImageApp extends JFrame {
                     throw new IllegalArgumentException("Invalid border type selected.");
             }
 
-            // Wywołanie logiki przetwarzania
-            BufferedImage sharpenedImage = new LaplacianSharpeningProcessor().applyLaplacianSharpening(
-                    selectedImage.getImage(),
-                    mask,
-                    borderType,
-                    constantValue
-            );
-
-            selectedImage.updateImage(sharpenedImage);
-            imagePanel.repaint(); // Odśwież panel obrazu
+            // Wywołanie logiki przetwarzania w tle
+            BufferedImage source = selectedImage.getImage();
+            int sharpenBorderType = borderType;
+            int sharpenConstantValue = constantValue;
+            operationExecutor.submit("Laplacian Sharpening", selectedImage,
+                    () -> new LaplacianSharpeningProcessor().applyLaplacianSharpening(
+                            source,
+                            mask,
+                            sharpenBorderType,
+                            sharpenConstantValue
+                    ));
 
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Invalid input. Please enter a valid number.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -1414,7 +1791,7 @@ public class MultiImageApp extends JFrame {
         imagePanel.repaint();
     }
 
-    private void generateHistogram(BufferedImage image) {
+    private void generateHistogram(DraggableImage draggableImage) {
         // Tworzenie zależności dla HistogramPanel
         LUTGenerator lutGenerator = new LUTGenerator();
         HistogramDataGenerator dataGenerator = new HistogramDataGenerator();
@@ -1422,7 +1799,8 @@ public class MultiImageApp extends JFrame {
 
         // Inicjalizacja HistogramPanel z wymaganymi zależnościami
         HistogramPanel histogramPanel = new HistogramPanel(lutGenerator, dataGenerator, drawer);
-        histogramPanel.setImage(image);
+        // histogram z pamięci podręcznej obrazu - liczony ponownie tylko po zmianie obrazu
+        histogramPanel.setImage(draggableImage.getImage(), draggableImage.getHistogram());
 
         // Tworzenie i konfiguracja okna dla histogramu
         JFrame histogramFrame = new JFrame("Histogram");
@@ -1436,14 +1814,68 @@ public class MultiImageApp extends JFrame {
 
 
     private void applyLinearStretch(DraggableImage draggableImage, BufferedImage image, boolean withClipping, double clippingPercentage) {
-        imageService.applyLinearStretch(image, withClipping, clippingPercentage);
-        log.info("Appling linear stretch");
-        draggableImage.updateImage(image);
+        // histogram pobierany na EDT, a rozciąganie działa na kopii - wyświetlany obraz zmienia się
+        // dopiero w updateImage po zakończeniu operacji (anulowanie zostawia go bez zmian)
+        ImageHistogram histogram = draggableImage.getHistogram();
+        operationExecutor.submit("linear stretch", draggableImage, () -> {
+            log.info("Appling linear stretch");
+            BufferedImage result = imageService.duplicateImage(image);
+            imageService.applyLinearStretch(result, histogram, withClipping, clippingPercentage);
+            return result;
+        });
     }
 
     private void applyHistogramEqualization(DraggableImage draggableImage, BufferedImage image) {
-        imageService.applyHistogramEqualization(image);
-        draggableImage.updateImage(image);
+        ImageHistogram histogram = draggableImage.getHistogram();
+        operationExecutor.submit("histogram equalization", draggableImage, () -> {
+            BufferedImage result = imageService.duplicateImage(image);
+            imageService.applyHistogramEqualization(result, histogram);
+            return result;
+        });
+    }
+
+    /**
+     * Ustawia nową sesję GrabCut i zamyka poprzednią (zwolnienie pamięci natywnej ROI i piramidy).
+     */
+    private void replaceGrabCutSession(GrabCutSession session) {
+        GrabCutSession previous = grabCutSession.getAndSet(session);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Zamyka sesję nieudanej lub anulowanej operacji, o ile nie zastąpiła jej już inna.
+     */
+    private void discardGrabCutSession(GrabCutSession session) {
+        grabCutSession.compareAndSet(session, null);
+        session.close();
+    }
+
+    /**
+     * Wywoływane przez DraggableImage po zamknięciu obrazu - anuluje jego operację w tle i zwalnia związaną z nim sesję GrabCut,
+     * a po zamknięciu ostatniego obrazu także wspólną pulę macierzy (MatArena).
+     */
+    public void imageClosed(DraggableImage image) {
+        operationExecutor.cancel(image);
+        if (grabCutTarget == image) {
+            grabCutTarget = null;
+            replaceGrabCutSession(null);
+        }
+        for (Component component : imagePanel.getComponents()) {
+            if (component instanceof DraggableImage) {
+                return;
+            }
+        }
+        // ostatni obraz zamknięty - macierze robocze z puli nie będą już potrzebne
+        MatArena.clearSharedPool();
+    }
+
+    /**
+     * Czy obraz można zmienić bezpośrednio na EDT (nie trwa na nim operacja w tle).
+     */
+    public boolean checkIdle(DraggableImage image) {
+        return operationExecutor.checkIdle(image);
     }
 
     public void setSelectedImage(DraggableImage selectedImage) {
@@ -1550,8 +1982,26 @@ public class MultiImageApp extends JFrame {
         return edgeDetectionMenu;
     }
 
-    private String chooseStructElementShape() {
-        String[] shapes = {"Rectangle", "Cross"};
+    private void addMorphologyItem(JMenu morphologyMenu, String name, MorphologyProcessor.Operation operation) {
+        JMenuItem item = new JMenuItem(name);
+        item.addActionListener(e -> {
+            if (selectedImage != null) {
+                StructuringElement element = chooseStructuringElement();
+                if (element == null) return; // user canceled
+                BufferedImage source = selectedImage.getImage();
+                operationExecutor.submit(name, selectedImage, () -> morphologyProcessor.apply(source, operation, element));
+            } else {
+                JOptionPane.showMessageDialog(this, "No image selected.", "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+        morphologyMenu.add(item);
+    }
+
+    /**
+     * Kształt i rozmiar elementu strukturalnego (koszt odcinków i dysku nie zależy od rozmiaru).
+     */
+    private StructuringElement chooseStructuringElement() {
+        String[] shapes = {"Rectangle", "Cross", "Line 0°", "Line 45°", "Line 90°", "Line 135°", "Disk"};
         String shape = (String) JOptionPane.showInputDialog(
                 this,
                 "Select structuring element shape:",
@@ -1565,7 +2015,31 @@ public class MultiImageApp extends JFrame {
             // user cancelled
             return null;
         }
-        return shape.toLowerCase();
+
+        String prompt = shape.equals("Disk") ? "Enter disk radius:" : "Enter size (odd number, e.g. 3):";
+        String sizeInput = JOptionPane.showInputDialog(this, prompt, shape.equals("Disk") ? "5" : "3");
+        if (sizeInput == null) {
+            return null;
+        }
+        try {
+            int size = Integer.parseInt(sizeInput.trim());
+            switch (shape) {
+                case "Rectangle":
+                    return StructuringElement.rectangle(size, size);
+                case "Cross":
+                    return StructuringElement.cross(size);
+                case "Disk":
+                    return StructuringElement.disk(size);
+                default:
+                    int angle = Integer.parseInt(shape.substring("Line ".length(), shape.length() - 1));
+                    return StructuringElement.line(size, angle);
+            }
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid size.", "Error", JOptionPane.ERROR_MESSAGE);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        return null;
     }
 
     private BufferedImage convertTo8BitGray(BufferedImage source) {
@@ -0,0 +1,194 @@
+package org.example.appinterface;
+
+import lombok.extern.log4j.Log4j2;
+import org.example.DraggableImage;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Wykonywanie operacji na obrazach w tle (poza EDT).
+ * Każdy obraz może mieć w danej chwili jedną operację, różne obrazy są przetwarzane równolegle.
+ * Wynik jest przekazywany na EDT, stan operacji pokazuje pasek statusu (getStatusComponent).
+ * Anulowanie przerywa wątek i odrzuca wynik - obraz pozostaje bez zmian.
+ * Metody submit / cancelAll wywołujemy na EDT.
+ */
+@Log4j2
+public class OperationExecutor {
+
+    private final Component parent;
+    private final ExecutorService pool;
+    private final Map<DraggableImage, RunningOperation> running = new LinkedHashMap<>();
+
+    private final JPanel statusPanel;
+    private final JLabel statusLabel;
+    private final JProgressBar progressBar;
+    private final JButton cancelButton;
+
+    public OperationExecutor(Component parent) {
+        this.parent = parent;
+        AtomicInteger threadCount = new AtomicInteger();
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "image-operation-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        statusLabel = new JLabel();
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setPreferredSize(new Dimension(120, progressBar.getPreferredSize().height));
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> cancelAll());
+
+        statusPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        statusPanel.add(statusLabel);
+        statusPanel.add(progressBar);
+        statusPanel.add(cancelButton);
+        updateStatus();
+    }
+
+    /**
+     * Panel z opisem bieżących operacji, paskiem postępu i przyciskiem anulowania.
+     */
+    public JComponent getStatusComponent() {
+        return statusPanel;
+    }
+
+    /**
+     * Uruchamia operację zwracającą nowy obraz; wynik trafia do target.updateImage na EDT.
+     */
+    public boolean submit(String name, DraggableImage target, Callable<BufferedImage> task) {
+        return submit(name, target, task, target::updateImage);
+    }
+
+    /**
+     * Uruchamia operację w tle; onResult jest wywoływane na EDT, jeżeli operacja nie została anulowana.
+     * Zwraca false, gdy obraz jest jeszcze przetwarzany przez inną operację.
+     */
+    public <T> boolean submit(String name, DraggableImage target, Callable<T> task, Consumer<T> onResult) {
+        if (!checkIdle(target)) {
+            return false;
+        }
+
+        FutureTask<T> future = new FutureTask<>(task) {
+            @Override
+            protected void done() {
+                SwingUtilities.invokeLater(() -> finish(name, target, this, onResult));
+            }
+        };
+        running.put(target, new RunningOperation(name, future));
+        log.info("Starting {} on {}", name, target);
+        updateStatus();
+        pool.execute(future);
+        return true;
+    }
+
+    public boolean isBusy(DraggableImage target) {
+        return running.containsKey(target);
+    }
+
+    /**
+     * Sprawdzenie przed zmianą obrazu bezpośrednio na EDT - wynik trwającej operacji nadpisałby tę zmianę.
+     * Zwraca false (i pokazuje komunikat), gdy obraz jest jeszcze przetwarzany.
+     */
+    public boolean checkIdle(DraggableImage target) {
+        RunningOperation operation = running.get(target);
+        if (operation == null) {
+            return true;
+        }
+        JOptionPane.showMessageDialog(parent,
+                "Image " + target + " is still being processed (" + operation.name + ").",
+                "Busy", JOptionPane.WARNING_MESSAGE);
+        return false;
+    }
+
+    /**
+     * Anuluje operację na danym obrazie, np. po jego zamknięciu.
+     */
+    public void cancel(DraggableImage target) {
+        RunningOperation operation = running.get(target);
+        if (operation != null) {
+            operation.future.cancel(true);
+        }
+    }
+
+    /**
+     * Anuluje wszystkie trwające operacje.
+     */
+    public void cancelAll() {
+        List<RunningOperation> operations = new ArrayList<>(running.values());
+        for (RunningOperation operation : operations) {
+            operation.future.cancel(true);
+        }
+    }
+
+    public void shutdown() {
+        cancelAll();
+        pool.shutdownNow();
+    }
+
+    private <T> void finish(String name, DraggableImage target, FutureTask<T> future, Consumer<T> onResult) {
+        RunningOperation operation = running.get(target);
+        if (operation != null && operation.future == future) {
+            running.remove(target);
+        }
+        updateStatus();
+
+        try {
+            T result = future.get();
+            log.info("Finished {} on {}", name, target);
+            onResult.accept(result);
+        } catch (CancellationException e) {
+            log.info("Cancelled {} on {}", name, target);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.warn("{} on {} failed", name, target, cause);
+            JOptionPane.showMessageDialog(parent,
+                    "Error applying " + name + ": " + cause.getMessage(),
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void updateStatus() {
+        int count = running.size();
+        if (count == 0) {
+            statusLabel.setText("");
+        } else if (count == 1) {
+            Map.Entry<DraggableImage, RunningOperation> entry = running.entrySet().iterator().next();
+            statusLabel.setText(entry.getValue().name + ": " + entry.getKey());
+        } else {
+            statusLabel.setText(count + " operations running");
+        }
+        progressBar.setVisible(count > 0);
+        cancelButton.setVisible(count > 0);
+        statusPanel.revalidate();
+        statusPanel.repaint();
+    }
+
+    private static final class RunningOperation {
+        private final String name;
+        private final FutureTask<?> future;
+
+        private RunningOperation(String name, FutureTask<?> future) {
+            this.name = name;
+            this.future = future;
+        }
+    }
+}
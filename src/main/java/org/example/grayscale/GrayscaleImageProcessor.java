@@ -1,10 +1,17 @@
 package org.example.grayscale;
 
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
 import java.awt.image.BufferedImage;
+import java.util.function.IntUnaryOperator;
 
 /*
 redukcja poziomów szarości przez powtórną kwantyzację z liczbą poziomów
 szarości wskazaną przez użytkownika,
+
+Wszystkie operacje działają na kanale 0 obrazu wejściowego, na surowej tablicy bajtów
+(PointKernels), równolegle dla pasów wierszy (ParallelRows).
  */
 public class GrayscaleImageProcessor {
 
@@ -20,14 +27,15 @@ public class GrayscaleImageProcessor {
         int width = image.getWidth();
         int height = image.getHeight();
 
-        BufferedImage negatedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRaster().getSample(x, y, 0);
-                int negatedPixel = 255 - pixel;
-                negatedImage.getRaster().setSample(x, y, 0, negatedPixel);
-            }
+        BufferedImage negatedImage;
+        if (hasByteSamples(image)) {
+            byte[] src = RasterBytes.grayBytes(image);
+            negatedImage = RasterBytes.newGray(width, height);
+            byte[] dst = RasterBytes.denseBytes(negatedImage);
+            ParallelRows.forEachStrip(width, height,
+                    (fromRow, toRow) -> PointKernels.negate(src, dst, fromRow * width, toRow * width));
+        } else {
+            negatedImage = mapSamples(image, pixel -> 255 - pixel);
         }
         String string = image.toString();
         System.out.println("Image negation: " + string);
@@ -46,19 +54,17 @@ public class GrayscaleImageProcessor {
             throw new IllegalArgumentException("Number of levels must be between 2 and 256.");
         }
 
+        // TYPE_BYTE_GRAY ma zawsze próbki 8-bitowe - ścieżka mapSamples nie jest tu potrzebna
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage quantizedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage quantizedImage = RasterBytes.newGray(width, height);
 
         int step = 256 / levels;
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRaster().getSample(x, y, 0);
-                int quantizedPixel = (pixel / step) * step;
-                quantizedImage.getRaster().setSample(x, y, 0, quantizedPixel);
-            }
-        }
+        byte[] src = RasterBytes.grayBytes(image);
+        byte[] dst = RasterBytes.denseBytes(quantizedImage);
+        ParallelRows.forEachStrip(width, height,
+                (fromRow, toRow) -> PointKernels.quantize(src, dst, fromRow * width, toRow * width, step));
 
         return quantizedImage;
     }
@@ -66,15 +72,15 @@ public class GrayscaleImageProcessor {
     public BufferedImage binarizeImage(BufferedImage image, int threshold) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage binarizedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRaster().getSample(x, y, 0);
-                int binaryPixel = (pixel > threshold) ? 255 : 0;
-                binarizedImage.getRaster().setSample(x, y, 0, binaryPixel);
-            }
+        if (!hasByteSamples(image)) {
+            return mapSamples(image, pixel -> (pixel > threshold) ? 255 : 0);
         }
+        BufferedImage binarizedImage = RasterBytes.newGray(width, height);
+
+        byte[] src = RasterBytes.grayBytes(image);
+        byte[] dst = RasterBytes.denseBytes(binarizedImage);
+        ParallelRows.forEachStrip(width, height,
+                (fromRow, toRow) -> PointKernels.binarize(src, dst, fromRow * width, toRow * width, threshold));
 
         return binarizedImage;
     }
@@ -85,16 +91,41 @@ public class GrayscaleImageProcessor {
     public BufferedImage thresholdWithGrayLevels(BufferedImage image, int threshold) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage thresholdedImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        if (!hasByteSamples(image)) {
+            return mapSamples(image, pixel -> (pixel > threshold) ? pixel : 0);
+        }
+        BufferedImage thresholdedImage = RasterBytes.newGray(width, height);
+
+        byte[] src = RasterBytes.grayBytes(image);
+        byte[] dst = RasterBytes.denseBytes(thresholdedImage);
+        ParallelRows.forEachStrip(width, height,
+                (fromRow, toRow) -> PointKernels.thresholdKeep(src, dst, fromRow * width, toRow * width, threshold));
+
+        return thresholdedImage;
+    }
 
+    /**
+     * Kanał 0 mieści się w bajcie - można pracować na tablicy bajtów.
+     */
+    private boolean hasByteSamples(BufferedImage image) {
+        return image.getSampleModel().getSampleSize(0) <= 8;
+    }
+
+    /**
+     * Ścieżka dla obrazów o próbkach szerszych niż 8 bitów (np. TYPE_USHORT_GRAY) - piksel po pikselu.
+     */
+    private BufferedImage mapSamples(BufferedImage image, IntUnaryOperator operation) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage result = RasterBytes.newGray(width, height);
+        int[] row = new int[width];
         for (int y = 0; y < height; y++) {
+            image.getRaster().getSamples(0, y, width, 1, 0, row);
             for (int x = 0; x < width; x++) {
-                int pixel = image.getRaster().getSample(x, y, 0);
-                int grayLevelPixel = (pixel > threshold) ? pixel : 0;
-                thresholdedImage.getRaster().setSample(x, y, 0, grayLevelPixel);
+                row[x] = operation.applyAsInt(row[x]);
             }
+            result.getRaster().setSamples(0, y, width, 1, 0, row);
         }
-
-        return thresholdedImage;
+        return result;
     }
 }
@@ -0,0 +1,131 @@
+package org.example.grayscale;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Arrays;
+
+/**
+ * Operacje punktowe na surowych tablicach bajtów obrazów 8-bitowych.
+ * Zakres [from, to) to indeksy pikseli w tablicy - wywołujący dzieli obraz na pasy wierszy
+ * (ParallelRows), a każdy pas jest przetwarzany przez jedną z metod poniżej.
+ * Jeżeli moduł jdk.incubator.vector jest dostępny (--add-modules jdk.incubator.vector),
+ * używane są wersje wektorowe, w przeciwnym razie zwykłe pętle skalarne. Wynik jest identyczny.
+ */
+@Log4j2
+public final class PointKernels {
+
+    private static final boolean VECTOR = vectorApiAvailable();
+
+    private PointKernels() {
+    }
+
+    /**
+     * dst[i] = 255 - src[i]
+     */
+    public static void negate(byte[] src, byte[] dst, int from, int to) {
+        int i = VECTOR ? VectorPointKernels.negate(src, dst, from, to) : from;
+        for (; i < to; i++) {
+            dst[i] = (byte) ~src[i];
+        }
+    }
+
+    /**
+     * dst[i] = src[i] > threshold ? 255 : 0
+     */
+    public static void binarize(byte[] src, byte[] dst, int from, int to, int threshold) {
+        if (threshold < 0 || threshold >= 255) {
+            Arrays.fill(dst, from, to, threshold < 0 ? (byte) 0xFF : 0);
+            return;
+        }
+        int i = VECTOR ? VectorPointKernels.binarize(src, dst, from, to, threshold) : from;
+        for (; i < to; i++) {
+            dst[i] = (src[i] & 0xFF) > threshold ? (byte) 0xFF : 0;
+        }
+    }
+
+    /**
+     * dst[i] = src[i] > threshold ? src[i] : 0
+     */
+    public static void thresholdKeep(byte[] src, byte[] dst, int from, int to, int threshold) {
+        if (threshold < 0) {
+            System.arraycopy(src, from, dst, from, to - from);
+            return;
+        }
+        if (threshold >= 255) {
+            Arrays.fill(dst, from, to, (byte) 0);
+            return;
+        }
+        int i = VECTOR ? VectorPointKernels.thresholdKeep(src, dst, from, to, threshold) : from;
+        for (; i < to; i++) {
+            dst[i] = (src[i] & 0xFF) > threshold ? src[i] : 0;
+        }
+    }
+
+    /**
+     * dst[i] = (src[i] / step) * step. Dla kroku będącego potęgą dwójki to maskowanie bitów,
+     * dla pozostałych tablica LUT.
+     */
+    public static void quantize(byte[] src, byte[] dst, int from, int to, int step) {
+        if (Integer.bitCount(step) == 1) {
+            int mask = ~(step - 1) & 0xFF;
+            int i = VECTOR ? VectorPointKernels.and(src, dst, from, to, mask) : from;
+            for (; i < to; i++) {
+                dst[i] = (byte) (src[i] & mask);
+            }
+            return;
+        }
+        byte[] lut = new byte[256];
+        for (int value = 0; value < 256; value++) {
+            lut[value] = (byte) ((value / step) * step);
+        }
+        lookup(src, dst, from, to, lut);
+    }
+
+    /**
+     * dst[i] = lut[src[i]]
+     */
+    public static void lookup(byte[] src, byte[] dst, int from, int to, byte[] lut) {
+        for (int i = from; i < to; i++) {
+            dst[i] = lut[src[i] & 0xFF];
+        }
+    }
+
+    /**
+     * dst[i] = a[i] + b[i], z wysyceniem (min 255) lub z zawinięciem (mod 256)
+     */
+    public static void add(byte[] a, byte[] b, byte[] dst, int from, int to, boolean withSaturation) {
+        int i = VECTOR ? VectorPointKernels.add(a, b, dst, from, to, withSaturation) : from;
+        for (; i < to; i++) {
+            int sum = (a[i] & 0xFF) + (b[i] & 0xFF);
+            dst[i] = (byte) (withSaturation ? Math.min(255, sum) : sum);
+        }
+    }
+
+    /**
+     * dst[i] = |a[i] - b[i]|
+     */
+    public static void absoluteDifference(byte[] a, byte[] b, byte[] dst, int from, int to) {
+        int i = VECTOR ? VectorPointKernels.absoluteDifference(a, b, dst, from, to) : from;
+        for (; i < to; i++) {
+            dst[i] = (byte) Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+        }
+    }
+
+    public static boolean isVectorized() {
+        return VECTOR;
+    }
+
+    private static boolean vectorApiAvailable() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.info("jdk.incubator.vector not available, using scalar point operations.");
+            return false;
+        }
+        try {
+            log.info("Vector API enabled for point operations ({} byte lanes).", VectorPointKernels.lanes());
+            return true;
+        } catch (LinkageError e) {
+            log.warn("Vector API could not be initialised, using scalar point operations.", e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.grayscale;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Wektorowe (SIMD) wersje operacji punktowych z PointKernels.
+ * Każda metoda przetwarza pełne wektory od indeksu from i zwraca indeks, od którego
+ * resztę zakresu musi dokończyć pętla skalarna.
+ * Klasa jest ładowana tylko wtedy, gdy moduł jdk.incubator.vector jest dostępny.
+ */
+final class VectorPointKernels {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    /**
+     * Bajty bez znaku porównujemy jako bajty ze znakiem po odwróceniu najstarszego bitu.
+     */
+    private static final byte SIGN_FLIP = (byte) 0x80;
+
+    private VectorPointKernels() {
+    }
+
+    static int negate(byte[] src, byte[] dst, int from, int to) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            // 255 - p == ~p dla bajtów bez znaku
+            ByteVector.fromArray(SPECIES, src, i).not().intoArray(dst, i);
+        }
+        return i;
+    }
+
+    /**
+     * p > threshold ? 255 : 0, threshold w zakresie 0..254.
+     */
+    static int binarize(byte[] src, byte[] dst, int from, int to, int threshold) {
+        byte flippedThreshold = (byte) (threshold ^ 0x80);
+        ByteVector zero = ByteVector.zero(SPECIES);
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Byte> above = ByteVector.fromArray(SPECIES, src, i)
+                    .lanewise(VectorOperators.XOR, SIGN_FLIP)
+                    .compare(VectorOperators.GT, flippedThreshold);
+            zero.blend((byte) 0xFF, above).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    /**
+     * p > threshold ? p : 0, threshold w zakresie 0..254.
+     */
+    static int thresholdKeep(byte[] src, byte[] dst, int from, int to, int threshold) {
+        byte flippedThreshold = (byte) (threshold ^ 0x80);
+        ByteVector zero = ByteVector.zero(SPECIES);
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector pixels = ByteVector.fromArray(SPECIES, src, i);
+            VectorMask<Byte> above = pixels
+                    .lanewise(VectorOperators.XOR, SIGN_FLIP)
+                    .compare(VectorOperators.GT, flippedThreshold);
+            zero.blend(pixels, above).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    /**
+     * p & mask - kwantyzacja, gdy krok jest potęgą dwójki.
+     */
+    static int and(byte[] src, byte[] dst, int from, int to, int mask) {
+        byte byteMask = (byte) mask;
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector.fromArray(SPECIES, src, i).lanewise(VectorOperators.AND, byteMask).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    /**
+     * Suma dwóch obrazów: z zawinięciem (mod 256) lub z wysyceniem do 255.
+     */
+    static int add(byte[] a, byte[] b, byte[] dst, int from, int to, boolean withSaturation) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector first = ByteVector.fromArray(SPECIES, a, i);
+            ByteVector sum = first.add(ByteVector.fromArray(SPECIES, b, i));
+            if (withSaturation) {
+                // przepełnienie bez znaku <=> suma (mod 256) mniejsza od pierwszego składnika
+                VectorMask<Byte> overflow = sum.lanewise(VectorOperators.XOR, SIGN_FLIP)
+                        .compare(VectorOperators.LT, first.lanewise(VectorOperators.XOR, SIGN_FLIP));
+                sum = sum.blend((byte) 0xFF, overflow);
+            }
+            sum.intoArray(dst, i);
+        }
+        return i;
+    }
+
+    /**
+     * |a - b| dla bajtów bez znaku: max - min po odwróceniu najstarszego bitu.
+     */
+    static int absoluteDifference(byte[] a, byte[] b, byte[] dst, int from, int to) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector first = ByteVector.fromArray(SPECIES, a, i).lanewise(VectorOperators.XOR, SIGN_FLIP);
+            ByteVector second = ByteVector.fromArray(SPECIES, b, i).lanewise(VectorOperators.XOR, SIGN_FLIP);
+            first.max(second).sub(first.min(second)).intoArray(dst, i);
+        }
+        return i;
+    }
+
+    static int lanes() {
+        return SPECIES.length();
+    }
+}
@@ -15,6 +15,13 @@ public class HistogramDataGenerator {
         this.lutGenerator = lutGenerator;
     }
 
+    /**
+     * Histogram luminancji i kanałów R, G, B wraz ze statystykami - jedno przejście po obrazie.
+     */
+    public ImageHistogram computeHistogram(BufferedImage image) {
+        return HistogramEngine.compute(image);
+    }
+
     /**
      * Generowanie histogramu obrazu
      */
@@ -90,6 +97,13 @@ public class HistogramDataGenerator {
         return new HistogramStatistics(mean, stdDev, median);
     }
 
+    /**
+     * Statystyki z gotowego histogramu (bez ponownego przechodzenia po obrazie).
+     */
+    public HistogramStatistics calculateStatistics(ImageHistogram histogram) {
+        return new HistogramStatistics(histogram.getMean(), histogram.getStandardDeviation(), histogram.getMedian());
+    }
+
     public static class HistogramStatistics {
         private final double mean;
         private final double standardDeviation;
@@ -0,0 +1,132 @@
+package org.example.histogram;
+
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Histogramy obrazu liczone jednym równoległym przejściem po rastrze.
+ * Każdy pas wierszy zlicza do własnych tablic (luminancja, R, G, B), które są sumowane na końcu.
+ * Luminancja w arytmetyce stałoprzecinkowej: Y = (19595 R + 38470 G + 7471 B) >> 16
+ * (wagi 0.299, 0.587, 0.114 przeskalowane przez 2^16, wynik obcięty jak (int) w wersji double).
+ */
+public final class HistogramEngine {
+
+    private static final int WEIGHT_R = 19595;
+    private static final int WEIGHT_G = 38470;
+    private static final int WEIGHT_B = 7471;
+
+    private static final int LUMINANCE = 0;
+    private static final int RED = 1;
+    private static final int GREEN = 2;
+    private static final int BLUE = 3;
+
+    private HistogramEngine() {
+    }
+
+    /**
+     * Dla TYPE_BYTE_GRAY luminancją jest kanał 0 rastra (histogramy R, G, B są jej kopią),
+     * dla pozostałych typów - luminancja z wartości RGB piksela.
+     */
+    public static ImageHistogram compute(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null.");
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[][] merged = new int[4][256];
+        boolean[] color = new boolean[1];
+
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            byte[] pixels = RasterBytes.grayBytes(image);
+            ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+                int[] local = new int[256];
+                for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+                    local[pixels[i] & 0xFF]++;
+                }
+                merge(merged, new int[][]{local}, false, color);
+            });
+            for (int channel = RED; channel <= BLUE; channel++) {
+                System.arraycopy(merged[LUMINANCE], 0, merged[channel], 0, 256);
+            }
+            return new ImageHistogram(merged[LUMINANCE], merged[RED], merged[GREEN], merged[BLUE], false);
+        }
+
+        byte[] bytes = byteLayout(image) ? RasterBytes.denseBytes(image) : null;
+        int[] ints = intLayout(image) ? RasterBytes.denseInts(image) : null;
+        // przesunięcie R, G, B w pikselu TYPE_3BYTE_BGR / TYPE_4BYTE_ABGR
+        int pixelStride = image.getType() == BufferedImage.TYPE_4BYTE_ABGR ? 4 : 3;
+        int alpha = pixelStride - 3;
+
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            int[][] local = new int[4][256];
+            int[] lum = local[LUMINANCE];
+            int[] red = local[RED];
+            int[] green = local[GREEN];
+            int[] blue = local[BLUE];
+            boolean stripColor = false;
+            int[] row = (bytes == null && ints == null) ? new int[width] : null;
+
+            for (int y = fromRow; y < toRow; y++) {
+                if (row != null) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                }
+                for (int x = 0; x < width; x++) {
+                    int r;
+                    int g;
+                    int b;
+                    if (bytes != null) {
+                        int index = (y * width + x) * pixelStride + alpha;
+                        b = bytes[index] & 0xFF;
+                        g = bytes[index + 1] & 0xFF;
+                        r = bytes[index + 2] & 0xFF;
+                    } else {
+                        int pixel = ints != null ? ints[y * width + x] : row[x];
+                        r = (pixel >> 16) & 0xFF;
+                        g = (pixel >> 8) & 0xFF;
+                        b = pixel & 0xFF;
+                    }
+                    lum[(WEIGHT_R * r + WEIGHT_G * g + WEIGHT_B * b) >>> 16]++;
+                    red[r]++;
+                    green[g]++;
+                    blue[b]++;
+                    stripColor |= (r != g) | (g != b);
+                }
+            }
+            merge(merged, local, stripColor, color);
+        });
+
+        return new ImageHistogram(merged[LUMINANCE], merged[RED], merged[GREEN], merged[BLUE], color[0]);
+    }
+
+    private static void merge(int[][] merged, int[][] local, boolean stripColor, boolean[] color) {
+        synchronized (merged) {
+            for (int channel = 0; channel < local.length; channel++) {
+                int[] target = merged[channel];
+                int[] source = local[channel];
+                for (int i = 0; i < 256; i++) {
+                    target[i] += source[i];
+                }
+            }
+            color[0] |= stripColor;
+        }
+    }
+
+    /**
+     * Typy z pikselem zapisanym w bajtach B, G, R (z poprzedzającym kanałem alfa dla ABGR).
+     * Dla ABGR getRGB zwraca kolor bez przemnożenia przez alfę, tak jak surowe bajty.
+     */
+    private static boolean byteLayout(BufferedImage image) {
+        int type = image.getType();
+        return type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR;
+    }
+
+    /**
+     * Typy, w których wartość int piksela ma układ 0xAARRGGBB zwracany przez getRGB.
+     */
+    private static boolean intLayout(BufferedImage image) {
+        int type = image.getType();
+        return type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB;
+    }
+}
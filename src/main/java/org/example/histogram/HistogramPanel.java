@@ -7,6 +7,7 @@ import java.util.stream.IntStream;
 
 public class HistogramPanel extends JPanel {
     private BufferedImage image;
+    private ImageHistogram histogram;
 
     private final HistogramDataGenerator dataGenerator;
     private final HistogramDrawer drawer;
@@ -52,52 +53,27 @@ public class HistogramPanel extends JPanel {
     }
 
     public void setImage(BufferedImage image) {
+        setImage(image, image != null ? dataGenerator.computeHistogram(image) : null);
+    }
+
+    /**
+     * Ustawia obraz razem z policzonym już histogramem (np. z pamięci podręcznej obrazu).
+     */
+    public void setImage(BufferedImage image, ImageHistogram histogram) {
         this.image = image;
-        if (image != null) {
+        this.histogram = histogram;
+        if (image != null && histogram != null) {
             generateHistograms();
         }
         repaint();
     }
 
     private void generateHistograms() {
-        isColorImage = isColorImage(image);
-
-        overallHistogram = dataGenerator.generateOverallHistogram(image);
-
-        if (isColorImage) {
-            // Kanały R, G, B
-            colorHistograms = dataGenerator.generateColorHistograms(image);
-        }
-
-        if (isColorImage) {
-            int maxR = dataGenerator.getMaxValue(colorHistograms[0]);
-            int maxG = dataGenerator.getMaxValue(colorHistograms[1]);
-            int maxB = dataGenerator.getMaxValue(colorHistograms[2]);
-            int maxOverall = dataGenerator.getMaxValue(overallHistogram);
-            maxHistogramValue = Math.max(maxOverall, Math.max(maxR, Math.max(maxG, maxB)));
-        } else {
-            maxHistogramValue = dataGenerator.getMaxValue(overallHistogram);
-        }
-    }
-
-    /**
-     * metoda do wykrywania, czy obraz jest "kolorowy".
-     * sprawdza, czy znajdzie się piksel, w którym R != G lub G != B.
-     */
-    private boolean isColorImage(BufferedImage image) {
-        if (image == null) return false;
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                int pixel = image.getRGB(x, y);
-                int red   = (pixel >> 16) & 0xFF;
-                int green = (pixel >> 8) & 0xFF;
-                int blue  =  pixel        & 0xFF;
-                if (red != green || green != blue) {
-                    return true;
-                }
-            }
-        }
-        return false;
+        // jedno przejście po obrazie daje luminancję, kanały R, G, B i informację o kolorze
+        isColorImage = histogram.isColor();
+        overallHistogram = histogram.getLuminance();
+        colorHistograms = isColorImage ? histogram.getColorHistograms() : null;
+        maxHistogramValue = histogram.getMaxCount();
     }
 
     private void showLUT() {
@@ -229,10 +205,10 @@ public class HistogramPanel extends JPanel {
             return;
         }
 
-        // Oblicz dane statystyczne
-        HistogramDataGenerator.HistogramStatistics stats = dataGenerator.calculateStatistics(image);
+        // Dane statystyczne policzone razem z histogramem
+        HistogramDataGenerator.HistogramStatistics stats = dataGenerator.calculateStatistics(histogram);
 
-        int totalPixels = IntStream.of(overallHistogram).sum();
+        long totalPixels = histogram.getTotalPixels();
         int maxIndex = IntStream.range(0, overallHistogram.length)
                 .reduce((i, j) -> overallHistogram[i] > overallHistogram[j] ? i : j)
                 .orElse(0);
@@ -0,0 +1,124 @@
+package org.example.histogram;
+
+import lombok.Getter;
+
+/**
+ * Niezmienny wynik HistogramEngine: histogram luminancji, histogramy kanałów R, G, B
+ * oraz podstawowe statystyki luminancji. Gettery tablic zwracają kopie.
+ */
+public final class ImageHistogram {
+
+    private final int[] luminance;
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+
+    /**
+     * Czy w obrazie jest piksel, w którym R != G lub G != B.
+     */
+    @Getter
+    private final boolean color;
+    @Getter
+    private final long totalPixels;
+    @Getter
+    private final int minIntensity;
+    @Getter
+    private final int maxIntensity;
+    @Getter
+    private final double mean;
+    @Getter
+    private final double standardDeviation;
+    @Getter
+    private final int median;
+
+    ImageHistogram(int[] luminance, int[] red, int[] green, int[] blue, boolean color) {
+        this.luminance = luminance;
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+        this.color = color;
+
+        long total = 0;
+        double sum = 0;
+        for (int i = 0; i < 256; i++) {
+            total += luminance[i];
+            sum += (double) i * luminance[i];
+        }
+        this.totalPixels = total;
+        this.mean = total == 0 ? 0.0 : sum / total;
+
+        double varianceSum = 0;
+        for (int i = 0; i < 256; i++) {
+            varianceSum += luminance[i] * (i - mean) * (i - mean);
+        }
+        this.standardDeviation = total == 0 ? 0.0 : Math.sqrt(varianceSum / total);
+
+        int min = 0;
+        while (min < 255 && luminance[min] == 0) {
+            min++;
+        }
+        int max = 255;
+        while (max > 0 && luminance[max] == 0) {
+            max--;
+        }
+        this.minIntensity = min;
+        this.maxIntensity = max;
+
+        int medianValue = 0;
+        long cumulative = 0;
+        for (int i = 0; i < 256 && total > 0; i++) {
+            cumulative += luminance[i];
+            if (cumulative >= total / 2) {
+                medianValue = i;
+                break;
+            }
+        }
+        this.median = medianValue;
+    }
+
+    public int[] getLuminance() {
+        return luminance.clone();
+    }
+
+    public int[] getRed() {
+        return red.clone();
+    }
+
+    public int[] getGreen() {
+        return green.clone();
+    }
+
+    public int[] getBlue() {
+        return blue.clone();
+    }
+
+    /**
+     * Histogramy R, G, B jako tablica [3][256] (jak generateColorHistogramsLUT).
+     */
+    public int[][] getColorHistograms() {
+        return new int[][]{getRed(), getGreen(), getBlue()};
+    }
+
+    public int getLuminanceCount(int value) {
+        return luminance[value];
+    }
+
+    /**
+     * Największa liczność w histogramie luminancji (oraz R, G, B dla obrazu kolorowego).
+     */
+    public int getMaxCount() {
+        int max = maxOf(luminance);
+        if (color) {
+            max = Math.max(max, Math.max(maxOf(red), Math.max(maxOf(green), maxOf(blue))));
+        }
+        return max;
+    }
+
+    private static int maxOf(int[] histogram) {
+        int max = 0;
+        for (int count : histogram) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+}
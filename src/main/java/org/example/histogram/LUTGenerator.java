@@ -1,84 +1,24 @@
 package org.example.histogram;
 
 import java.awt.image.BufferedImage;
-import java.util.Arrays;
 
 public class LUTGenerator {
 
     /**
      * Generuje histogram obrazu, zwraca tablicę 256-elementową.
      * dla obrazu TYPE_BYTE_GRAY pobiera kanał 0 z rastra,
-     * dla obrazu kolorowego stosuje formułę Y = 0.299R + 0.587G + 0.114B.
+     * dla obrazu kolorowego stosuje formułę Y = 0.299R + 0.587G + 0.114B (stałoprzecinkowo, HistogramEngine).
      */
     public int[] generateHistogramLUT(BufferedImage image) {
-        if (image == null) {
-            throw new IllegalArgumentException("Image cannot be null.");
-        }
-
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int[] histogram = new int[256];
-        Arrays.fill(histogram, 0);
-
-        int imageType = image.getType();
-        boolean isGray = (imageType == BufferedImage.TYPE_BYTE_GRAY);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-
-                if (isGray) {
-                    // Dla obrazu monochromatycznego (TYPE_BYTE_GRAY):
-                    int gray = image.getRaster().getSample(x, y, 0);
-                    histogram[gray]++;
-                } else {
-                    // Dla obrazu kolorowego wyliczamy luminancję:
-                    int rgb = image.getRGB(x, y);
-                    int r = (rgb >> 16) & 0xFF;
-                    int g = (rgb >> 8) & 0xFF;
-                    int b = (rgb) & 0xFF;
-
-                    int gray = (int) (0.299 * r + 0.587 * g + 0.114 * b);
-                    // Upewniamy się, że mieści się w zakresie 0..255
-                    if (gray < 0) gray = 0;
-                    if (gray > 255) gray = 255;
-
-                    histogram[gray]++;
-                }
-            }
-        }
-        return histogram;
+        return HistogramEngine.compute(image).getLuminance();
     }
 
     /**
      * Generuje histogramy dla kanałów R, G, B.
-     * Działąnie:
-     * - Iteruje przez piksele obrazu.
-     * - Zlicza intensywności dla kanałów R, G i B.
+     * Wszystkie kanały są zliczane w jednym przejściu przez HistogramEngine.
      */
     public int[][] generateColorHistogramsLUT(BufferedImage image) {
-        if (image == null) {
-            throw new IllegalArgumentException("Image cannot be null.");
-        }
-
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int[][] colorHistograms = new int[3][256];
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRGB(x, y);
-
-                int red   = (pixel >> 16) & 0xFF;
-                int green = (pixel >>  8) & 0xFF;
-                int blue  =  pixel        & 0xFF;
-
-                colorHistograms[0][red]++;
-                colorHistograms[1][green]++;
-                colorHistograms[2][blue]++;
-            }
-        }
-
-        return colorHistograms;
+        return HistogramEngine.compute(image).getColorHistograms();
     }
 
     /**
@@ -103,4 +43,120 @@ public class LUTGenerator {
 
         return lut;
     }
+
+    /**
+     * Negacja: 255 - v
+     */
+    public int[] generateNegationLUT() {
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lut[i] = 255 - i;
+        }
+        return lut;
+    }
+
+    /**
+     * Redukcja liczby poziomów szarości: (v / krok) * krok, krok = 256 / levels
+     */
+    public int[] generateQuantizationLUT(int levels) {
+        if (levels < 2 || levels > 256) {
+            throw new IllegalArgumentException("Number of levels must be between 2 and 256.");
+        }
+        int step = 256 / levels;
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lut[i] = (i / step) * step;
+        }
+        return lut;
+    }
+
+    /**
+     * Progowanie binarne: v > threshold ? 255 : 0
+     */
+    public int[] generateBinarizationLUT(int threshold) {
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lut[i] = i > threshold ? 255 : 0;
+        }
+        return lut;
+    }
+
+    /**
+     * Progowanie z zachowaniem poziomów szarości: v > threshold ? v : 0
+     */
+    public int[] generateThresholdLUT(int threshold) {
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lut[i] = i > threshold ? i : 0;
+        }
+        return lut;
+    }
+
+    /**
+     * Rozciąganie zakresu [p1..p2] do zakresu [q3..q4].
+     */
+    public int[] generateRangeStretchLUT(int p1, int p2, int q3, int q4) {
+        if (p1 < 0 || p2 > 255 || p1 >= p2) {
+            throw new IllegalArgumentException("Invalid source range [p1..p2]. Must be within [0..255], p1 < p2.");
+        }
+        if (q3 < 0 || q4 > 255 || q3 >= q4) {
+            throw new IllegalArgumentException("Invalid target range [q3..q4]. Must be within [0..255], q3 < q4.");
+        }
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            if (i <= p1) {
+                lut[i] = q3;
+            } else if (i >= p2) {
+                lut[i] = q4;
+            } else {
+                double fraction = (double) (i - p1) / (p2 - p1);
+                lut[i] = (int) (q3 + fraction * (q4 - q3));
+            }
+        }
+        return lut;
+    }
+
+    /**
+     * Liniowe rozciąganie [lowerBound..upperBound] -> [0..255], wartości spoza zakresu są obcinane.
+     */
+    public int[] generateLinearStretchLUT(int lowerBound, int upperBound) {
+        if (lowerBound >= upperBound) {
+            throw new IllegalArgumentException("lowerBound must be < upperBound.");
+        }
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            if (i <= lowerBound) {
+                lut[i] = 0;
+            } else if (i >= upperBound) {
+                lut[i] = 255;
+            } else {
+                lut[i] = (int) (((i - lowerBound) * 255.0) / (upperBound - lowerBound));
+            }
+        }
+        return lut;
+    }
+
+    /**
+     * Poziom, na którym skumulowana liczba pikseli (od dołu lub od góry histogramu) osiąga clipPixels.
+     */
+    public int findClippingBound(int[] histogram, int clipPixels, boolean isLower) {
+        int sum = 0;
+        if (isLower) {
+            for (int i = 0; i < 256; i++) {
+                sum += histogram[i];
+                if (sum >= clipPixels) {
+                    return i;
+                }
+            }
+            return 0;
+        } else {
+            for (int i = 255; i >= 0; i--) {
+                sum += histogram[i];
+                if (sum >= clipPixels) {
+                    return i;
+                }
+            }
+            return 255;
+        }
+    }
 }
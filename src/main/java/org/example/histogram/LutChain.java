@@ -0,0 +1,272 @@
+package org.example.histogram;
+
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+import org.example.grayscale.PointKernels;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Kolejka operacji punktowych złożonych w jedną tablicę LUT (256 elementów).
+ * Zamiast osobnego przejścia po obrazie dla każdej operacji, tablice są składane
+ * (lut = b[a[v]]) i obraz jest przetwarzany raz, równolegle dla pasów wierszy:
+ * <pre>
+ * BufferedImage result = new LutChain()
+ *         .linearStretch(0.05)
+ *         .quantize(8)
+ *         .negate()
+ *         .apply(image);
+ * </pre>
+ * Operacje zależne od histogramu (equalizacja, automatyczne rozciąganie) używają histogramu
+ * obrazu wejściowego przeliczonego przez wcześniejsze operacje kolejki - wynik jest taki sam,
+ * jak przy wykonywaniu operacji po kolei.
+ */
+public class LutChain {
+
+    private final LUTGenerator lutGenerator = new LUTGenerator();
+    private final List<Step> steps = new ArrayList<>();
+
+    /**
+     * Jeden krok kolejki - tablicę LUT wyznacza na podstawie histogramu obrazu w tym miejscu kolejki.
+     */
+    @FunctionalInterface
+    private interface LutFactory {
+        int[] create(int[] histogram, int totalPixels);
+    }
+
+    private static final class Step {
+        private final String name;
+        private final LutFactory factory;
+        private final boolean needsHistogram;
+
+        private Step(String name, LutFactory factory, boolean needsHistogram) {
+            this.name = name;
+            this.factory = factory;
+            this.needsHistogram = needsHistogram;
+        }
+    }
+
+    public LutChain negate() {
+        int[] lut = lutGenerator.generateNegationLUT();
+        return add("Negate", lut);
+    }
+
+    public LutChain quantize(int levels) {
+        int[] lut = lutGenerator.generateQuantizationLUT(levels);
+        return add("Quantize (" + levels + " levels)", lut);
+    }
+
+    public LutChain binarize(int threshold) {
+        int[] lut = lutGenerator.generateBinarizationLUT(threshold);
+        return add("Binary threshold (" + threshold + ")", lut);
+    }
+
+    public LutChain thresholdWithGrayLevels(int threshold) {
+        int[] lut = lutGenerator.generateThresholdLUT(threshold);
+        return add("Threshold with gray levels (" + threshold + ")", lut);
+    }
+
+    public LutChain stretch(int p1, int p2, int q3, int q4) {
+        int[] lut = lutGenerator.generateRangeStretchLUT(p1, p2, q3, q4);
+        return add("Stretch [" + p1 + ".." + p2 + "] -> [" + q3 + ".." + q4 + "]", lut);
+    }
+
+    /**
+     * Rozciąganie liniowe [min..max] -> [0..255] (bez obcinania).
+     */
+    public LutChain linearStretch() {
+        steps.add(new Step("Linear stretch", (histogram, totalPixels) -> {
+            int min = 0;
+            while (min < 256 && histogram[min] == 0) {
+                min++;
+            }
+            int max = 255;
+            while (max >= 0 && histogram[max] == 0) {
+                max--;
+            }
+            return min >= max ? identity() : lutGenerator.generateLinearStretchLUT(min, max);
+        }, true));
+        return this;
+    }
+
+    /**
+     * Rozciąganie liniowe z obcięciem clippingPercentage pikseli z każdej strony histogramu.
+     */
+    public LutChain linearStretch(double clippingPercentage) {
+        if (clippingPercentage < 0 || clippingPercentage > 1) {
+            throw new IllegalArgumentException("Clipping percentage must be between 0 and 1.");
+        }
+        steps.add(new Step("Linear stretch (" + clippingPercentage * 100 + "% clipping)", (histogram, totalPixels) -> {
+            int clipPixels = (int) (totalPixels * clippingPercentage);
+            int lower = lutGenerator.findClippingBound(histogram, clipPixels, true);
+            int upper = lutGenerator.findClippingBound(histogram, clipPixels, false);
+            return lower >= upper ? identity() : lutGenerator.generateLinearStretchLUT(lower, upper);
+        }, true));
+        return this;
+    }
+
+    public LutChain equalize() {
+        steps.add(new Step("Equalize histogram", lutGenerator::generateEqualizationLUT, true));
+        return this;
+    }
+
+    /**
+     * Dowolna tablica LUT (256 wartości z zakresu 0..255).
+     */
+    public LutChain add(String name, int[] lut) {
+        validate(lut);
+        int[] copy = lut.clone();
+        steps.add(new Step(name, (histogram, totalPixels) -> copy, false));
+        return this;
+    }
+
+    public void removeLast() {
+        if (!steps.isEmpty()) {
+            steps.remove(steps.size() - 1);
+        }
+    }
+
+    public void clear() {
+        steps.clear();
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+
+    /**
+     * Nazwy operacji w kolejności wykonywania.
+     */
+    public List<String> getStepNames() {
+        List<String> names = new ArrayList<>();
+        for (Step step : steps) {
+            names.add(step.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Składa kolejkę w jedną tablicę LUT dla obrazu o podanym histogramie (może być null,
+     * jeżeli kolejka nie zawiera operacji zależnych od histogramu).
+     */
+    public int[] compose(int[] histogram) {
+        int[] composed = identity();
+        int[] current = histogram == null ? null : histogram.clone();
+        int totalPixels = 0;
+        if (current != null) {
+            for (int count : current) {
+                totalPixels += count;
+            }
+        }
+
+        for (Step step : steps) {
+            if (step.needsHistogram && current == null) {
+                throw new IllegalArgumentException("Histogram is required for step: " + step.name);
+            }
+            int[] lut = step.factory.create(current, totalPixels);
+            validate(lut);
+            for (int i = 0; i < 256; i++) {
+                composed[i] = lut[composed[i]];
+            }
+            if (current != null) {
+                // histogram obrazu po tym kroku
+                int[] next = new int[256];
+                for (int i = 0; i < 256; i++) {
+                    next[lut[i]] += current[i];
+                }
+                current = next;
+            }
+        }
+        return composed;
+    }
+
+    /**
+     * Czy któraś operacja kolejki wymaga histogramu obrazu wejściowego.
+     */
+    public boolean needsHistogram() {
+        for (Step step : steps) {
+            if (step.needsHistogram) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stosuje całą kolejkę jednym przejściem po obrazie. Wynik: nowy obraz TYPE_BYTE_GRAY,
+     * obraz kolorowy jest najpierw konwertowany do skali szarości.
+     */
+    public BufferedImage apply(BufferedImage image) {
+        return apply(image, null);
+    }
+
+    /**
+     * Jak apply(image), z gotowym histogramem obrazu (np. zapamiętanym w DraggableImage.getHistogram()).
+     * Histogram jest używany tylko dla obrazu TYPE_BYTE_GRAY - luminancja obrazu kolorowego
+     * liczona przez HistogramEngine różni się od konwersji w ensureGray. W pozostałych przypadkach
+     * (i gdy histogram == null) jest liczony równolegle przez HistogramEngine.
+     */
+    public BufferedImage apply(BufferedImage image, ImageHistogram histogram) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null.");
+        }
+        BufferedImage grayImage = ensureGray(image);
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
+
+        int[] luminance = null;
+        if (needsHistogram()) {
+            ImageHistogram source = histogram != null && grayImage == image
+                    ? histogram
+                    : HistogramEngine.compute(grayImage);
+            luminance = source.getLuminance();
+        }
+
+        int[] composed = compose(luminance);
+        byte[] lut = new byte[256];
+        for (int i = 0; i < 256; i++) {
+            lut[i] = (byte) composed[i];
+        }
+
+        BufferedImage result = RasterBytes.newGray(width, height);
+        byte[] dst = RasterBytes.denseBytes(result);
+        ParallelRows.forEachStrip(width, height,
+                (fromRow, toRow) -> PointKernels.lookup(src, dst, fromRow * width, toRow * width, lut));
+        return result;
+    }
+
+    private static int[] identity() {
+        int[] lut = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lut[i] = i;
+        }
+        return lut;
+    }
+
+    private static void validate(int[] lut) {
+        if (lut == null || lut.length != 256) {
+            throw new IllegalArgumentException("LUT must be 256-length array.");
+        }
+        for (int value : lut) {
+            if (value < 0 || value > 255) {
+                throw new IllegalArgumentException("LUT values must be within [0..255].");
+            }
+        }
+    }
+
+    private static BufferedImage ensureGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics g = gray.getGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return gray;
+    }
+}
@@ -1,14 +1,10 @@
 package org.example.linearops;
 
-import org.opencv.core.*;
-import org.opencv.imgcodecs.Imgcodecs;
-import org.opencv.imgproc.Imgproc;
+import org.example.OpenCVUtils;
+import org.example.RasterBytes;
+import org.opencv.core.Core;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 /*
 Proszę zaimplementować wybór sposobu uzupełnienie marginesów/brzegów w operacjach
 sąsiedztwa według zasady wybranej spośród następujących zasad:
@@ -19,77 +15,39 @@ BORDER_CONSTANT
  */
 public class BorderFillProcessor {
 
-    // Wypełnienia marginesów i filtracji
-    public Mat applyFilterWithBorder(Mat inputMat, Mat kernel, int borderType, int constantValue) {
-        Mat extendedMat = new Mat();
-
-        if (borderType == Core.BORDER_CONSTANT) {
-            Scalar borderValue = new Scalar(constantValue);
-            Core.copyMakeBorder(inputMat, extendedMat, 1, 1, 1, 1, Core.BORDER_CONSTANT, borderValue);
-        } else {
-            Core.copyMakeBorder(inputMat, extendedMat, 1, 1, 1, 1, borderType);
-        }
-
-        Mat outputMat = new Mat();
-        Imgproc.filter2D(extendedMat, outputMat, -1, kernel);
-
-        Rect roi = new Rect(1, 1, inputMat.cols(), inputMat.rows());
-        return new Mat(outputMat, roi);
-    }
+    private static final int BORDER_SIZE = 10;
 
+    /**
+     * Obraz w skali szarości z ramką 10 pikseli wyznaczoną przez politykę brzegu
+     * (wyłącznie do podglądu - filtry uzupełniają brzegi wirtualnie, bez tej kopii).
+     */
     public BufferedImage applyBorderFill(BufferedImage inputImage, int borderType, int constantValue) {
-        Mat sourceMat = bufferedImageToMat(inputImage);
-
-        if (sourceMat.channels() == 3) {
-            Imgproc.cvtColor(sourceMat, sourceMat, Imgproc.COLOR_BGR2GRAY);
+        if (borderType != Core.BORDER_CONSTANT && borderType != Core.BORDER_REFLECT
+                && borderType != Core.BORDER_REPLICATE) {
+            throw new IllegalArgumentException("Invalid border type");
         }
-
-        Mat resultMat = new Mat();
-        int top = 10, bottom = 10, left = 10, right = 10;
-
-        Scalar borderValue = new Scalar(constantValue);
-
-        switch (borderType) {
-            case Core.BORDER_CONSTANT:
-                Core.copyMakeBorder(sourceMat, resultMat, top, bottom, left, right, Core.BORDER_CONSTANT, borderValue);
-                break;
-            case Core.BORDER_REFLECT:
-                Core.copyMakeBorder(sourceMat, resultMat, top, bottom, left, right, Core.BORDER_REFLECT);
-                break;
-            case Core.BORDER_REPLICATE:
-                Core.copyMakeBorder(sourceMat, resultMat, top, bottom, left, right, Core.BORDER_REPLICATE);
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid border type");
-        }
-
-        return matToBufferedImage(resultMat);
-    }
-
-    private Mat bufferedImageToMat(BufferedImage bi) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try {
-            ImageIO.write(bi, "png", baos);
-            baos.flush();
-            byte[] imageInBytes = baos.toByteArray();
-            baos.close();
-
-            return Imgcodecs.imdecode(new MatOfByte(imageInBytes), Imgcodecs.IMREAD_UNCHANGED);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return new Mat();
-        }
-    }
-
-    private BufferedImage matToBufferedImage(Mat mat) {
-        MatOfByte mob = new MatOfByte();
-        Imgcodecs.imencode(".png", mat, mob);
-        byte[] byteArray = mob.toArray();
-        try {
-            return ImageIO.read(new ByteArrayInputStream(byteArray));
-        } catch (IOException e) {
-            e.printStackTrace();
-            return null;
+        BorderPolicy border = BorderPolicy.of(borderType, constantValue);
+
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(inputImage);
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
+
+        int resultWidth = width + 2 * BORDER_SIZE;
+        int resultHeight = height + 2 * BORDER_SIZE;
+        BufferedImage result = RasterBytes.newGray(resultWidth, resultHeight);
+        byte[] dst = RasterBytes.denseBytes(result);
+        int[] columnMap = border.indexMap(width, BORDER_SIZE);
+        for (int py = 0; py < resultHeight; py++) {
+            int sourceRow = border.index(py - BORDER_SIZE, height);
+            int offset = py * resultWidth;
+            for (int px = 0; px < resultWidth; px++) {
+                int sourceColumn = columnMap[px];
+                dst[offset + px] = (sourceRow < 0 || sourceColumn < 0)
+                        ? (byte) constantValue
+                        : src[sourceRow * width + sourceColumn];
+            }
         }
+        return result;
     }
 }
@@ -0,0 +1,117 @@
+package org.example.linearops;
+
+import lombok.Getter;
+import org.opencv.core.Core;
+
+/**
+ * Sposób uzupełniania brzegów w operacjach sąsiedztwa (kody Core.BORDER_*), bez fizycznej ramki:
+ * filtry czytają piksele obrazu bezpośrednio, a współrzędne spoza obrazu są przeliczane
+ * przez politykę tylko przy brzegach - wnętrze obrazu liczone jest bez sprawdzania zakresu.
+ */
+public final class BorderPolicy {
+
+    @Getter
+    private final int borderType;
+    @Getter
+    private final float constantValue;
+
+    private BorderPolicy(int borderType, float constantValue) {
+        this.borderType = borderType;
+        this.constantValue = constantValue;
+    }
+
+    /**
+     * Polityka dla kodu Core.BORDER_*; constantValue jest używana tylko dla BORDER_CONSTANT.
+     */
+    public static BorderPolicy of(int borderType, float constantValue) {
+        switch (borderType) {
+            case Core.BORDER_CONSTANT:
+            case Core.BORDER_REPLICATE:
+            case Core.BORDER_REFLECT:
+            case Core.BORDER_WRAP:
+            case Core.BORDER_REFLECT_101:
+                return new BorderPolicy(borderType, constantValue);
+            default:
+                throw new IllegalArgumentException("Unsupported border type: " + borderType);
+        }
+    }
+
+    public static BorderPolicy constant(float value) {
+        return new BorderPolicy(Core.BORDER_CONSTANT, value);
+    }
+
+    public static BorderPolicy reflect() {
+        return new BorderPolicy(Core.BORDER_REFLECT, 0);
+    }
+
+    public static BorderPolicy replicate() {
+        return new BorderPolicy(Core.BORDER_REPLICATE, 0);
+    }
+
+    /**
+     * BORDER_REFLECT_101 (BORDER_DEFAULT w filter2D i GaussianBlur).
+     */
+    public static BorderPolicy reflect101() {
+        return new BorderPolicy(Core.BORDER_REFLECT_101, 0);
+    }
+
+    public boolean isConstant() {
+        return borderType == Core.BORDER_CONSTANT;
+    }
+
+    /**
+     * Indeks piksela obrazu odpowiadający pozycji i (także spoza zakresu 0..n-1), albo -1 dla BORDER_CONSTANT.
+     */
+    public int index(int i, int n) {
+        if (i >= 0 && i < n) {
+            return i;
+        }
+        switch (borderType) {
+            case Core.BORDER_CONSTANT:
+                return -1;
+            case Core.BORDER_REPLICATE:
+                return i < 0 ? 0 : n - 1;
+            case Core.BORDER_WRAP:
+                return Math.floorMod(i, n);
+            default:
+                if (n == 1) {
+                    return 0;
+                }
+                // fedcba|abcdef|fedcba dla REFLECT, gfedcb|abcdefg|fedcba dla REFLECT_101
+                int delta = borderType == Core.BORDER_REFLECT_101 ? 1 : 0;
+                while (i < 0 || i >= n) {
+                    i = i < 0 ? -i - 1 + delta : 2 * n - i - 1 - delta;
+                }
+                return i;
+        }
+    }
+
+    /**
+     * Indeksy dla pozycji -radius..n+radius-1 (element 0 odpowiada pozycji -radius).
+     */
+    public int[] indexMap(int n, int radius) {
+        int[] map = new int[n + 2 * radius];
+        for (int i = 0; i < map.length; i++) {
+            map[i] = index(i - radius, n);
+        }
+        return map;
+    }
+
+    /**
+     * Piksel (x, y) płaszczyzny float, także spoza obrazu.
+     */
+    public float sample(float[] src, int width, int height, int x, int y) {
+        int column = index(x, width);
+        int row = index(y, height);
+        return (column < 0 || row < 0) ? constantValue : src[row * width + column];
+    }
+
+    /**
+     * Piksel (x, y) obrazu 8-bitowego, także spoza obrazu.
+     */
+    public float sample(byte[] src, int width, int height, int x, int y) {
+        int column = index(x, width);
+        int row = index(y, height);
+        return (column < 0 || row < 0) ? constantValue : src[row * width + column] & 0xFF;
+    }
+}
@@ -0,0 +1,263 @@
+package org.example.linearops;
+
+import lombok.Getter;
+import org.example.OpenCVUtils;
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Sesja detektora Canny'ego dla jednego obrazu i jednego rozmiaru maski gradientu.
+ * Gradienty Sobela, moduł i tłumienie niemaksymalne są liczone raz, w konstruktorze;
+ * zmiana progów wykonuje już tylko histerezę po zapamiętanych kandydatach na krawędź,
+ * więc progi można dobierać interaktywnie także dla bardzo dużych obrazów.
+ * Reguły jak w Imgproc.Canny: pochodne z BORDER_REPLICATE, moduł L1 lub L2,
+ * piksel krawędzi ma moduł > threshold1 i jest połączony (8-sąsiedztwo) z pikselem o module > threshold2.
+ */
+public final class CannySession {
+
+    /**
+     * Automatyczny dobór progów z rozkładu modułu gradientu w punktach po tłumieniu niemaksymalnym.
+     */
+    public enum AutoThreshold {
+        /** mediana m: progi 0.66 m i 1.33 m */
+        MEDIAN,
+        /** próg Otsu t histogramu modułu: progi 0.5 t i t */
+        OTSU
+    }
+
+    private static final double TAN_22_5 = Math.tan(Math.toRadians(22.5));
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    @Getter
+    private final int apertureSize;
+    @Getter
+    private final boolean l2Gradient;
+    /** moduł gradientu w punktach będących lokalnym maksimum, 0 w pozostałych */
+    private final float[] suppressed;
+    /** indeksy pikseli z suppressed > 0 */
+    private final int[] candidates;
+    @Getter
+    private final float maxMagnitude;
+
+    public CannySession(BufferedImage inputImage, int apertureSize, boolean l2Gradient) {
+        if (apertureSize != 3 && apertureSize != 5 && apertureSize != 7) {
+            throw new IllegalArgumentException("Aperture size must be 3, 5 or 7.");
+        }
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(inputImage);
+        this.width = grayImage.getWidth();
+        this.height = grayImage.getHeight();
+        this.apertureSize = apertureSize;
+        this.l2Gradient = l2Gradient;
+
+        float[] gray = ConvolutionEngine.toFloat(grayImage);
+        float[] derivative = derivativeKernel(apertureSize);
+        float[] smoothing = smoothingKernel(apertureSize);
+        float[] dx = ConvolutionEngine.convolve(gray, width, height,
+                ConvolutionKernel.separable(smoothing, derivative), BorderPolicy.replicate());
+        float[] dy = ConvolutionEngine.convolve(gray, width, height,
+                ConvolutionKernel.separable(derivative, smoothing), BorderPolicy.replicate());
+
+        float[] magnitude = new float[width * height];
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+                magnitude[i] = l2Gradient
+                        ? (float) Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i])
+                        : Math.abs(dx[i]) + Math.abs(dy[i]);
+            }
+        });
+
+        // wynik piksela zależy tylko od jego dx, dy i modułów sąsiadów, więc można go zapisać w miejsce dx
+        suppressNonMaxima(dx, dy, magnitude);
+        this.suppressed = dx;
+
+        int count = 0;
+        float max = 0f;
+        for (float value : suppressed) {
+            if (value > 0) {
+                count++;
+                max = Math.max(max, value);
+            }
+        }
+        this.maxMagnitude = max;
+        this.candidates = new int[count];
+        for (int i = 0, c = 0; i < suppressed.length; i++) {
+            if (suppressed[i] > 0) {
+                candidates[c++] = i;
+            }
+        }
+    }
+
+    /**
+     * Krawędzie (255) dla podanych progów - tylko histereza. Progi są zamieniane, gdy threshold1 > threshold2.
+     */
+    public BufferedImage edges(double threshold1, double threshold2) {
+        double low = Math.min(threshold1, threshold2);
+        double high = Math.max(threshold1, threshold2);
+
+        BufferedImage result = RasterBytes.newGray(width, height);
+        byte[] edges = RasterBytes.denseBytes(result);
+        int[] stack = new int[Math.max(16, candidates.length / 8)];
+        for (int seed : candidates) {
+            if (edges[seed] != 0 || suppressed[seed] <= high) {
+                continue;
+            }
+            edges[seed] = (byte) 255;
+            int size = 0;
+            stack[size++] = seed;
+            while (size > 0) {
+                int index = stack[--size];
+                int x = index % width;
+                int y = index / width;
+                for (int ny = Math.max(0, y - 1); ny <= Math.min(height - 1, y + 1); ny++) {
+                    for (int nx = Math.max(0, x - 1); nx <= Math.min(width - 1, x + 1); nx++) {
+                        int neighbor = ny * width + nx;
+                        if (edges[neighbor] == 0 && suppressed[neighbor] > low) {
+                            edges[neighbor] = (byte) 255;
+                            if (size == stack.length) {
+                                stack = Arrays.copyOf(stack, size * 2);
+                            }
+                            stack[size++] = neighbor;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Progi {threshold1, threshold2} wyznaczone automatycznie; {0, 0} dla obrazu bez krawędzi.
+     */
+    public double[] autoThresholds(AutoThreshold mode) {
+        if (candidates.length == 0) {
+            return new double[]{0, 0};
+        }
+        switch (mode) {
+            case MEDIAN: {
+                float[] values = new float[candidates.length];
+                for (int i = 0; i < candidates.length; i++) {
+                    values[i] = suppressed[candidates[i]];
+                }
+                Arrays.sort(values);
+                double median = values[values.length / 2];
+                return new double[]{0.66 * median, 1.33 * median};
+            }
+            case OTSU: {
+                double threshold = otsuThreshold();
+                return new double[]{0.5 * threshold, threshold};
+            }
+            default:
+                throw new IllegalArgumentException("Unknown threshold mode: " + mode);
+        }
+    }
+
+    /**
+     * Próg Otsu dla histogramu modułu (256 przedziałów w zakresie 0..maxMagnitude).
+     */
+    private double otsuThreshold() {
+        int bins = 256;
+        double binWidth = maxMagnitude / bins;
+        long[] histogram = new long[bins];
+        for (int index : candidates) {
+            histogram[Math.min(bins - 1, (int) (suppressed[index] / binWidth))]++;
+        }
+
+        long total = candidates.length;
+        double sumAll = 0;
+        for (int i = 0; i < bins; i++) {
+            sumAll += (double) i * histogram[i];
+        }
+        long weightBackground = 0;
+        double sumBackground = 0;
+        double bestVariance = -1;
+        int bestBin = 0;
+        for (int i = 0; i < bins; i++) {
+            weightBackground += histogram[i];
+            if (weightBackground == 0) {
+                continue;
+            }
+            long weightForeground = total - weightBackground;
+            if (weightForeground == 0) {
+                break;
+            }
+            sumBackground += (double) i * histogram[i];
+            double meanBackground = sumBackground / weightBackground;
+            double meanForeground = (sumAll - sumBackground) / weightForeground;
+            double variance = (double) weightBackground * weightForeground
+                    * (meanBackground - meanForeground) * (meanBackground - meanForeground);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                bestBin = i;
+            }
+        }
+        // górna granica przedziału progowego
+        return (bestBin + 1) * binWidth;
+    }
+
+    /**
+     * Tłumienie niemaksymalne: moduł porównywany z sąsiadami wzdłuż kierunku gradientu
+     * (poziomo, pionowo lub po przekątnej), jak w Imgproc.Canny. Moduł poza obrazem jest równy 0.
+     */
+    private void suppressNonMaxima(float[] dx, float[] dy, float[] magnitude) {
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                for (int x = 0; x < width; x++) {
+                    int i = y * width + x;
+                    float m = magnitude[i];
+                    float gx = dx[i];
+                    float gy = dy[i];
+                    boolean maximum = false;
+                    if (m > 0) {
+                        double xs = Math.abs(gx);
+                        double ys = Math.abs(gy);
+                        double tg22x = xs * TAN_22_5;
+                        if (ys < tg22x) {
+                            maximum = m > at(magnitude, x - 1, y) && m >= at(magnitude, x + 1, y);
+                        } else if (ys > tg22x + 2 * xs) {
+                            maximum = m > at(magnitude, x, y - 1) && m >= at(magnitude, x, y + 1);
+                        } else {
+                            int s = (gx < 0) != (gy < 0) ? -1 : 1;
+                            maximum = m > at(magnitude, x - s, y - 1) && m > at(magnitude, x + s, y + 1);
+                        }
+                    }
+                    dx[i] = maximum ? m : 0f;
+                }
+            }
+        });
+    }
+
+    private float at(float[] magnitude, int x, int y) {
+        return (x < 0 || y < 0 || x >= width || y >= height) ? 0f : magnitude[y * width + x];
+    }
+
+    /**
+     * Maski pochodnej i wygładzania Sobela jak w getDerivKernels (bez normalizacji).
+     */
+    private static float[] derivativeKernel(int apertureSize) {
+        switch (apertureSize) {
+            case 3:
+                return new float[]{-1, 0, 1};
+            case 5:
+                return new float[]{-1, -2, 0, 2, 1};
+            default:
+                return new float[]{-1, -4, -5, 0, 5, 4, 1};
+        }
+    }
+
+    private static float[] smoothingKernel(int apertureSize) {
+        switch (apertureSize) {
+            case 3:
+                return new float[]{1, 2, 1};
+            case 5:
+                return new float[]{1, 4, 6, 4, 1};
+            default:
+                return new float[]{1, 6, 15, 20, 15, 6, 1};
+        }
+    }
+}
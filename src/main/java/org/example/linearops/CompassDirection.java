@@ -0,0 +1,41 @@
+package org.example.linearops;
+
+import lombok.Getter;
+
+/**
+ * Osiem kierunków masek kierunkowych (kolejność co 45°, przeciwnie do ruchu wskazówek zegara od wschodu).
+ */
+public enum CompassDirection {
+    EAST("East", "E"),
+    NORTH_EAST("North East", "NE"),
+    NORTH("North", "N"),
+    NORTH_WEST("North West", "NW"),
+    WEST("West", "W"),
+    SOUTH_WEST("South West", "SW"),
+    SOUTH("South", "S"),
+    SOUTH_EAST("South East", "SE");
+
+    @Getter
+    private final String displayName;
+    @Getter
+    private final String code;
+
+    CompassDirection(String displayName, String code) {
+        this.displayName = displayName;
+        this.code = code;
+    }
+
+    /**
+     * Kierunek z nazwy ("North East") lub skrótu ("NE"), bez rozróżniania wielkości liter.
+     */
+    public static CompassDirection fromName(String name) {
+        if (name != null) {
+            for (CompassDirection direction : values()) {
+                if (direction.displayName.equalsIgnoreCase(name.trim()) || direction.code.equalsIgnoreCase(name.trim())) {
+                    return direction;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid direction: " + name);
+    }
+}
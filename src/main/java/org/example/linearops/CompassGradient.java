@@ -0,0 +1,294 @@
+package org.example.linearops;
+
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Operator kierunkowy (kompasowy) 3x3: wszystkie osiem odpowiedzi masek Sobela lub Prewitta
+ * liczone w jednym przejściu - otoczenie piksela jest czytane raz dla wszystkich kierunków,
+ * zamiast ośmiu osobnych konwersji, ramek i filter2D. Brzegi uzupełniane są wirtualnie przez BorderPolicy.
+ * Oprócz odpowiedzi (opcjonalnie) wynik zawiera maksymalną odpowiedź z kierunkiem, w którym wystąpiła,
+ * oraz moduł i kierunek gradientu wyznaczone z masek wschodniej (gx) i południowej (gy).
+ */
+public final class CompassGradient {
+
+    /**
+     * Rodzina masek; maski w kolejności CompassDirection, zapisane wierszami 3x3.
+     */
+    public enum Family {
+        SOBEL(new float[][]{
+                {-1, 0, 1, -2, 0, 2, -1, 0, 1},     // East
+                {0, 1, 2, -1, 0, 1, -2, -1, 0},     // North East
+                {1, 2, 1, 0, 0, 0, -1, -2, -1},     // North
+                {2, 1, 0, 1, 0, -1, 0, -1, -2},     // North West
+                {1, 0, -1, 2, 0, -2, 1, 0, -1},     // West
+                {0, -2, -1, 1, 0, -1, 1, 2, 0},     // South West
+                {-1, -2, -1, 0, 0, 0, 1, 2, 1},     // South
+                {-2, -1, 0, -1, 0, 1, 0, 1, 2}      // South East
+        }),
+        PREWITT(new float[][]{
+                {-1, 0, 1, -1, 0, 1, -1, 0, 1},     // E
+                {0, 1, 1, -1, 0, 1, -1, -1, 0},     // NE
+                {1, 1, 1, 0, 0, 0, -1, -1, -1},     // N
+                {1, 1, 0, 1, 0, -1, 0, -1, -1},     // NW
+                {1, 0, -1, 1, 0, -1, 1, 0, -1},     // W
+                {0, -1, -1, 1, 0, -1, 1, 1, 0},     // SW
+                {-1, -1, -1, 0, 0, 0, 1, 1, 1},     // S
+                {-1, -1, 0, -1, 0, 1, 0, 1, 1}      // SE
+        });
+
+        private final float[][] masks;
+
+        Family(float[][] masks) {
+            this.masks = masks;
+        }
+
+        public float[] mask(CompassDirection direction) {
+            return masks[direction.ordinal()].clone();
+        }
+    }
+
+    private static final int DIRECTIONS = 8;
+    private static final int EAST = CompassDirection.EAST.ordinal();
+    private static final int SOUTH = CompassDirection.SOUTH.ordinal();
+
+    private CompassGradient() {
+    }
+
+    /**
+     * Odpowiedź jednej maski (jedno przejście, bez liczenia pozostałych kierunków).
+     */
+    public static float[] directional(BufferedImage grayImage, Family family, CompassDirection direction,
+                                      BorderPolicy border) {
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
+        float[] mask = family.masks[direction.ordinal()];
+        float[] response = new float[width * height];
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            float[] window = new float[9];
+            for (int y = fromRow; y < toRow; y++) {
+                int offset = y * width;
+                if (y == 0 || y == height - 1) {
+                    for (int x = 0; x < width; x++) {
+                        borderWindow(src, width, height, x, y, border, window);
+                        response[offset + x] = dot(mask, window);
+                    }
+                    continue;
+                }
+                int last = width - 1;
+                borderWindow(src, width, height, 0, y, border, window);
+                response[offset] = dot(mask, window);
+                if (last > 0) {
+                    borderWindow(src, width, height, last, y, border, window);
+                    response[offset + last] = dot(mask, window);
+                }
+                // wnętrze wiersza: trzy wiersze źródła czytane wprost, bez sprawdzania brzegów
+                int above = offset - width;
+                int below = offset + width;
+                for (int x = 1; x < last; x++) {
+                    response[offset + x] = dot(mask,
+                            src[above + x - 1] & 0xFF, src[above + x] & 0xFF, src[above + x + 1] & 0xFF,
+                            src[offset + x - 1] & 0xFF, src[offset + x] & 0xFF, src[offset + x + 1] & 0xFF,
+                            src[below + x - 1] & 0xFF, src[below + x] & 0xFF, src[below + x + 1] & 0xFF);
+                }
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Wszystkie kierunki w jednym przejściu. Przy keepResponses = false zapamiętywane są tylko
+     * maksimum, jego kierunek, moduł i kierunek gradientu (bez ośmiu płaszczyzn odpowiedzi).
+     */
+    public static Result compute(BufferedImage grayImage, Family family, BorderPolicy border, boolean keepResponses) {
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
+        Result result = new Result(width, height, keepResponses);
+        float[][] masks = family.masks;
+
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            float[] window = new float[9];
+            for (int y = fromRow; y < toRow; y++) {
+                int offset = y * width;
+                if (y == 0 || y == height - 1) {
+                    for (int x = 0; x < width; x++) {
+                        borderWindow(src, width, height, x, y, border, window);
+                        respond(masks, result, offset + x, window[0], window[1], window[2],
+                                window[3], window[4], window[5], window[6], window[7], window[8]);
+                    }
+                    continue;
+                }
+                int last = width - 1;
+                borderWindow(src, width, height, 0, y, border, window);
+                respond(masks, result, offset, window[0], window[1], window[2],
+                        window[3], window[4], window[5], window[6], window[7], window[8]);
+                if (last > 0) {
+                    borderWindow(src, width, height, last, y, border, window);
+                    respond(masks, result, offset + last, window[0], window[1], window[2],
+                            window[3], window[4], window[5], window[6], window[7], window[8]);
+                }
+                // wnętrze wiersza: trzy wiersze źródła czytane wprost, bez sprawdzania brzegów
+                int above = offset - width;
+                int below = offset + width;
+                for (int x = 1; x < last; x++) {
+                    respond(masks, result, offset + x,
+                            src[above + x - 1] & 0xFF, src[above + x] & 0xFF, src[above + x + 1] & 0xFF,
+                            src[offset + x - 1] & 0xFF, src[offset + x] & 0xFF, src[offset + x + 1] & 0xFF,
+                            src[below + x - 1] & 0xFF, src[below + x] & 0xFF, src[below + x + 1] & 0xFF);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Osiem odpowiedzi dla otoczenia p0..p8 (wierszami) zapisane pod indeksem index wyniku.
+     */
+    private static void respond(float[][] masks, Result result, int index,
+                                float p0, float p1, float p2, float p3, float p4,
+                                float p5, float p6, float p7, float p8) {
+        float max = Float.NEGATIVE_INFINITY;
+        int argmax = 0;
+        float gx = 0;
+        float gy = 0;
+        for (int d = 0; d < DIRECTIONS; d++) {
+            float value = dot(masks[d], p0, p1, p2, p3, p4, p5, p6, p7, p8);
+            if (result.responses != null) {
+                result.responses[d][index] = value;
+            }
+            if (value > max) {
+                max = value;
+                argmax = d;
+            }
+            if (d == EAST) {
+                gx = value;
+            } else if (d == SOUTH) {
+                gy = value;
+            }
+        }
+        result.maxResponse[index] = max;
+        result.direction[index] = (byte) argmax;
+        result.magnitude[index] = (float) Math.sqrt(gx * gx + gy * gy);
+        result.orientation[index] = (float) Math.atan2(gy, gx);
+    }
+
+    private static float dot(float[] mask, float[] window) {
+        return dot(mask, window[0], window[1], window[2], window[3], window[4],
+                window[5], window[6], window[7], window[8]);
+    }
+
+    private static float dot(float[] mask, float p0, float p1, float p2, float p3, float p4,
+                             float p5, float p6, float p7, float p8) {
+        return mask[0] * p0 + mask[1] * p1 + mask[2] * p2
+                + mask[3] * p3 + mask[4] * p4 + mask[5] * p5
+                + mask[6] * p6 + mask[7] * p7 + mask[8] * p8;
+    }
+
+    /**
+     * Otoczenie 3x3 piksela (x, y) z pierwszego lub ostatniego wiersza / kolumny, wierszami,
+     * z pikselami spoza obrazu uzupełnionymi przez politykę brzegu.
+     */
+    private static void borderWindow(byte[] src, int width, int height, int x, int y, BorderPolicy border,
+                                     float[] window) {
+        for (int row = 0, w = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                window[w++] = border.sample(src, width, height, x + column - 1, y + row - 1);
+            }
+        }
+    }
+
+    /**
+     * Wynik operatora kompasowego.
+     */
+    public static final class Result {
+        private final int width;
+        private final int height;
+        private final float[][] responses;
+        private final float[] maxResponse;
+        private final byte[] direction;
+        private final float[] magnitude;
+        private final float[] orientation;
+
+        private Result(int width, int height, boolean keepResponses) {
+            this.width = width;
+            this.height = height;
+            this.responses = keepResponses ? new float[DIRECTIONS][width * height] : null;
+            this.maxResponse = new float[width * height];
+            this.direction = new byte[width * height];
+            this.magnitude = new float[width * height];
+            this.orientation = new float[width * height];
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Odpowiedź maski danego kierunku (tylko przy keepResponses = true).
+         */
+        public float[] getResponse(CompassDirection compassDirection) {
+            if (responses == null) {
+                throw new IllegalArgumentException("Directional responses were not kept.");
+            }
+            return responses[compassDirection.ordinal()];
+        }
+
+        public float[] getMaxResponse() {
+            return maxResponse;
+        }
+
+        public CompassDirection getDirection(int x, int y) {
+            return CompassDirection.values()[direction[y * width + x]];
+        }
+
+        public float[] getMagnitude() {
+            return magnitude;
+        }
+
+        /**
+         * Kierunek gradientu atan2(gy, gx) w radianach (oś y w dół obrazu).
+         */
+        public float[] getOrientation() {
+            return orientation;
+        }
+
+        /**
+         * Maksymalna odpowiedź jako obraz 8-bitowy (|v| zaokrąglone i obcięte, jak convertScaleAbs).
+         */
+        public BufferedImage toMaxResponseImage() {
+            return toImage(maxResponse);
+        }
+
+        public BufferedImage toMagnitudeImage() {
+            return toImage(magnitude);
+        }
+
+        /**
+         * Mapa kierunków: kierunek o indeksie d (CompassDirection) jako poziom d * 255 / 7.
+         */
+        public BufferedImage toDirectionImage() {
+            BufferedImage image = RasterBytes.newGray(width, height);
+            byte[] pixels = RasterBytes.denseBytes(image);
+            for (int i = 0; i < pixels.length; i++) {
+                pixels[i] = (byte) (direction[i] * 255 / (DIRECTIONS - 1));
+            }
+            return image;
+        }
+
+        private BufferedImage toImage(float[] values) {
+            float[] absolute = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                absolute[i] = Math.abs(values[i]);
+            }
+            return ConvolutionEngine.toGray(absolute, width, height);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.example.linearops;
+
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splot obrazu w skali szarości maską o dowolnym rozmiarze (korelacja jak w filter2D, bez odwracania maski).
+ * Maski (prawie) separowalne i niskiego rzędu są liczone jako przejścia 1D: poziome, potem pionowe,
+ * co daje O(k) zamiast O(k^2) mnożeń na piksel. Pozostałe maski - bezpośrednio, wiersz maski po wierszu.
+ * Oba przejścia są wykonywane równolegle dla pasów wierszy.
+ * Brzegi są uzupełniane wirtualnie przez BorderPolicy - bez kopiowania obrazu do większej ramki.
+ */
+public final class ConvolutionEngine {
+
+    private ConvolutionEngine() {
+    }
+
+    /**
+     * Splot obrazu 8-bitowego (kanał 0), wynik zaokrąglony i obcięty do 0..255 (jak filter2D z ddepth = -1).
+     */
+    public static BufferedImage convolveGray(BufferedImage image, ConvolutionKernel kernel, BorderPolicy border) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        float[] result = convolve(toFloat(image), width, height, kernel, border);
+        return toGray(result, width, height);
+    }
+
+    /**
+     * Splot płaszczyzny float (width x height, wiersz po wierszu). Zwraca nową tablicę tego samego rozmiaru.
+     */
+    public static float[] convolve(float[] src, int width, int height, ConvolutionKernel kernel, BorderPolicy border) {
+        if (src.length != width * height) {
+            throw new IllegalArgumentException("Source size does not match image dimensions.");
+        }
+        float[] dst = new float[width * height];
+        if (kernel.prefersSeparable()) {
+            List<ConvolutionKernel.SeparableTerm> terms = kernel.separableTerms();
+            float[] horizontal = terms.isEmpty() ? null : new float[width * height];
+            for (ConvolutionKernel.SeparableTerm term : terms) {
+                convolveRows(src, horizontal, width, height, term.row(), border);
+                accumulateColumns(horizontal, dst, width, height, term.column(), border,
+                        border.getConstantValue() * sum(term.row()));
+            }
+        } else {
+            convolveDense(src, dst, width, height, kernel, border);
+        }
+        return dst;
+    }
+
+    /**
+     * Przejście poziome: dst[y][x] = suma row[j] * src[y][x + j - r].
+     */
+    private static void convolveRows(float[] src, float[] dst, int width, int height, float[] row,
+                                     BorderPolicy border) {
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            Arrays.fill(dst, fromRow * width, toRow * width, 0f);
+            for (int y = fromRow; y < toRow; y++) {
+                accumulateRow(src, y * width, width, row, 0, row.length, border, dst, y * width);
+            }
+        });
+    }
+
+    /**
+     * Przejście pionowe dodawane do dst: dst[y][x] += suma column[j] * src[y + j - r][x].
+     * Wiersze spoza obrazu dla BORDER_CONSTANT mają wartość constantRow (stała po przejściu poziomym).
+     */
+    private static void accumulateColumns(float[] src, float[] dst, int width, int height, float[] column,
+                                          BorderPolicy border, float constantRow) {
+        int radius = column.length / 2;
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int offset = y * width;
+                for (int j = 0; j < column.length; j++) {
+                    float weight = column[j];
+                    int sourceRow = border.index(y + j - radius, height);
+                    if (sourceRow < 0) {
+                        float value = weight * constantRow;
+                        for (int x = 0; x < width; x++) {
+                            dst[offset + x] += value;
+                        }
+                        continue;
+                    }
+                    int sourceOffset = sourceRow * width;
+                    for (int x = 0; x < width; x++) {
+                        dst[offset + x] += weight * src[sourceOffset + x];
+                    }
+                }
+            }
+        });
+    }
+
+    private static void convolveDense(float[] src, float[] dst, int width, int height, ConvolutionKernel kernel,
+                                      BorderPolicy border) {
+        int kernelWidth = kernel.getWidth();
+        int kernelHeight = kernel.getHeight();
+        int radiusY = kernelHeight / 2;
+        float[] weights = kernel.weights();
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int offset = y * width;
+                for (int ky = 0; ky < kernelHeight; ky++) {
+                    int weightOffset = ky * kernelWidth;
+                    int sourceRow = border.index(y + ky - radiusY, height);
+                    if (sourceRow < 0) {
+                        float value = 0f;
+                        for (int kx = 0; kx < kernelWidth; kx++) {
+                            value += weights[weightOffset + kx] * border.getConstantValue();
+                        }
+                        for (int x = 0; x < width; x++) {
+                            dst[offset + x] += value;
+                        }
+                        continue;
+                    }
+                    accumulateRow(src, sourceRow * width, width, weights, weightOffset, kernelWidth, border,
+                            dst, offset);
+                }
+            }
+        });
+    }
+
+    /**
+     * dst[x] += suma weights[j] * src[x + j - r] dla jednego wiersza. Wnętrze wiersza czytane jest
+     * bezpośrednio ze źródła, bez sprawdzania zakresu; tylko r pikseli przy każdym brzegu
+     * przechodzi przez politykę brzegu.
+     */
+    private static void accumulateRow(float[] src, int sourceOffset, int width, float[] weights, int weightOffset,
+                                      int length, BorderPolicy border, float[] dst, int dstOffset) {
+        int radius = length / 2;
+        int interiorFrom = Math.min(radius, width);
+        int interiorTo = Math.max(interiorFrom, width - radius);
+        for (int x = interiorFrom; x < interiorTo; x++) {
+            int base = sourceOffset + x - radius;
+            float sum = 0f;
+            for (int j = 0; j < length; j++) {
+                sum += weights[weightOffset + j] * src[base + j];
+            }
+            dst[dstOffset + x] += sum;
+        }
+        for (int x = 0; x < interiorFrom; x++) {
+            dst[dstOffset + x] += edgeSum(src, sourceOffset, width, weights, weightOffset, length, border, x);
+        }
+        for (int x = interiorTo; x < width; x++) {
+            dst[dstOffset + x] += edgeSum(src, sourceOffset, width, weights, weightOffset, length, border, x);
+        }
+    }
+
+    private static float edgeSum(float[] src, int sourceOffset, int width, float[] weights, int weightOffset,
+                                 int length, BorderPolicy border, int x) {
+        int radius = length / 2;
+        float sum = 0f;
+        for (int j = 0; j < length; j++) {
+            int column = border.index(x + j - radius, width);
+            sum += weights[weightOffset + j] * (column < 0 ? border.getConstantValue() : src[sourceOffset + column]);
+        }
+        return sum;
+    }
+
+    static float[] toFloat(BufferedImage image) {
+        byte[] pixels = RasterBytes.grayBytes(image);
+        float[] values = new float[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            values[i] = pixels[i] & 0xFF;
+        }
+        return values;
+    }
+
+    static BufferedImage toGray(float[] values, int width, int height) {
+        BufferedImage image = RasterBytes.newGray(width, height);
+        byte[] pixels = RasterBytes.denseBytes(image);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int i = fromRow * width, end = toRow * width; i < end; i++) {
+                // zaokrąglenie do parzystej i wysycenie, jak saturate_cast<uchar>
+                pixels[i] = (byte) Math.max(0, Math.min(255, (int) Math.rint(values[i])));
+            }
+        });
+        return image;
+    }
+
+    private static float sum(float[] values) {
+        float sum = 0f;
+        for (float value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+}
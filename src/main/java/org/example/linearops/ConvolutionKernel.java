@@ -0,0 +1,304 @@
+package org.example.linearops;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Maska splotu o dowolnym rozmiarze (punkt zaczepienia w środku, jak w filter2D).
+ * Maskę można rozłożyć przez SVD na sumę składników separowalnych (kolumna x wiersz):
+ * maska rzędu 1 jest liczona jako dwa przejścia 1D, maska niskiego rzędu - jako kilka takich par.
+ */
+public final class ConvolutionKernel {
+
+    /**
+     * Dopuszczalny łączny błąd przybliżenia: suma |K - przybliżenie| * 255 < 0.5,
+     * czyli wynik 8-bitowy różni się od splotu pełną maską o mniej niż pół poziomu szarości.
+     */
+    private static final double MAX_ABSOLUTE_ERROR = 0.5 / 255.0;
+
+    /**
+     * Kernele Gaussa używane przez OpenCV dla sigma <= 0 i rozmiarów 1, 3, 5, 7.
+     */
+    private static final float[][] SMALL_GAUSSIAN = {
+            {1f},
+            {0.25f, 0.5f, 0.25f},
+            {0.0625f, 0.25f, 0.375f, 0.25f, 0.0625f},
+            {0.03125f, 0.109375f, 0.21875f, 0.28125f, 0.21875f, 0.109375f, 0.03125f}
+    };
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    private final float[] weights;
+    private List<SeparableTerm> terms;
+
+    private ConvolutionKernel(int width, int height, float[] weights) {
+        if (width <= 0 || height <= 0 || width % 2 == 0 || height % 2 == 0) {
+            throw new IllegalArgumentException("Kernel dimensions must be positive and odd.");
+        }
+        this.width = width;
+        this.height = height;
+        this.weights = weights;
+    }
+
+    /**
+     * Maska z tablicy [wiersz][kolumna].
+     */
+    public static ConvolutionKernel of(float[][] mask) {
+        int height = mask.length;
+        int width = height == 0 ? 0 : mask[0].length;
+        float[] weights = new float[width * height];
+        for (int y = 0; y < height; y++) {
+            if (mask[y].length != width) {
+                throw new IllegalArgumentException("Kernel rows must have equal length.");
+            }
+            System.arraycopy(mask[y], 0, weights, y * width, width);
+        }
+        return new ConvolutionKernel(width, height, weights);
+    }
+
+    /**
+     * Maska całkowitoliczbowa podana przez użytkownika (np. maska Laplace'a).
+     */
+    public static ConvolutionKernel fromMask(int[][] mask) {
+        float[][] values = new float[mask.length][];
+        for (int y = 0; y < mask.length; y++) {
+            values[y] = new float[mask[y].length];
+            for (int x = 0; x < mask[y].length; x++) {
+                values[y][x] = mask[y][x];
+            }
+        }
+        return of(values);
+    }
+
+    /**
+     * Maska separowalna column x row (zapisana od razu jako jeden składnik, bez SVD).
+     */
+    public static ConvolutionKernel separable(float[] column, float[] row) {
+        float[] weights = new float[column.length * row.length];
+        for (int y = 0; y < column.length; y++) {
+            for (int x = 0; x < row.length; x++) {
+                weights[y * row.length + x] = column[y] * row[x];
+            }
+        }
+        ConvolutionKernel kernel = new ConvolutionKernel(row.length, column.length, weights);
+        kernel.terms = Collections.singletonList(new SeparableTerm(column.clone(), row.clone()));
+        return kernel;
+    }
+
+    /**
+     * Uśrednienie w oknie size x size.
+     */
+    public static ConvolutionKernel box(int size) {
+        float[] line = new float[size];
+        Arrays.fill(line, 1f / size);
+        return separable(line, line);
+    }
+
+    /**
+     * Filtr Gaussa size x size; dla sigma <= 0 sigma jest wyznaczana z rozmiaru tak jak w GaussianBlur.
+     */
+    public static ConvolutionKernel gaussian(int size, double sigma) {
+        return separable(gaussianLine(size, sigma), gaussianLine(size, sigma));
+    }
+
+    static float[] gaussianLine(int size, double sigma) {
+        if (size <= 0 || size % 2 == 0) {
+            throw new IllegalArgumentException("Gaussian kernel size must be positive and odd.");
+        }
+        if (sigma <= 0 && size <= 7) {
+            return SMALL_GAUSSIAN[size / 2].clone();
+        }
+        double s = sigma > 0 ? sigma : 0.3 * ((size - 1) * 0.5 - 1) + 0.8;
+        double[] values = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            double x = i - (size - 1) / 2.0;
+            values[i] = Math.exp(-(x * x) / (2 * s * s));
+            sum += values[i];
+        }
+        float[] line = new float[size];
+        for (int i = 0; i < size; i++) {
+            line[i] = (float) (values[i] / sum);
+        }
+        return line;
+    }
+
+    public float get(int x, int y) {
+        return weights[y * width + x];
+    }
+
+    float[] weights() {
+        return weights;
+    }
+
+    /**
+     * Suma wag maski.
+     */
+    public double sum() {
+        double sum = 0;
+        for (float weight : weights) {
+            sum += weight;
+        }
+        return sum;
+    }
+
+    /**
+     * Rozkład maski na składniki column x row (SVD), obcięty do najmniejszej liczby składników,
+     * przy której błąd przybliżenia jest pomijalny dla obrazów 8-bitowych.
+     */
+    public synchronized List<SeparableTerm> separableTerms() {
+        if (terms == null) {
+            terms = Collections.unmodifiableList(decompose());
+        }
+        return terms;
+    }
+
+    /**
+     * Czy maska jest (prawie) separowalna - wystarcza jeden składnik.
+     */
+    public boolean isSeparable() {
+        return separableTerms().size() == 1;
+    }
+
+    /**
+     * Czy splot sumą składników separowalnych wymaga mniej mnożeń na piksel niż pełna maska.
+     */
+    public boolean prefersSeparable() {
+        return separableTerms().size() * (width + height) < width * height;
+    }
+
+    private List<SeparableTerm> decompose() {
+        int rows = height;
+        int cols = width;
+        // jednostronna metoda Jacobiego: kolumny U = K * V stają się ortogonalne
+        double[][] u = new double[rows][cols];
+        double[][] v = new double[cols][cols];
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                u[y][x] = weights[y * cols + x];
+            }
+        }
+        for (int i = 0; i < cols; i++) {
+            v[i][i] = 1.0;
+        }
+
+        for (int sweep = 0; sweep < 60; sweep++) {
+            boolean rotated = false;
+            for (int p = 0; p < cols - 1; p++) {
+                for (int q = p + 1; q < cols; q++) {
+                    double alpha = 0;
+                    double beta = 0;
+                    double gamma = 0;
+                    for (int y = 0; y < rows; y++) {
+                        alpha += u[y][p] * u[y][p];
+                        beta += u[y][q] * u[y][q];
+                        gamma += u[y][p] * u[y][q];
+                    }
+                    if (Math.abs(gamma) <= 1e-15 * Math.sqrt(alpha * beta) || gamma == 0) {
+                        continue;
+                    }
+                    rotated = true;
+                    double zeta = (beta - alpha) / (2 * gamma);
+                    double t = Math.signum(zeta) / (Math.abs(zeta) + Math.sqrt(1 + zeta * zeta));
+                    if (zeta == 0) {
+                        t = 1;
+                    }
+                    double c = 1 / Math.sqrt(1 + t * t);
+                    double s = c * t;
+                    for (int y = 0; y < rows; y++) {
+                        double up = u[y][p];
+                        u[y][p] = c * up - s * u[y][q];
+                        u[y][q] = s * up + c * u[y][q];
+                    }
+                    for (int y = 0; y < cols; y++) {
+                        double vp = v[y][p];
+                        v[y][p] = c * vp - s * v[y][q];
+                        v[y][q] = s * vp + c * v[y][q];
+                    }
+                }
+            }
+            if (!rotated) {
+                break;
+            }
+        }
+
+        // składnik j: kolumna u_j * sigma_j, wiersz v_j; od największej wartości osobliwej
+        List<Integer> order = new ArrayList<>();
+        double[] sigma = new double[cols];
+        for (int j = 0; j < cols; j++) {
+            double norm = 0;
+            for (int y = 0; y < rows; y++) {
+                norm += u[y][j] * u[y][j];
+            }
+            sigma[j] = Math.sqrt(norm);
+            order.add(j);
+        }
+        order.sort((a, b) -> Double.compare(sigma[b], sigma[a]));
+
+        List<SeparableTerm> result = new ArrayList<>();
+        double[] approximation = new double[rows * cols];
+        for (int j : order) {
+            if (residual(approximation) < MAX_ABSOLUTE_ERROR) {
+                break;
+            }
+            float[] column = new float[rows];
+            float[] row = new float[cols];
+            for (int y = 0; y < rows; y++) {
+                column[y] = (float) u[y][j];
+            }
+            for (int x = 0; x < cols; x++) {
+                row[x] = (float) v[x][j];
+            }
+            for (int y = 0; y < rows; y++) {
+                for (int x = 0; x < cols; x++) {
+                    approximation[y * cols + x] += (double) column[y] * row[x];
+                }
+            }
+            result.add(new SeparableTerm(column, row));
+        }
+        return result;
+    }
+
+    private double residual(double[] approximation) {
+        double error = 0;
+        for (int i = 0; i < weights.length; i++) {
+            error += Math.abs(weights[i] - approximation[i]);
+        }
+        return error;
+    }
+
+    /**
+     * Składnik separowalny: maska column (pionowa) x row (pozioma).
+     */
+    public static final class SeparableTerm {
+        private final float[] column;
+        private final float[] row;
+
+        private SeparableTerm(float[] column, float[] row) {
+            this.column = column;
+            this.row = row;
+        }
+
+        public float[] getColumn() {
+            return column.clone();
+        }
+
+        public float[] getRow() {
+            return row.clone();
+        }
+
+        float[] column() {
+            return column;
+        }
+
+        float[] row() {
+            return row;
+        }
+    }
+}
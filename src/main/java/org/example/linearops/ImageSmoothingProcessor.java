@@ -1,10 +1,8 @@
 package org.example.linearops;
 
-import org.opencv.core.*;
-import org.opencv.imgproc.Imgproc;
+import org.example.OpenCVUtils;
 
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 
 /**
  * Klasa do wygładzania obrazów.
@@ -14,115 +12,67 @@ import java.awt.image.DataBufferByte;
  */
 public class ImageSmoothingProcessor {
 
-    private final BorderFillProcessor borderFillProcessor;
-
-    public ImageSmoothingProcessor(BorderFillProcessor borderFillProcessor) {
-        this.borderFillProcessor = borderFillProcessor;
-    }
-
+    /**
+     * Wygładzanie wybraną maską. Dla "weighted_average" k jest wagą środka maski 3x3,
+     * dla "gaussian" - rozmiarem maski (nieparzystym, np. 31 przy wyrównywaniu tła).
+     * Maski separowalne (Gauss, uśrednienie z k = 1) są liczone jako dwa przejścia 1D.
+     * Brzeg według borderType jest uzupełniany wirtualnie, wynik ma rozmiar obrazu wejściowego.
+     */
     public BufferedImage applySmoothing(BufferedImage inputImage, String method, int k, int borderType, int constantValue) {
-        BufferedImage imageWithBorders = borderFillProcessor.applyBorderFill(inputImage, borderType, constantValue);
-
-        Mat src = bufferedImageToMat(imageWithBorders);
-        Mat dst = new Mat();
-
-        Mat kernel;
-        if ("gaussian".equalsIgnoreCase(method)) {
-            Imgproc.GaussianBlur(src, dst, new Size(3, 3), 0);
-        } else {
-            kernel = createKernel(method, k);
-            Imgproc.filter2D(src, dst, -1, kernel);
-        }
-        return matToBufferedImage(dst);
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(inputImage);
+        return ConvolutionEngine.convolveGray(grayImage, createKernel(method, k), BorderPolicy.of(borderType, constantValue));
     }
 
-
-    private Mat createKernel(String method, int k) {
+    /**
+     * Maska dla wybranej metody wygładzania.
+     */
+    public ConvolutionKernel createKernel(String method, int k) {
         switch (method.toLowerCase()) {
             case "average":
                 return createCustomAverageKernel();
             case "weighted_average":
                 return createWeightedKernel(k);
             case "gaussian":
-                return createGaussianKernel();
+                return createGaussianKernel(k);
             default:
                 throw new IllegalArgumentException("Unknown smoothing method: " + method);
         }
     }
 
-    private Mat createCustomAverageKernel() {
-        Mat kernel = new Mat(3, 3, CvType.CV_32F);
-        float[] maskValues = {
-                0, 1, 0,
-                1, 1, 1,
-                0, 1, 0
+    private ConvolutionKernel createCustomAverageKernel() {
+        float[][] maskValues = {
+                {0, 1, 0},
+                {1, 1, 1},
+                {0, 1, 0}
         };
-        float sum = 5;
-        for (int i = 0; i < maskValues.length; i++) {
-            maskValues[i] /= sum;
-        }
-        kernel.put(0, 0, maskValues);
-        return kernel;
+        return normalized(maskValues, 5);
     }
 
-    private Mat createWeightedKernel(int k) {
-        Mat kernel = new Mat(3, 3, CvType.CV_32F);
-        float[] weights = new float[]{
-                1, 1, 1,
-                1, k, 1,
-                1, 1, 1
+    private ConvolutionKernel createWeightedKernel(int k) {
+        float[][] weights = {
+                {1, 1, 1},
+                {1, k, 1},
+                {1, 1, 1}
         };
-        float sum = 8 + k;
-        for (int i = 0; i < weights.length; i++) {
-            weights[i] /= sum;
-        }
-        kernel.put(0, 0, weights);
-        return kernel;
+        return normalized(weights, 8 + k);
     }
 
-    private Mat createGaussianKernel() {
-        Mat kernel = new Mat(3, 3, CvType.CV_32F);
-        float[] gaussianWeights = new float[]{
-                1, 2, 1,
-                2, 5, 2,
-                1, 2, 1
-        };
-        float sum = 16;
-        for (int i = 0; i < gaussianWeights.length; i++) {
-            gaussianWeights[i] /= sum;
-        }
-        kernel.put(0, 0, gaussianWeights);
-        return kernel;
-    }
-
-    private Mat bufferedImageToMat(BufferedImage bi) {
-        Mat mat;
-        switch (bi.getType()) {
-            case BufferedImage.TYPE_BYTE_GRAY:
-                mat = new Mat(bi.getHeight(), bi.getWidth(), CvType.CV_8UC1);
-                byte[] dataGray = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
-                mat.put(0, 0, dataGray);
-                break;
-            case BufferedImage.TYPE_3BYTE_BGR:
-                mat = new Mat(bi.getHeight(), bi.getWidth(), CvType.CV_8UC3);
-                byte[] dataBGR = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
-                mat.put(0, 0, dataBGR);
-                break;
-            default:
-                throw new IllegalArgumentException("Unsupported image type: " + bi.getType());
+    /**
+     * Filtr Gaussa size x size, sigma wyznaczana z rozmiaru (jak GaussianBlur z sigma = 0).
+     */
+    private ConvolutionKernel createGaussianKernel(int size) {
+        if (size < 1 || size % 2 == 0) {
+            throw new IllegalArgumentException("Gaussian kernel size must be a positive odd number.");
         }
-        return mat;
+        return ConvolutionKernel.gaussian(size, 0);
     }
 
-    private BufferedImage matToBufferedImage(Mat mat) {
-        int type = BufferedImage.TYPE_BYTE_GRAY;
-        if (mat.channels() == 3) {
-            type = BufferedImage.TYPE_3BYTE_BGR;
+    private ConvolutionKernel normalized(float[][] mask, float sum) {
+        for (float[] row : mask) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] /= sum;
+            }
         }
-        BufferedImage image = new BufferedImage(mat.cols(), mat.rows(), type);
-        byte[] data = new byte[mat.rows() * mat.cols() * mat.channels()];
-        mat.get(0, 0, data);
-        image.getRaster().setDataElements(0, 0, mat.cols(), mat.rows(), data);
-        return image;
+        return ConvolutionKernel.of(mask);
     }
 }
@@ -0,0 +1,158 @@
+package org.example.linearops;
+
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Filtr rangowy (mediana, minimum, maksimum, dowolny percentyl) dla obrazów 8-bitowych
+ * w oknie k x k o dowolnym nieparzystym k - algorytm Perreault-Hébert ze stałym kosztem na piksel.
+ * Dla każdej kolumny utrzymywany jest histogram k pikseli tej kolumny; przejście do następnego wiersza
+ * zmienia w każdym histogramie kolumny tylko dwa piksele, a przesunięcie okna w prawo dodaje
+ * jeden histogram kolumny i odejmuje drugi. Rangę odszukuje się najpierw w histogramie zgrubnym
+ * (16 przedziałów po 16 poziomów), potem w 16 poziomach wybranego przedziału - histogram dokładny
+ * jest aktualizowany leniwie, tylko dla przedziałów, w których faktycznie szukana jest ranga.
+ * Pasy wierszy są przetwarzane równolegle, każdy z własnymi histogramami kolumn.
+ */
+public final class RankFilter {
+
+    private static final int LEVELS = 256;
+    private static final int COARSE = 16;
+
+    private RankFilter() {
+    }
+
+    /**
+     * Percentyl w zakresie 0..1: 0 - minimum, 0.5 - mediana, 1 - maksimum.
+     * Ranga w oknie k*k pikseli to round(percentile * (k*k - 1)).
+     * Piksele spoza obrazu według polityki brzegu (dla wartości stałej - poziom 0..255).
+     */
+    public static BufferedImage apply(BufferedImage grayImage, int kernelSize, double percentile, BorderPolicy border) {
+        if (kernelSize < 1 || kernelSize % 2 == 0) {
+            throw new IllegalArgumentException("Kernel size must be a positive odd number.");
+        }
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 1.");
+        }
+        int borderValue = Math.round(border.getConstantValue());
+        if (border.isConstant() && (borderValue < 0 || borderValue > 255)) {
+            throw new IllegalArgumentException("Constant value must be between 0 and 255.");
+        }
+
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
+        BufferedImage result = RasterBytes.newGray(width, height);
+        byte[] dst = RasterBytes.denseBytes(result);
+
+        int radius = kernelSize / 2;
+        int rank = (int) Math.round(percentile * ((long) kernelSize * kernelSize - 1));
+        int paddedWidth = width + 2 * radius;
+        // kolumna okna -> kolumna obrazu (-1: wartość stała)
+        int[] columnMap = border.indexMap(width, radius);
+
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            int[] columns = new int[paddedWidth * LEVELS];
+            int[] coarseColumns = new int[paddedWidth * COARSE];
+            int[] window = new int[LEVELS];
+            int[] coarseWindow = new int[COARSE];
+            // pozycja okna, dla której aktualny jest przedział b histogramu dokładnego
+            int[] synced = new int[COARSE];
+
+            for (int y = fromRow - radius; y <= fromRow + radius; y++) {
+                updateRow(src, width, height, y, 1, columnMap, border, borderValue, columns, coarseColumns);
+            }
+
+            for (int y = fromRow; y < toRow; y++) {
+                Arrays.fill(coarseWindow, 0);
+                for (int px = 0; px < kernelSize; px++) {
+                    int coarseBase = px * COARSE;
+                    for (int i = 0; i < COARSE; i++) {
+                        coarseWindow[i] += coarseColumns[coarseBase + i];
+                    }
+                }
+                Arrays.fill(synced, Integer.MIN_VALUE);
+
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    if (x > 0) {
+                        int coarseIn = (x + kernelSize - 1) * COARSE;
+                        int coarseOut = (x - 1) * COARSE;
+                        for (int i = 0; i < COARSE; i++) {
+                            coarseWindow[i] += coarseColumns[coarseIn + i] - coarseColumns[coarseOut + i];
+                        }
+                    }
+
+                    int cumulative = 0;
+                    int bucket = 0;
+                    while (cumulative + coarseWindow[bucket] <= rank) {
+                        cumulative += coarseWindow[bucket];
+                        bucket++;
+                    }
+                    syncBucket(window, columns, bucket, synced, x, kernelSize);
+
+                    int level = bucket << 4;
+                    while (cumulative + window[level] <= rank) {
+                        cumulative += window[level];
+                        level++;
+                    }
+                    dst[offset + x] = (byte) level;
+                }
+
+                if (y + 1 < toRow) {
+                    updateRow(src, width, height, y - radius, -1, columnMap, border, borderValue, columns, coarseColumns);
+                    updateRow(src, width, height, y + radius + 1, 1, columnMap, border, borderValue, columns, coarseColumns);
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Aktualizuje 16 poziomów przedziału bucket histogramu okna do pozycji x - leniwie, tylko dla
+     * przedziału, w którym leży szukana ranga: przesuwając od ostatniej aktualnej pozycji
+     * lub licząc od nowa, gdy przedział był dawno używany.
+     */
+    private static void syncBucket(int[] window, int[] columns, int bucket, int[] synced, int x, int kernelSize) {
+        int from = bucket << 4;
+        int last = synced[bucket];
+        if (last == x) {
+            return;
+        }
+        if (last == Integer.MIN_VALUE || x - last >= kernelSize) {
+            Arrays.fill(window, from, from + COARSE, 0);
+            for (int px = x; px < x + kernelSize; px++) {
+                int base = px * LEVELS + from;
+                for (int i = 0; i < COARSE; i++) {
+                    window[from + i] += columns[base + i];
+                }
+            }
+        } else {
+            for (int position = last + 1; position <= x; position++) {
+                int in = (position + kernelSize - 1) * LEVELS + from;
+                int out = (position - 1) * LEVELS + from;
+                for (int i = 0; i < COARSE; i++) {
+                    window[from + i] += columns[in + i] - columns[out + i];
+                }
+            }
+        }
+        synced[bucket] = x;
+    }
+
+    /**
+     * Dodaje (delta = 1) lub usuwa (delta = -1) wiersz y (po uzupełnieniu brzegu) z histogramów kolumn.
+     */
+    private static void updateRow(byte[] src, int width, int height, int y, int delta, int[] columnMap,
+                                  BorderPolicy border, int borderValue, int[] columns, int[] coarseColumns) {
+        int sourceRow = border.index(y, height);
+        int offset = sourceRow * width;
+        for (int px = 0; px < columnMap.length; px++) {
+            int sourceColumn = columnMap[px];
+            int value = (sourceRow < 0 || sourceColumn < 0) ? borderValue : src[offset + sourceColumn] & 0xFF;
+            columns[px * LEVELS + value] += delta;
+            coarseColumns[px * COARSE + (value >> 4)] += delta;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.example.linearstreach;
 
 import lombok.extern.log4j.Log4j2;
+import org.example.histogram.HistogramEngine;
+import org.example.histogram.ImageHistogram;
 import org.example.histogram.LUTGenerator;
 
 import java.awt.image.BufferedImage;
@@ -26,16 +28,26 @@ public class LinearStretchProcessor {
         if (image == null) {
             throw new IllegalArgumentException("Image cannot be null.");
         }
+        applyLinearStretch(image, HistogramEngine.compute(image), withClipping, clippingPercentage);
+    }
+
+    /**
+     * Jak wyżej, ale z gotowym histogramem obrazu (bez ponownego liczenia).
+     */
+    public void applyLinearStretch(BufferedImage image, ImageHistogram histogram, boolean withClipping, double clippingPercentage) {
+        if (image == null || histogram == null) {
+            throw new IllegalArgumentException("Image and histogram cannot be null.");
+        }
         if (clippingPercentage < 0 || clippingPercentage > 1) {
             throw new IllegalArgumentException("Clipping percentage must be between 0 and 1.");
         }
 
         if (withClipping) {
             log.info("Applying linear stretch WITH clipping. Clipping = {}%", clippingPercentage * 100);
-            applyLinearStretchWithClipping(image, clippingPercentage);
+            applyLinearStretchWithClipping(image, histogram.getLuminance(), clippingPercentage);
         } else {
             log.info("Applying linear stretch WITHOUT clipping.");
-            applyLinearStretchWithoutClipping(image);
+            applyLinearStretchWithoutClipping(image, histogram);
         }
     }
 
@@ -57,17 +69,7 @@ public class LinearStretchProcessor {
         log.info("Applying manual range stretch: src=[{}..{}], dst=[{}..{}]", p1, p2, q3, q4);
 
         // Budujemy LUT: [p1..p2] -> [q3..q4]
-        int[] lut = new int[256];
-        for (int i = 0; i < 256; i++) {
-            if (i <= p1) {
-                lut[i] = q3;
-            } else if (i >= p2) {
-                lut[i] = q4;
-            } else {
-                double fraction = (double)(i - p1) / (p2 - p1);
-                lut[i] = (int)(q3 + fraction * (q4 - q3));
-            }
-        }
+        int[] lut = lutGenerator.generateRangeStretchLUT(p1, p2, q3, q4);
 
         // Zastosowanie LUT do obrazu (kanał 0)
         transformImageWithLUT(image, lut);
@@ -76,21 +78,10 @@ public class LinearStretchProcessor {
     /**
      * Liniowe rozciąganie histogramu bez obcinania wartości (auto [min..max] -> [0..255]).
      */
-    private void applyLinearStretchWithoutClipping(BufferedImage image) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        int[] histogram = lutGenerator.generateHistogramLUT(image);
-
-        // Znalezienie minIntensity i maxIntensity
-        int minIntensity = 0;
-        while (minIntensity < 256 && histogram[minIntensity] == 0) {
-            minIntensity++;
-        }
-        int maxIntensity = 255;
-        while (maxIntensity >= 0 && histogram[maxIntensity] == 0) {
-            maxIntensity--;
-        }
+    private void applyLinearStretchWithoutClipping(BufferedImage image, ImageHistogram histogram) {
+        // minIntensity i maxIntensity są wyznaczane razem z histogramem
+        int minIntensity = histogram.getMinIntensity();
+        int maxIntensity = histogram.getMaxIntensity();
 
         log.info("Linear stretch WITHOUT clipping -> minIntensity={}, maxIntensity={}", minIntensity, maxIntensity);
 
@@ -99,16 +90,7 @@ public class LinearStretchProcessor {
             return;
         }
 
-        int[] lut = new int[256];
-        for (int i = 0; i < 256; i++) {
-            if (i <= minIntensity) {
-                lut[i] = 0;
-            } else if (i >= maxIntensity) {
-                lut[i] = 255;
-            } else {
-                lut[i] = (int) (((i - minIntensity) * 255.0) / (maxIntensity - minIntensity));
-            }
-        }
+        int[] lut = lutGenerator.generateLinearStretchLUT(minIntensity, maxIntensity);
 
         transformImageWithLUT(image, lut);
     }
@@ -116,18 +98,14 @@ public class LinearStretchProcessor {
     /**
      * Liniowe rozciąganie histogramu z obcinaniem (auto find lowerBound, upperBound).
      */
-    private void applyLinearStretchWithClipping(BufferedImage image, double clippingPercentage) {
-        int width = image.getWidth();
-        int height = image.getHeight();
-        int totalPixels = width * height;
-
-        int[] histogram = lutGenerator.generateHistogramLUT(image);
+    private void applyLinearStretchWithClipping(BufferedImage image, int[] histogram, double clippingPercentage) {
+        int totalPixels = image.getWidth() * image.getHeight();
 
         // Ile pikseli obcinamy z dołu i z góry
         int clipPixels = (int) (totalPixels * clippingPercentage);
 
-        int lowerBound = findClippingBound(histogram, clipPixels, true);
-        int upperBound = findClippingBound(histogram, clipPixels, false);
+        int lowerBound = lutGenerator.findClippingBound(histogram, clipPixels, true);
+        int upperBound = lutGenerator.findClippingBound(histogram, clipPixels, false);
 
         log.info("Linear stretch WITH clipping -> lowerBound={}, upperBound={}", lowerBound, upperBound);
 
@@ -136,45 +114,10 @@ public class LinearStretchProcessor {
             return;
         }
 
-        int[] lut = generateClippedLUT(lowerBound, upperBound);
+        int[] lut = lutGenerator.generateLinearStretchLUT(lowerBound, upperBound);
         transformImageWithLUT(image, lut);
     }
 
-    private int findClippingBound(int[] histogram, int clipPixels, boolean isLower) {
-        int sum = 0;
-        if (isLower) {
-            for (int i = 0; i < 256; i++) {
-                sum += histogram[i];
-                if (sum >= clipPixels) {
-                    return i;
-                }
-            }
-            return 0;
-        } else {
-            for (int i = 255; i >= 0; i--) {
-                sum += histogram[i];
-                if (sum >= clipPixels) {
-                    return i;
-                }
-            }
-            return 255;
-        }
-    }
-
-    private int[] generateClippedLUT(int lowerBound, int upperBound) {
-        int[] lut = new int[256];
-        for (int i = 0; i < 256; i++) {
-            if (i < lowerBound) {
-                lut[i] = 0;
-            } else if (i > upperBound) {
-                lut[i] = 255;
-            } else {
-                lut[i] = (int) (((i - lowerBound) * 255.0) / (upperBound - lowerBound));
-            }
-        }
-        return lut;
-    }
-
     /**
      * Zastosowanie LUT do obrazu (TYPE_BYTE_GRAY).
      */
@@ -0,0 +1,229 @@
+package org.example.mathoperations;
+
+import lombok.Getter;
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Obraz binarny (maska) upakowany po 64 piksele w jednym long.
+ * Każdy wiersz zaczyna się od nowego słowa; piksel x leży w słowie x / 64 na bicie x % 64.
+ * Bity za końcem wiersza są zawsze wyzerowane, dzięki czemu AND/OR/XOR/NOT i zliczanie
+ * pikseli działają na całych słowach.
+ */
+public final class BinaryImage {
+
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] words;
+
+    public BinaryImage(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image dimensions must be positive.");
+        }
+        this.width = width;
+        this.height = height;
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.words = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Maska z obrazu jednokanałowego: piksel ustawiony, gdy wartość kanału 0 > threshold.
+     */
+    public static BinaryImage fromGray(BufferedImage image, int threshold) {
+        BinaryImage mask = new BinaryImage(image.getWidth(), image.getHeight());
+        byte[] src = RasterBytes.grayBytes(image);
+        int width = mask.width;
+        ParallelRows.forEachStrip(width, mask.height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int offset = y * width;
+                int wordIndex = y * mask.wordsPerRow;
+                for (int x = 0; x < width; x += 64) {
+                    int end = Math.min(64, width - x);
+                    long word = 0;
+                    for (int bit = 0; bit < end; bit++) {
+                        if ((src[offset + x + bit] & 0xFF) > threshold) {
+                            word |= 1L << bit;
+                        }
+                    }
+                    mask.words[wordIndex++] = word;
+                }
+            }
+        });
+        return mask;
+    }
+
+    /**
+     * Maska z obrazu TYPE_BYTE_BINARY (piksel ustawiony dla próbki 1)
+     * lub z maski TYPE_BYTE_GRAY 0/255 (piksel ustawiony dla wartości > 127).
+     */
+    public static BinaryImage fromImage(BufferedImage image) {
+        if (image == null) {
+            throw new IllegalArgumentException("Image cannot be null.");
+        }
+        if (image.getType() != BufferedImage.TYPE_BYTE_BINARY) {
+            return fromGray(image, 127);
+        }
+
+        BinaryImage mask = new BinaryImage(image.getWidth(), image.getHeight());
+        WritableRaster raster = image.getRaster();
+        if (raster.getSampleModel() instanceof MultiPixelPackedSampleModel
+                && raster.getSampleModel().getSampleSize(0) == 1
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0
+                && ((MultiPixelPackedSampleModel) raster.getSampleModel()).getDataBitOffset() == 0) {
+            // bajty rastra: 8 pikseli, pierwszy piksel na najstarszym bicie
+            byte[] packed = ((DataBufferByte) raster.getDataBuffer()).getData();
+            int stride = ((MultiPixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int bytesPerRow = (mask.width + 7) >>> 3;
+            for (int y = 0; y < mask.height; y++) {
+                int rowStart = y * stride;
+                int wordStart = y * mask.wordsPerRow;
+                for (int k = 0; k < bytesPerRow; k++) {
+                    long bits = Integer.reverse(packed[rowStart + k] & 0xFF) >>> 24;
+                    mask.words[wordStart + (k >>> 3)] |= bits << ((k & 7) << 3);
+                }
+                mask.clearPadding(y);
+            }
+            return mask;
+        }
+
+        int[] row = new int[mask.width];
+        for (int y = 0; y < mask.height; y++) {
+            raster.getSamples(0, y, mask.width, 1, 0, row);
+            for (int x = 0; x < mask.width; x++) {
+                if (row[x] != 0) {
+                    mask.set(x, y, true);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Maska jako obraz TYPE_BYTE_GRAY (0 lub 255).
+     */
+    public BufferedImage toGray() {
+        BufferedImage image = RasterBytes.newGray(width, height);
+        byte[] dst = RasterBytes.denseBytes(image);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int offset = y * width;
+                int wordStart = y * wordsPerRow;
+                for (int x = 0; x < width; x++) {
+                    long word = words[wordStart + (x >>> 6)];
+                    dst[offset + x] = (byte) -((word >>> (x & 63)) & 1L);
+                }
+            }
+        });
+        return image;
+    }
+
+    /**
+     * Maska jako obraz TYPE_BYTE_BINARY (1 bit na piksel).
+     */
+    public BufferedImage toBinary() {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] packed = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = (width + 7) >>> 3;
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * stride;
+            int wordStart = y * wordsPerRow;
+            for (int k = 0; k < stride; k++) {
+                int bits = (int) (words[wordStart + (k >>> 3)] >>> ((k & 7) << 3)) & 0xFF;
+                packed[rowStart + k] = (byte) (Integer.reverse(bits) >>> 24);
+            }
+        }
+        return image;
+    }
+
+    public boolean get(int x, int y) {
+        checkBounds(x, y);
+        return (words[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public void set(int x, int y, boolean value) {
+        checkBounds(x, y);
+        int index = y * wordsPerRow + (x >>> 6);
+        if (value) {
+            words[index] |= 1L << x;
+        } else {
+            words[index] &= ~(1L << x);
+        }
+    }
+
+    public BinaryImage and(BinaryImage other) {
+        verifySameSize(other);
+        BinaryImage result = new BinaryImage(width, height);
+        for (int i = 0; i < words.length; i++) {
+            result.words[i] = words[i] & other.words[i];
+        }
+        return result;
+    }
+
+    public BinaryImage or(BinaryImage other) {
+        verifySameSize(other);
+        BinaryImage result = new BinaryImage(width, height);
+        for (int i = 0; i < words.length; i++) {
+            result.words[i] = words[i] | other.words[i];
+        }
+        return result;
+    }
+
+    public BinaryImage xor(BinaryImage other) {
+        verifySameSize(other);
+        BinaryImage result = new BinaryImage(width, height);
+        for (int i = 0; i < words.length; i++) {
+            result.words[i] = words[i] ^ other.words[i];
+        }
+        return result;
+    }
+
+    public BinaryImage not() {
+        BinaryImage result = new BinaryImage(width, height);
+        for (int i = 0; i < words.length; i++) {
+            result.words[i] = ~words[i];
+        }
+        for (int y = 0; y < height; y++) {
+            result.clearPadding(y);
+        }
+        return result;
+    }
+
+    /**
+     * Liczba ustawionych pikseli.
+     */
+    public long cardinality() {
+        long count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private void clearPadding(int y) {
+        int used = width & 63;
+        if (used != 0) {
+            words[y * wordsPerRow + wordsPerRow - 1] &= (1L << used) - 1;
+        }
+    }
+
+    private void checkBounds(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("Pixel (" + x + ", " + y + ") is outside the image.");
+        }
+    }
+
+    private void verifySameSize(BinaryImage other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Images must have the same dimensions.");
+        }
+    }
+}
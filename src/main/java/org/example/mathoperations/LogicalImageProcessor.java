@@ -1,28 +1,62 @@
 package org.example.mathoperations;
 
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+import org.example.grayscale.PointKernels;
+
 import java.awt.*;
 import java.awt.image.BufferedImage;
 
+/**
+ * Operacje logiczne na obrazach jednokanałowych.
+ * Obrazy TYPE_BYTE_BINARY są przetwarzane jako BinaryImage (64 piksele w jednym słowie)
+ * i wynik też jest TYPE_BYTE_BINARY; obrazy TYPE_BYTE_GRAY - bajt po bajcie.
+ */
 public class LogicalImageProcessor {
 
+    /**
+     * Operacje logiczne dwuargumentowe.
+     */
+    public enum LogicalOperation {
+        AND, OR, XOR;
+
+        public static LogicalOperation fromName(String operation) {
+            if (operation != null) {
+                switch (operation.toLowerCase()) {
+                    case "and":
+                        return AND;
+                    case "or":
+                        return OR;
+                    case "xor":
+                        return XOR;
+                    default:
+                        break;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported logical operation: " + operation);
+        }
+    }
+
     /**
      * Operacja NOT na obrazie
      */
     public BufferedImage notOperation(BufferedImage image) {
         verifySingleChannelImage(image);
 
+        if (image.getType() == BufferedImage.TYPE_BYTE_BINARY) {
+            return BinaryImage.fromImage(image).not().toBinary();
+        }
+
         int width = image.getWidth();
         int height = image.getHeight();
 
-        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage resultImage = RasterBytes.newGray(width, height);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRaster().getSample(x, y, 0);
-                int result = 255 - pixel;  // Inwersja
-                resultImage.getRaster().setSample(x, y, 0, result);
-            }
-        }
+        // Inwersja
+        byte[] source = RasterBytes.grayBytes(image);
+        byte[] result = RasterBytes.denseBytes(resultImage);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) ->
+                PointKernels.negate(source, result, fromRow * width, toRow * width));
 
         return resultImage;
     }
@@ -31,39 +65,64 @@ public class LogicalImageProcessor {
      * Operacje AND, OR, XOR na dwóch obrazach
      */
     public BufferedImage logicalOperation(BufferedImage image1, BufferedImage image2, String operation) {
+        return logicalOperation(image1, image2, LogicalOperation.fromName(operation));
+    }
+
+    public BufferedImage logicalOperation(BufferedImage image1, BufferedImage image2, LogicalOperation operation) {
         verifyImageCompatibility(image1, image2);
 
+        if (image1.getType() == BufferedImage.TYPE_BYTE_BINARY && image2.getType() == BufferedImage.TYPE_BYTE_BINARY) {
+            return logicalOperation(BinaryImage.fromImage(image1), BinaryImage.fromImage(image2), operation).toBinary();
+        }
+
         int width = image1.getWidth();
         int height = image1.getHeight();
-        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel1 = image1.getRaster().getSample(x, y, 0);
-                int pixel2 = image2.getRaster().getSample(x, y, 0);
-                int result;
-
-                switch (operation.toLowerCase()) {
-                    case "and":
-                        result = pixel1 & pixel2;
-                        break;
-                    case "or":
-                        result = pixel1 | pixel2;
-                        break;
-                    case "xor":
-                        result = pixel1 ^ pixel2;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unsupported logical operation: " + operation);
-                }
-
-                resultImage.getRaster().setSample(x, y, 0, result);
+        BufferedImage resultImage = RasterBytes.newGray(width, height);
+
+        byte[] first = RasterBytes.grayBytes(image1);
+        byte[] second = RasterBytes.grayBytes(image2);
+        byte[] result = RasterBytes.denseBytes(resultImage);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            int from = fromRow * width;
+            int to = toRow * width;
+            switch (operation) {
+                case AND:
+                    for (int i = from; i < to; i++) {
+                        result[i] = (byte) (first[i] & second[i]);
+                    }
+                    break;
+                case OR:
+                    for (int i = from; i < to; i++) {
+                        result[i] = (byte) (first[i] | second[i]);
+                    }
+                    break;
+                case XOR:
+                    for (int i = from; i < to; i++) {
+                        result[i] = (byte) (first[i] ^ second[i]);
+                    }
+                    break;
             }
-        }
+        });
 
         return resultImage;
     }
 
+    /**
+     * Operacje AND, OR, XOR na maskach upakowanych bitowo.
+     */
+    public BinaryImage logicalOperation(BinaryImage mask1, BinaryImage mask2, LogicalOperation operation) {
+        switch (operation) {
+            case AND:
+                return mask1.and(mask2);
+            case OR:
+                return mask1.or(mask2);
+            case XOR:
+                return mask1.xor(mask2);
+            default:
+                throw new IllegalArgumentException("Unsupported logical operation: " + operation);
+        }
+    }
+
     /**
      * Konwertuje obraz jednokanałowy
      */
@@ -73,15 +132,12 @@ public class LogicalImageProcessor {
         int width = image.getWidth();
         int height = image.getHeight();
 
-        BufferedImage binaryImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage binaryImage = RasterBytes.newGray(width, height);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRaster().getSample(x, y, 0);
-                int binaryPixel = (pixel > threshold) ? 255 : 0;
-                binaryImage.getRaster().setSample(x, y, 0, binaryPixel);
-            }
-        }
+        byte[] source = RasterBytes.grayBytes(image);
+        byte[] result = RasterBytes.denseBytes(binaryImage);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) ->
+                PointKernels.binarize(source, result, fromRow * width, toRow * width, threshold));
 
         return binaryImage;
     }
@@ -102,20 +158,17 @@ public class LogicalImageProcessor {
         int width = grayImage.getWidth();
         int height = grayImage.getHeight();
 
-        BufferedImage monochromeMask = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage monochromeMask = RasterBytes.newGray(width, height);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixelValue = grayImage.getRaster().getSample(x, y, 0);
-                int maskValue = (pixelValue > 0) ? 255 : 0;
-                monochromeMask.getRaster().setSample(x, y, 0, maskValue);
-            }
-        }
+        // piksel > 0 -> 255
+        byte[] source = RasterBytes.grayBytes(grayImage);
+        byte[] result = RasterBytes.denseBytes(monochromeMask);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) ->
+                PointKernels.binarize(source, result, fromRow * width, toRow * width, 0));
 
         return monochromeMask;
     }
 
-
     /**
      * Sprawdza zgodność dwóch obrazów
      */
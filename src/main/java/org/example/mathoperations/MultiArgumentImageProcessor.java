@@ -1,9 +1,62 @@
 package org.example.mathoperations;
 
-import java.awt.image.BufferedImage;
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+import org.example.grayscale.PointKernels;
 
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Operacje arytmetyczne na obrazach w skali szarości.
+ * Wszystkie operacje działają na surowych tablicach bajtów, równolegle dla pasów wierszy.
+ * Bez wysycenia wynik jest zawijany modulo 256 (tak jak setSample na rastrze TYPE_BYTE_GRAY).
+ */
 public class MultiArgumentImageProcessor {
 
+    /**
+     * Operacje obrazu z liczbą całkowitą.
+     */
+    public enum ScalarOperation {
+        ADD {
+            @Override
+            int apply(int pixel, int scalar) {
+                return pixel + scalar;
+            }
+        },
+        MULTIPLY {
+            @Override
+            int apply(int pixel, int scalar) {
+                return pixel * scalar;
+            }
+        },
+        DIVIDE {
+            @Override
+            int apply(int pixel, int scalar) {
+                return (scalar != 0) ? pixel / scalar : pixel;
+            }
+        };
+
+        abstract int apply(int pixel, int scalar);
+
+        public static ScalarOperation fromName(String operation) {
+            if (operation != null) {
+                switch (operation.toLowerCase()) {
+                    case "add":
+                        return ADD;
+                    case "multiply":
+                        return MULTIPLY;
+                    case "divide":
+                        return DIVIDE;
+                    default:
+                        break;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported operation: " + operation);
+        }
+    }
+
     /**
      * Dodawanie dwóch obrazów z opcją wysycenia
      */
@@ -12,21 +65,13 @@ public class MultiArgumentImageProcessor {
 
         int width = image1.getWidth();
         int height = image1.getHeight();
-        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel1 = image1.getRaster().getSample(x, y, 0);
-                int pixel2 = image2.getRaster().getSample(x, y, 0);
-                int result = pixel1 + pixel2;
+        BufferedImage resultImage = RasterBytes.newGray(width, height);
 
-                if (withSaturation) {
-                    result = Math.min(255, result);
-                }
-
-                resultImage.getRaster().setSample(x, y, 0, result);
-            }
-        }
+        byte[] first = RasterBytes.grayBytes(image1);
+        byte[] second = RasterBytes.grayBytes(image2);
+        byte[] result = RasterBytes.denseBytes(resultImage);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) ->
+                PointKernels.add(first, second, result, fromRow * width, toRow * width, withSaturation));
 
         return resultImage;
     }
@@ -35,37 +80,41 @@ public class MultiArgumentImageProcessor {
      * Dodawanie, mnożenie i dzielenie obrazu przez liczbę całkowitą z opcją wysycenia
      */
     public BufferedImage applyScalarOperation(BufferedImage image, int scalar, String operation, boolean withSaturation) {
+        return applyScalarOperation(image, scalar, ScalarOperation.fromName(operation), withSaturation);
+    }
+
+    /**
+     * Operacja z liczbą jest funkcją wartości piksela - wyznaczana raz dla 256 wartości (LUT),
+     * a obraz jest przetwarzany jednym przejściem.
+     */
+    public BufferedImage applyScalarOperation(BufferedImage image, int scalar, ScalarOperation operation, boolean withSaturation) {
         int width = image.getWidth();
         int height = image.getHeight();
-        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
-
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel = image.getRaster().getSample(x, y, 0);
-                int result;
-
-                switch (operation.toLowerCase()) {
-                    case "add":
-                        result = pixel + scalar;
-                        break;
-                    case "multiply":
-                        result = pixel * scalar;
-                        break;
-                    case "divide":
-                        result = (scalar != 0) ? pixel / scalar : pixel;
-                        break;
-                    default:
-                        throw new IllegalArgumentException("Unsupported operation: " + operation);
-                }
-
-                if (withSaturation) {
-                    result = Math.min(255, Math.max(0, result));
+        BufferedImage resultImage = RasterBytes.newGray(width, height);
+
+        if (image.getSampleModel().getSampleSize(0) > 8) {
+            // próbki szersze niż bajt (np. TYPE_USHORT_GRAY) - wiersz po wierszu
+            int[] row = new int[width];
+            for (int y = 0; y < height; y++) {
+                image.getRaster().getSamples(0, y, width, 1, 0, row);
+                for (int x = 0; x < width; x++) {
+                    row[x] = scalarResult(row[x], scalar, operation, withSaturation);
                 }
-
-                resultImage.getRaster().setSample(x, y, 0, result);
+                resultImage.getRaster().setSamples(0, y, width, 1, 0, row);
             }
+            return resultImage;
+        }
+
+        byte[] lut = new byte[256];
+        for (int pixel = 0; pixel < 256; pixel++) {
+            lut[pixel] = (byte) scalarResult(pixel, scalar, operation, withSaturation);
         }
 
+        byte[] source = RasterBytes.grayBytes(image);
+        byte[] result = RasterBytes.denseBytes(resultImage);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) ->
+                PointKernels.lookup(source, result, fromRow * width, toRow * width, lut));
+
         return resultImage;
     }
 
@@ -77,21 +126,83 @@ public class MultiArgumentImageProcessor {
 
         int width = image1.getWidth();
         int height = image1.getHeight();
-        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage resultImage = RasterBytes.newGray(width, height);
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int pixel1 = image1.getRaster().getSample(x, y, 0);
-                int pixel2 = image2.getRaster().getSample(x, y, 0);
-                int result = Math.abs(pixel1 - pixel2);
+        byte[] first = RasterBytes.grayBytes(image1);
+        byte[] second = RasterBytes.grayBytes(image2);
+        byte[] result = RasterBytes.denseBytes(resultImage);
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) ->
+                PointKernels.absoluteDifference(first, second, result, fromRow * width, toRow * width));
 
-                resultImage.getRaster().setSample(x, y, 0, result);
-            }
+        return resultImage;
+    }
+
+    /**
+     * Suma N obrazów z opcją wysycenia. Każdy obraz wejściowy jest czytany tylko raz.
+     */
+    public BufferedImage sumImages(List<BufferedImage> images, boolean withSaturation) {
+        return combineImages(images, false, withSaturation);
+    }
+
+    /**
+     * Średnia N obrazów (zaokrąglona do najbliższej liczby całkowitej).
+     * Każdy obraz wejściowy jest czytany tylko raz.
+     */
+    public BufferedImage averageImages(List<BufferedImage> images) {
+        return combineImages(images, true, true);
+    }
+
+    private BufferedImage combineImages(List<BufferedImage> images, boolean average, boolean withSaturation) {
+        if (images == null || images.isEmpty()) {
+            throw new IllegalArgumentException("No images provided.");
         }
+        BufferedImage firstImage = images.get(0);
+        byte[][] sources = new byte[images.size()][];
+        for (int i = 0; i < images.size(); i++) {
+            verifyImageCompatibility(firstImage, images.get(i));
+            sources[i] = RasterBytes.grayBytes(images.get(i));
+        }
+
+        int width = firstImage.getWidth();
+        int height = firstImage.getHeight();
+        int count = sources.length;
+        BufferedImage resultImage = RasterBytes.newGray(width, height);
+        byte[] result = RasterBytes.denseBytes(resultImage);
+
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            // suma jednego wiersza ze wszystkich obrazów - mieści się w pamięci podręcznej
+            int[] sum = new int[width];
+            for (int y = fromRow; y < toRow; y++) {
+                int offset = y * width;
+                Arrays.fill(sum, 0);
+                for (byte[] source : sources) {
+                    for (int x = 0; x < width; x++) {
+                        sum[x] += source[offset + x] & 0xFF;
+                    }
+                }
+                for (int x = 0; x < width; x++) {
+                    int value;
+                    if (average) {
+                        value = (sum[x] + count / 2) / count;
+                    } else {
+                        value = withSaturation ? Math.min(255, sum[x]) : sum[x];
+                    }
+                    result[offset + x] = (byte) value;
+                }
+            }
+        });
 
         return resultImage;
     }
 
+    private static int scalarResult(int pixel, int scalar, ScalarOperation operation, boolean withSaturation) {
+        int result = operation.apply(pixel, scalar);
+        if (withSaturation) {
+            result = Math.min(255, Math.max(0, result));
+        }
+        return result;
+    }
+
     /**
      * Sprawdza zgodność typów i rozmiarów obrazów wejściowych
      */
@@ -1,66 +1,118 @@
 package org.example.projectaverage;
 
 import org.opencv.core.Core;
+import org.opencv.core.CvType;
 import org.opencv.core.Mat;
-import org.opencv.core.Scalar;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Iterator;
+import java.util.function.Consumer;
 
 public class ImageAveragingService {
 
     /**
-     * Oblicza średni obraz ze wszystkich dostarczonych obrazów.
+     * Oblicza średni obraz (CV_8U) ze wszystkich klatek. Klatki są pobierane z frames po kolei
+     * i od razu dodawane do sumy CV_32F, więc w pamięci jest tylko suma i bieżąca klatka.
+     * Klatki CV_8U z frames są przejmowane i zwalniane zaraz po dodaniu.
      */
-    public Mat calculateOverallAverage(List<Mat> frames) {
-        if (frames.isEmpty()) {
+    public Mat calculateOverallAverage(Iterator<Mat> frames) {
+        if (!frames.hasNext()) {
             throw new IllegalArgumentException("No frames provided for averaging.");
         }
-        // Macierz ktora ma przechowywać sumę wszystkich pixeli obrazów
-        Mat sum = Mat.zeros(frames.get(0).size(), frames.get(0).type());
-        for (Mat frame : frames) {
-            // Dodanie obrazu do sumy
-            Core.add(sum, frame, sum);
+        Mat sum = null;
+        Mat noMask = new Mat();
+        int firstRows = 0;
+        int firstCols = 0;
+        int firstType = 0;
+        int count = 0;
+        try {
+            while (frames.hasNext()) {
+                Mat frame = frames.next();
+                try {
+                    if (sum == null) {
+                        firstRows = frame.rows();
+                        firstCols = frame.cols();
+                        firstType = frame.type();
+                        sum = Mat.zeros(firstRows, firstCols, CvType.makeType(CvType.CV_32F, frame.channels()));
+                    } else if (frame.rows() != firstRows || frame.cols() != firstCols || frame.type() != firstType) {
+                        throw new IllegalArgumentException("Frame " + (count + 1)
+                                + " has a different size or type than the first frame.");
+                    }
+                    Core.add(sum, frame, sum, noMask, CvType.CV_32F);
+                    count++;
+                } finally {
+                    frame.release();
+                }
+            }
+            // dzielenie przez liczbę klatek i rzutowanie do 8-bit w jednym przejściu
+            Mat average = new Mat();
+            sum.convertTo(average, CvType.CV_8U, 1.0 / count);
+            return average;
+        } finally {
+            if (sum != null) {
+                sum.release();
+            }
+            noMask.release();
         }
-        // Macierz wynikowa przechowująca średnią z obrazów
-        Mat average = new Mat();
-        // Podzielenie sumy przez ilość obrazów
-        Core.divide(sum, Scalar.all(frames.size()), average);
-        return average;
     }
 
     /**
-     * Oblicza średnią kroczącą na liście obrazów.
+     * Strumieniowa średnia krocząca: w pamięci jest tylko windowSize ostatnich klatek (bufor cykliczny)
+     * i ich suma w CV_32F, więc zużycie pamięci nie zależy od długości sekwencji.
+     * Klatki CV_8U z frames są przejmowane i zwalniane po wyjściu z okna. Każda uśredniona klatka
+     * (CV_8U) trafia do sink zaraz po obliczeniu; macierz jest używana ponownie dla kolejnej klatki,
+     * więc sink nie może jej zachować. Zwraca liczbę uśrednionych klatek.
      */
-    public List<Mat> calculateMovingAverage(List<Mat> frames, int windowSize) {
-        // Lista wynikowych macierzy, które będą przechowywać obrazy średniej kroczącej
-        List<Mat> resultFrames = new ArrayList<>();
-
-        // Jeżeli lista obrazów jest pusta, nzwracana jest pusta lista
-        if (frames.isEmpty()) {
-            return resultFrames;
+    public int streamMovingAverage(Iterator<Mat> frames, int windowSize, Consumer<Mat> sink) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be greater than 0.");
         }
+        Mat[] window = new Mat[windowSize];
+        Mat sum = null;
+        Mat average = new Mat();
+        Mat noMask = new Mat();
+        int count = 0;
+        int produced = 0;
+        try {
+            while (frames.hasNext()) {
+                Mat frame = frames.next();
+                if (sum == null) {
+                    sum = Mat.zeros(frame.rows(), frame.cols(), CvType.makeType(CvType.CV_32F, frame.channels()));
+                } else if (frame.rows() != window[0].rows() || frame.cols() != window[0].cols()
+                        || frame.type() != window[0].type()) {
+                    frame.release();
+                    throw new IllegalArgumentException("Frame " + (count + 1)
+                            + " has a different size or type than the first frame.");
+                }
 
-        // Macierz która ma przechowywać sumę pikseli w bieżącym oknie
-        Mat sum = Mat.zeros(frames.get(0).size(), frames.get(0).type());
-        for (int i = 0; i < frames.size(); i++) {
-            // Dodanie obrazu do sumy
-            Core.add(sum, frames.get(i), sum);
-
-            // Sprawdzenie warunku, czy została osiągnięta wielkość okna (windowSize)
-            if (i >= windowSize - 1) {
-                // Macierz przechowująca średnią z obrazów dla bieżącego okna
-                Mat average = new Mat();
-                // Podzielenie sumy przez wielkośc okna
-                Core.divide(sum, Scalar.all(windowSize), average);
-                // Dodanie wynikowego obrazu do listy wynikowej
-                resultFrames.add(average);
+                int slot = count % windowSize;
+                if (window[slot] != null) {
+                    // usunięcie z sumy najstarszej klatki, której miejsce zajmie bieżąca
+                    Core.subtract(sum, window[slot], sum, noMask, CvType.CV_32F);
+                    window[slot].release();
+                }
+                window[slot] = frame;
+                Core.add(sum, frame, sum, noMask, CvType.CV_32F);
+                count++;
 
-                // Odjęcie najstarszego obraz z sumy, przesunięcie okna
-                Core.subtract(sum, frames.get(i - windowSize + 1), sum);
+                if (count >= windowSize) {
+                    // dzielenie przez wielkość okna i rzutowanie do 8-bit w jednym przejściu
+                    sum.convertTo(average, CvType.CV_8U, 1.0 / windowSize);
+                    sink.accept(average);
+                    produced++;
+                }
+            }
+        } finally {
+            for (Mat frame : window) {
+                if (frame != null) {
+                    frame.release();
+                }
+            }
+            if (sum != null) {
+                sum.release();
             }
+            average.release();
+            noMask.release();
         }
-        // Zwrócenie listy wynikowych obrazów average
-        return resultFrames;
+        return produced;
     }
 }
@@ -0,0 +1,81 @@
+package org.example.projectaverage;
+
+import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.videoio.VideoWriter;
+
+import java.io.File;
+
+/**
+ * Zapis klatek do pliku wideo na bieżąco, bez przechowywania ich w pamięci.
+ * Plik jest otwierany przy pierwszej klatce - jej rozmiar wyznacza rozmiar wideo.
+ */
+public class VideoFrameWriter implements AutoCloseable {
+
+    private final String outputPath;
+    private VideoWriter writer;
+    private int width;
+    private int height;
+    private int frameCount;
+
+    public VideoFrameWriter(String outputPath) {
+        if (outputPath == null || outputPath.isEmpty()) {
+            throw new IllegalArgumentException("Output path cannot be null or empty.");
+        }
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * Dopisuje klatkę CV_8U do wideo (macierz może być potem ponownie użyta przez wywołującego).
+     */
+    public void write(Mat frame) {
+        if (writer == null) {
+            width = frame.cols();
+            height = frame.rows();
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Invalid frame size: " + width + "x" + height);
+            }
+            writer = openWriter(new Size(width, height));
+        } else if (frame.cols() != width || frame.rows() != height) {
+            throw new IllegalArgumentException("All frames must have the same size: expected "
+                    + width + "x" + height + ", got " + frame.cols() + "x" + frame.rows());
+        }
+        writer.write(frame);
+        frameCount++;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public void close() {
+        if (writer != null) {
+            writer.release();
+            writer = null;
+        }
+    }
+
+    /**
+     * Otwiera plik wideo MJPG (10 klatek/s) o podanym rozmiarze klatek, tworząc brakujące katalogi.
+     */
+    private VideoWriter openWriter(Size frameSize) {
+        File parentDir = new File(outputPath).getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+
+        VideoWriter videoWriter = new VideoWriter(
+                outputPath,
+                VideoWriter.fourcc('M', 'J', 'P', 'G'),
+                10,
+                frameSize,
+                true
+        );
+        if (!videoWriter.isOpened()) {
+            videoWriter.release();
+            throw new RuntimeException("Failed to open video writer for: " + outputPath);
+        }
+        return videoWriter;
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.segmentaionlab5;
+
+import org.example.histogram.ImageHistogram;
+
+/**
+ * Progi globalne wyznaczane z histogramu 256 poziomów: wielopoziomowe Otsu, wielopoziomowe Kapura
+ * (entropia) i metoda trójkąta. Tablice skumulowane (liczność, suma poziomów, suma h ln h) są liczone
+ * raz w konstruktorze, więc składnik kryterium dla dowolnego przedziału [a..b) to O(1).
+ * Oba kryteria są sumą składników po klasach, więc optymalny podział na N klas jest wyznaczany
+ * programowaniem dynamicznym po granicach klas - O(N * 256^2) zamiast przeglądu wszystkich kombinacji progów.
+ * Próg t oznacza, że poziomy nie większe od t należą do klasy niższej (jak w THRESH_BINARY).
+ */
+public final class HistogramThresholds {
+
+    /**
+     * Metoda wyznaczania progów.
+     */
+    public enum Method {
+        /** maksimum wariancji międzyklasowej */
+        OTSU,
+        /** maksimum sumy entropii klas */
+        KAPUR,
+        /** największa odległość histogramu od prostej szczyt - koniec dłuższego ogona (tylko dwie klasy) */
+        TRIANGLE
+    }
+
+    private static final int LEVELS = 256;
+    private static final int MAX_CLASSES = 5;
+
+    private final int[] histogram;
+    /** count[i] - liczba pikseli o poziomach 0..i-1 */
+    private final double[] count;
+    /** sum[i] - suma poziomów pikseli o poziomach 0..i-1 */
+    private final double[] sum;
+    /** entropy[i] - suma h ln h dla poziomów 0..i-1 */
+    private final double[] entropy;
+
+    public HistogramThresholds(int[] histogram) {
+        if (histogram == null || histogram.length != LEVELS) {
+            throw new IllegalArgumentException("Histogram must be 256-length array.");
+        }
+        this.histogram = histogram.clone();
+        this.count = new double[LEVELS + 1];
+        this.sum = new double[LEVELS + 1];
+        this.entropy = new double[LEVELS + 1];
+        for (int i = 0; i < LEVELS; i++) {
+            double h = histogram[i];
+            if (h < 0) {
+                throw new IllegalArgumentException("Histogram counts cannot be negative.");
+            }
+            count[i + 1] = count[i] + h;
+            sum[i + 1] = sum[i] + h * i;
+            entropy[i + 1] = entropy[i] + (h > 0 ? h * Math.log(h) : 0);
+        }
+    }
+
+    /**
+     * Progi z histogramu luminancji (np. zapamiętanego w DraggableImage).
+     */
+    public static HistogramThresholds of(ImageHistogram imageHistogram) {
+        return new HistogramThresholds(imageHistogram.getLuminance());
+    }
+
+    /**
+     * Progi dzielące histogram na podaną liczbę klas (classes - 1 progów, rosnąco).
+     */
+    public int[] thresholds(Method method, int classes) {
+        switch (method) {
+            case OTSU:
+                return otsu(classes);
+            case KAPUR:
+                return kapur(classes);
+            case TRIANGLE:
+                if (classes != 2) {
+                    throw new IllegalArgumentException("Triangle method gives a single threshold (2 classes).");
+                }
+                return new int[]{triangle()};
+            default:
+                throw new IllegalArgumentException("Unknown threshold method: " + method);
+        }
+    }
+
+    /**
+     * Wielopoziomowe Otsu: maksimum sumy s^2 / w po klasach (w - liczność, s - suma poziomów klasy),
+     * co jest równoważne maksimum wariancji międzyklasowej. Dla dwóch klas - zwykły próg Otsu.
+     */
+    public int[] otsu(int classes) {
+        return optimalPartition(classes, this::otsuTerm);
+    }
+
+    /**
+     * Wielopoziomowe Kapura: maksimum sumy entropii klas; entropia klasy [a..b)
+     * to ln W - (suma h ln h) / W, gdzie W - liczność klasy.
+     */
+    public int[] kapur(int classes) {
+        return optimalPartition(classes, this::kapurTerm);
+    }
+
+    /**
+     * Metoda trójkąta (Zack): prosta od szczytu histogramu do końca dłuższego ogona, próg w poziomie
+     * najbardziej oddalonym pod tą prostą. Dla ogona po stronie jasnej poziom ten należy do klasy wyższej.
+     */
+    public int triangle() {
+        int min = 0;
+        while (min < LEVELS - 1 && histogram[min] == 0) {
+            min++;
+        }
+        int max = LEVELS - 1;
+        while (max > 0 && histogram[max] == 0) {
+            max--;
+        }
+        if (min >= max) {
+            return min;
+        }
+        int peak = min;
+        for (int i = min; i <= max; i++) {
+            if (histogram[i] > histogram[peak]) {
+                peak = i;
+            }
+        }
+        // koniec ogona - pierwszy pusty poziom za skrajnym niepustym (o ile istnieje)
+        boolean darkTail = peak - min > max - peak;
+        int end = darkTail ? Math.max(0, min - 1) : Math.min(LEVELS - 1, max + 1);
+        if (end == peak) {
+            return darkTail ? peak : peak - 1;
+        }
+
+        // odległość od prostej jest proporcjonalna do różnicy w pionie
+        double slope = (double) (histogram[peak] - histogram[end]) / (peak - end);
+        int best = end;
+        double bestDistance = -1;
+        int from = Math.min(end, peak);
+        int to = Math.max(end, peak);
+        for (int i = from; i <= to; i++) {
+            double line = histogram[end] + slope * (i - end);
+            double distance = line - histogram[i];
+            if (distance > bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return darkTail ? best : best - 1;
+    }
+
+    @FunctionalInterface
+    private interface ClassTerm {
+        /** składnik kryterium dla klasy poziomów [from..to) */
+        double of(int from, int to);
+    }
+
+    private double otsuTerm(int from, int to) {
+        double w = count[to] - count[from];
+        if (w == 0) {
+            return 0;
+        }
+        double s = sum[to] - sum[from];
+        return s * s / w;
+    }
+
+    private double kapurTerm(int from, int to) {
+        double w = count[to] - count[from];
+        if (w == 0) {
+            return 0;
+        }
+        return Math.log(w) - (entropy[to] - entropy[from]) / w;
+    }
+
+    /**
+     * Podział poziomów 0..255 na classes niepustych przedziałów maksymalizujący sumę składników.
+     * best[k][b] - najlepsza suma dla poziomów [0..b) podzielonych na k + 1 klas.
+     */
+    private int[] optimalPartition(int classes, ClassTerm term) {
+        if (classes < 2 || classes > MAX_CLASSES) {
+            throw new IllegalArgumentException("Number of classes must be between 2 and " + MAX_CLASSES + ".");
+        }
+        double[][] best = new double[classes][LEVELS + 1];
+        int[][] split = new int[classes][LEVELS + 1];
+        for (int b = 1; b <= LEVELS; b++) {
+            best[0][b] = term.of(0, b);
+        }
+        for (int k = 1; k < classes; k++) {
+            // ostatnia klasa zaczyna się od a; wcześniejsze k klas zajmuje co najmniej k poziomów
+            int lastEnd = k == classes - 1 ? LEVELS : LEVELS - (classes - 1 - k);
+            int firstEnd = k == classes - 1 ? LEVELS : k + 1;
+            for (int b = firstEnd; b <= lastEnd; b++) {
+                double bestValue = Double.NEGATIVE_INFINITY;
+                int bestSplit = k;
+                for (int a = k; a < b; a++) {
+                    double value = best[k - 1][a] + term.of(a, b);
+                    if (value > bestValue) {
+                        bestValue = value;
+                        bestSplit = a;
+                    }
+                }
+                best[k][b] = bestValue;
+                split[k][b] = bestSplit;
+            }
+        }
+
+        int[] thresholds = new int[classes - 1];
+        int end = LEVELS;
+        for (int k = classes - 1; k >= 1; k--) {
+            int start = split[k][end];
+            thresholds[k - 1] = start - 1;
+            end = start;
+        }
+        return thresholds;
+    }
+}
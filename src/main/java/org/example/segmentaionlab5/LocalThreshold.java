@@ -0,0 +1,108 @@
+package org.example.segmentaionlab5;
+
+import org.example.OpenCVUtils;
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Progowanie lokalne w oknie window x window ze średnią i odchyleniem standardowym z obrazu całkowego,
+ * więc koszt na piksel nie zależy od rozmiaru okna. Przy brzegach okno jest obcinane do obrazu.
+ * Piksel o wartości większej niż próg lokalny T otrzymuje 255, pozostałe 0.
+ */
+public final class LocalThreshold {
+
+    /**
+     * Metoda wyznaczania progu; parameter ma znaczenie zależne od metody.
+     */
+    public enum Method {
+        /** T = m - C, parameter = C (jak ADAPTIVE_THRESH_MEAN_C) */
+        MEAN_C(2),
+        /** T = m + k * s, parameter = k (zwykle ujemne) */
+        NIBLACK(-0.2),
+        /** T = m * (1 + k * (s / 128 - 1)), parameter = k */
+        SAUVOLA(0.34),
+        /** T = m * (1 - t), parameter = t */
+        BRADLEY(0.15);
+
+        private final double defaultParameter;
+
+        Method(double defaultParameter) {
+            this.defaultParameter = defaultParameter;
+        }
+
+        public double getDefaultParameter() {
+            return defaultParameter;
+        }
+    }
+
+    /**
+     * Zakres dynamiczny odchylenia standardowego w metodzie Sauvoli (obrazy 8-bitowe).
+     */
+    private static final double SAUVOLA_RANGE = 128.0;
+
+    private LocalThreshold() {
+    }
+
+    public static BufferedImage apply(BufferedImage input, Method method, int windowSize, double parameter) {
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(input);
+        return apply(IntegralImage.of(grayImage), RasterBytes.grayBytes(grayImage), method, windowSize, parameter);
+    }
+
+    /**
+     * Progowanie z gotowym obrazem całkowym (np. kilka metod lub okien dla tego samego obrazu).
+     */
+    public static BufferedImage apply(IntegralImage integral, byte[] gray, Method method, int windowSize,
+                                      double parameter) {
+        if (windowSize < 3 || windowSize % 2 == 0) {
+            throw new IllegalArgumentException("Window size must be an odd number >= 3.");
+        }
+        int width = integral.getWidth();
+        int height = integral.getHeight();
+        if (gray.length != width * height) {
+            throw new IllegalArgumentException("Image size does not match the integral image.");
+        }
+        int radius = windowSize / 2;
+        BufferedImage result = RasterBytes.newGray(width, height);
+        byte[] dst = RasterBytes.denseBytes(result);
+
+        ParallelRows.forEachStrip(width, height, (fromRow, toRow) -> {
+            for (int y = fromRow; y < toRow; y++) {
+                int y0 = Math.max(0, y - radius);
+                int y1 = Math.min(height, y + radius + 1);
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int x0 = Math.max(0, x - radius);
+                    int x1 = Math.min(width, x + radius + 1);
+                    double count = (double) (x1 - x0) * (y1 - y0);
+                    double mean = integral.sum(x0, y0, x1, y1) / count;
+                    double threshold;
+                    switch (method) {
+                        case MEAN_C:
+                            threshold = mean - parameter;
+                            break;
+                        case NIBLACK:
+                            threshold = mean + parameter * deviation(integral, x0, y0, x1, y1, count, mean);
+                            break;
+                        case SAUVOLA:
+                            threshold = mean * (1 + parameter
+                                    * (deviation(integral, x0, y0, x1, y1, count, mean) / SAUVOLA_RANGE - 1));
+                            break;
+                        default:
+                            threshold = mean * (1 - parameter);
+                            break;
+                    }
+                    dst[offset + x] = (gray[offset + x] & 0xFF) > threshold ? (byte) 255 : 0;
+                }
+            }
+        });
+        return result;
+    }
+
+    private static double deviation(IntegralImage integral, int x0, int y0, int x1, int y1, double count,
+                                    double mean) {
+        double variance = integral.squaredSum(x0, y0, x1, y1) / count - mean * mean;
+        return Math.sqrt(Math.max(0, variance));
+    }
+}
@@ -0,0 +1,187 @@
+package org.example.segmentaionlab5;
+
+import org.example.ParallelRows;
+
+import java.util.List;
+
+/**
+ * Erozja i dylacja obrazów 8-bitowych elementami strukturalnymi z odcinków (StructuringElement).
+ * Każdy odcinek długości k jest liczony algorytmem van Herka/Gil-Wermana: linia obrazu dzielona jest
+ * na bloki po k pikseli, dla których liczone są minima (maksima) narastające od lewej i od prawej;
+ * wynik dla okna to minimum dwóch wartości - około 3 porównań na piksel niezależnie od k.
+ * Piksele spoza obrazu są pomijane (jak domyślna ramka w Imgproc.erode / dilate).
+ */
+public final class MorphologyEngine {
+
+    /**
+     * Liczba kolumn przetwarzanych razem w przejściu pionowym (bufory bloków mieszczą się w pamięci podręcznej).
+     */
+    private static final int COLUMN_CHUNK = 256;
+
+    private MorphologyEngine() {
+    }
+
+    public static byte[] erode(byte[] src, int width, int height, StructuringElement element) {
+        return apply(src, width, height, element, true);
+    }
+
+    public static byte[] dilate(byte[] src, int width, int height, StructuringElement element) {
+        return apply(src, width, height, element, false);
+    }
+
+    /**
+     * Zwraca nową tablicę; src nie jest modyfikowane.
+     */
+    private static byte[] apply(byte[] src, int width, int height, StructuringElement element, boolean minimum) {
+        if (src.length != width * height) {
+            throw new IllegalArgumentException("Source size does not match image dimensions.");
+        }
+        byte[] result = null;
+        for (List<StructuringElement.Segment> sum : element.components()) {
+            byte[] current = src;
+            for (StructuringElement.Segment segment : sum) {
+                if (segment.length > 1) {
+                    current = segment.dx == 0
+                            ? verticalSegment(current, width, height, segment.length, minimum)
+                            : lineSegment(current, width, height, segment, minimum);
+                }
+            }
+            if (result == null) {
+                result = current == src ? src.clone() : current;
+            } else {
+                // erozja sumą elementów = minimum erozji, dylacja = maksimum dylacji
+                for (int i = 0; i < result.length; i++) {
+                    int a = result[i] & 0xFF;
+                    int b = current[i] & 0xFF;
+                    result[i] = (byte) (minimum ? Math.min(a, b) : Math.max(a, b));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Odcinek poziomy lub ukośny: każda linia obrazu wzdłuż (dx, dy) jest kopiowana do bufora
+     * z marginesami o wartości neutralnej i przetwarzana jako ciąg 1D.
+     */
+    private static byte[] lineSegment(byte[] src, int width, int height, StructuringElement.Segment segment,
+                                      boolean minimum) {
+        int k = segment.length;
+        int radius = k / 2;
+        int neutral = minimum ? 255 : 0;
+        byte[] dst = new byte[width * height];
+        int lines = segment.dy == 0 ? height : width + height - 1;
+        int step = segment.dy * width + segment.dx;
+
+        ParallelRows.forEachStrip(width, lines, (fromLine, toLine) -> {
+            int capacity = Math.max(width, height) + 2 * radius + k;
+            int[] padded = new int[capacity];
+            int[] forward = new int[capacity];
+            int[] backward = new int[capacity];
+            for (int line = fromLine; line < toLine; line++) {
+                int startX;
+                int startY;
+                int length;
+                if (segment.dy == 0) {
+                    startX = 0;
+                    startY = line;
+                    length = width;
+                } else if (segment.dy > 0) {
+                    // w dół w prawo: początki w lewej kolumnie i górnym wierszu
+                    startX = line < height ? 0 : line - height + 1;
+                    startY = line < height ? line : 0;
+                    length = Math.min(width - startX, height - startY);
+                } else {
+                    // w górę w prawo: początki w lewej kolumnie i dolnym wierszu
+                    startX = line < height ? 0 : line - height + 1;
+                    startY = line < height ? line : height - 1;
+                    length = Math.min(width - startX, startY + 1);
+                }
+                int start = startY * width + startX;
+                int total = (length + 2 * radius + k - 1) / k * k;
+
+                for (int i = 0; i < total; i++) {
+                    int position = i - radius;
+                    padded[i] = position >= 0 && position < length ? src[start + position * step] & 0xFF : neutral;
+                }
+                blocks(padded, forward, backward, total, k, minimum);
+                for (int i = 0; i < length; i++) {
+                    int a = backward[i];
+                    int b = forward[i + k - 1];
+                    dst[start + i * step] = (byte) (minimum ? Math.min(a, b) : Math.max(a, b));
+                }
+            }
+        });
+        return dst;
+    }
+
+    /**
+     * Minima (maksima) narastające w blokach po k elementów: forward od początku bloku, backward od końca.
+     */
+    private static void blocks(int[] values, int[] forward, int[] backward, int total, int k, boolean minimum) {
+        for (int i = 0; i < total; i++) {
+            forward[i] = i % k == 0 ? values[i]
+                    : minimum ? Math.min(forward[i - 1], values[i]) : Math.max(forward[i - 1], values[i]);
+        }
+        for (int i = total - 1; i >= 0; i--) {
+            backward[i] = i % k == k - 1 ? values[i]
+                    : minimum ? Math.min(backward[i + 1], values[i]) : Math.max(backward[i + 1], values[i]);
+        }
+    }
+
+    /**
+     * Odcinek pionowy: te same bloki, ale liczone wierszami dla grupy kolumn naraz
+     * (dostęp sekwencyjny do pamięci zamiast przechodzenia po kolumnach).
+     */
+    private static byte[] verticalSegment(byte[] src, int width, int height, int k, boolean minimum) {
+        int radius = k / 2;
+        int neutral = minimum ? 255 : 0;
+        int total = (height + 2 * radius + k - 1) / k * k;
+        byte[] dst = new byte[width * height];
+
+        // pasy kolumn: "wiersze" zadania to kolumny obrazu
+        ParallelRows.forEachStrip(height, width, (fromColumn, toColumn) -> {
+            int chunk = Math.min(COLUMN_CHUNK, toColumn - fromColumn);
+            int[] forward = new int[total * chunk];
+            int[] backward = new int[total * chunk];
+            for (int c0 = fromColumn; c0 < toColumn; c0 += chunk) {
+                int columns = Math.min(chunk, toColumn - c0);
+                for (int i = 0; i < total; i++) {
+                    int y = i - radius;
+                    int base = i * chunk;
+                    boolean inside = y >= 0 && y < height;
+                    int sourceOffset = y * width + c0;
+                    for (int c = 0; c < columns; c++) {
+                        int value = inside ? src[sourceOffset + c] & 0xFF : neutral;
+                        forward[base + c] = i % k == 0 ? value
+                                : minimum ? Math.min(forward[base - chunk + c], value)
+                                : Math.max(forward[base - chunk + c], value);
+                    }
+                }
+                for (int i = total - 1; i >= 0; i--) {
+                    int y = i - radius;
+                    int base = i * chunk;
+                    boolean inside = y >= 0 && y < height;
+                    int sourceOffset = y * width + c0;
+                    for (int c = 0; c < columns; c++) {
+                        int value = inside ? src[sourceOffset + c] & 0xFF : neutral;
+                        backward[base + c] = i % k == k - 1 ? value
+                                : minimum ? Math.min(backward[base + chunk + c], value)
+                                : Math.max(backward[base + chunk + c], value);
+                    }
+                }
+                for (int y = 0; y < height; y++) {
+                    int a = y * chunk;
+                    int b = (y + k - 1) * chunk;
+                    int offset = y * width + c0;
+                    for (int c = 0; c < columns; c++) {
+                        dst[offset + c] = (byte) (minimum
+                                ? Math.min(backward[a + c], forward[b + c])
+                                : Math.max(backward[a + c], forward[b + c]));
+                    }
+                }
+            }
+        });
+        return dst;
+    }
+}
@@ -1,116 +1,122 @@
 package org.example.segmentaionlab5;
 
-import org.opencv.core.*;
-import org.opencv.imgproc.Imgproc;
+import org.example.OpenCVUtils;
+import org.example.RasterBytes;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 
 /**
  Opracować algorytm i uruchomić funkcjonalność wykonywania podstawowych operacji
  morfologii matematycznej: erozji, dylacji, otwarcia i zamknięcia wykorzystując następujące
  elementy strukturalne 3x3 (tam gdzie możliwe jest rozróżnienie kształtu oddzielne dla krzyża i
  prostokąta).
+ Operacje działają też dla większych elementów (prostokąt, odcinek, krzyż, dysk) - MorphologyEngine.
  */
 public class MorphologyProcessor {
 
-    static {
-        // Załadowanie natywnej biblioteki OpenCV
-        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+    public enum Operation {
+        ERODE, DILATE, OPEN, CLOSE,
+        /** obraz - otwarcie */
+        TOPHAT,
+        /** zamknięcie - obraz */
+        BLACKHAT,
+        /** dylacja - erozja */
+        GRADIENT
     }
 
     /**
      * erozja na obrazie wejściowym, używając elementu strukturalnego 3x3.
      */
     public BufferedImage erode(BufferedImage input, String shape) {
-        Mat src = bufferedImageToMatGray(input);
-        Mat kernel = createStructuringElement3x3(shape);
-        Mat dst = new Mat();
-        Imgproc.erode(src, dst, kernel);
-        return matToBufferedImage(dst);
+        return apply(input, Operation.ERODE, createStructuringElement3x3(shape));
     }
 
     /**
      * Wykonuje dylację na obrazie wejściowym, używając elementu strukturalnego 3x3.
      */
     public BufferedImage dilate(BufferedImage input, String shape) {
-        Mat src = bufferedImageToMatGray(input);
-        Mat kernel = createStructuringElement3x3(shape);
-        Mat dst = new Mat();
-        Imgproc.dilate(src, dst, kernel);
-        return matToBufferedImage(dst);
+        return apply(input, Operation.DILATE, createStructuringElement3x3(shape));
     }
 
     /**
      * Otwarcie = erozja + dylacja
      */
     public BufferedImage opening(BufferedImage input, String shape) {
-        Mat src = bufferedImageToMatGray(input);
-        Mat kernel = createStructuringElement3x3(shape);
-        Mat dst = new Mat();
-        // Morphological opening
-        Imgproc.morphologyEx(src, dst, Imgproc.MORPH_OPEN, kernel);
-        return matToBufferedImage(dst);
+        return apply(input, Operation.OPEN, createStructuringElement3x3(shape));
     }
 
     /**
      * Zamknięcie = dylacja + erozja
      */
     public BufferedImage closing(BufferedImage input, String shape) {
-        Mat src = bufferedImageToMatGray(input);
-        Mat kernel = createStructuringElement3x3(shape);
-        Mat dst = new Mat();
-        // Morphological closing
-        Imgproc.morphologyEx(src, dst, Imgproc.MORPH_CLOSE, kernel);
-        return matToBufferedImage(dst);
+        return apply(input, Operation.CLOSE, createStructuringElement3x3(shape));
     }
 
     /**
-     * Tworzy element strukturalny 3x3 w kształcie 'rectangle' (3x3 jedynek) lub 'cross' (3x3 krzyż).
+     * Operacja morfologiczna dowolnym elementem strukturalnym. Top-hat, black-hat i gradient
+     * są liczone od razu na tablicach pikseli, bez obrazów pośrednich.
      */
-    private Mat createStructuringElement3x3(String shape) {
-        if (shape == null) shape = "rectangle"; // Domyślnie prostokąt
-        shape = shape.toLowerCase();
+    public BufferedImage apply(BufferedImage input, Operation operation, StructuringElement element) {
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(input);
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
 
-        if (shape.contains("cross")) {
-            return Imgproc.getStructuringElement(Imgproc.MORPH_CROSS, new Size(3, 3));
-        } else {
-            return Imgproc.getStructuringElement(Imgproc.MORPH_RECT, new Size(3, 3));
+        byte[] result;
+        switch (operation) {
+            case ERODE:
+                result = MorphologyEngine.erode(src, width, height, element);
+                break;
+            case DILATE:
+                result = MorphologyEngine.dilate(src, width, height, element);
+                break;
+            case OPEN:
+                result = MorphologyEngine.dilate(MorphologyEngine.erode(src, width, height, element), width, height, element);
+                break;
+            case CLOSE:
+                result = MorphologyEngine.erode(MorphologyEngine.dilate(src, width, height, element), width, height, element);
+                break;
+            case TOPHAT:
+                result = MorphologyEngine.dilate(MorphologyEngine.erode(src, width, height, element), width, height, element);
+                subtract(src, result, result);
+                break;
+            case BLACKHAT:
+                result = MorphologyEngine.erode(MorphologyEngine.dilate(src, width, height, element), width, height, element);
+                subtract(result, src, result);
+                break;
+            case GRADIENT:
+                result = MorphologyEngine.dilate(src, width, height, element);
+                subtract(result, MorphologyEngine.erode(src, width, height, element), result);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown morphology operation: " + operation);
         }
-    }
-
-
 
+        BufferedImage output = RasterBytes.newGray(width, height);
+        System.arraycopy(result, 0, RasterBytes.denseBytes(output), 0, result.length);
+        return output;
+    }
 
-    private Mat bufferedImageToMatGray(BufferedImage bi) {
-        if (bi.getType() != BufferedImage.TYPE_BYTE_GRAY) {
-            BufferedImage gray = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
-            Graphics g = gray.getGraphics();
-            g.drawImage(bi, 0, 0, null);
-            g.dispose();
-            bi = gray;
+    /**
+     * dst = a - b (z obcięciem do 0); dst może być jedną z tablic wejściowych.
+     */
+    private static void subtract(byte[] a, byte[] b, byte[] dst) {
+        for (int i = 0; i < dst.length; i++) {
+            dst[i] = (byte) Math.max(0, (a[i] & 0xFF) - (b[i] & 0xFF));
         }
-        Mat mat = new Mat(bi.getHeight(), bi.getWidth(), CvType.CV_8UC1);
-        byte[] data = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
-        mat.put(0, 0, data);
-        return mat;
     }
 
-    private BufferedImage matToBufferedImage(Mat mat) {
-        BufferedImage out;
-        if (mat.channels() == 1) {
-            out = new BufferedImage(mat.width(), mat.height(), BufferedImage.TYPE_BYTE_GRAY);
-            byte[] data = new byte[mat.width() * mat.height()];
-            mat.get(0,0, data);
-            out.getRaster().setDataElements(0, 0, mat.width(), mat.height(), data);
+    /**
+     * Tworzy element strukturalny 3x3 w kształcie 'rectangle' (3x3 jedynek) lub 'cross' (3x3 krzyż).
+     */
+    private StructuringElement createStructuringElement3x3(String shape) {
+        if (shape == null) shape = "rectangle"; // Domyślnie prostokąt
+        shape = shape.toLowerCase();
+
+        if (shape.contains("cross")) {
+            return StructuringElement.cross(3);
         } else {
-            // In case it's 3 channels
-            out = new BufferedImage(mat.width(), mat.height(), BufferedImage.TYPE_3BYTE_BGR);
-            byte[] data = new byte[mat.width() * mat.height() * 3];
-            mat.get(0,0, data);
-            out.getRaster().setDataElements(0, 0, mat.width(), mat.height(), data);
+            return StructuringElement.rectangle(3, 3);
         }
-        return out;
     }
 }
@@ -1,102 +1,173 @@
 package org.example.segmentaionlab5;
 
+import org.example.MatArena;
+import org.example.OpenCVUtils;
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+import org.example.grayscale.PointKernels;
+import org.example.histogram.ImageHistogram;
 import org.opencv.core.*;
 import org.opencv.imgproc.Imgproc;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 
 /**
  Opracować algorytm i uruchomić funkcjonalność realizującą segmentację obrazów
  następującymi metodami:
  – Implementacja progowanie z dwoma progami wyznaczonymi przez użytkownika.
+   (także z dowolną liczbą progów - jedno przejście przez tablicę LUT),
  – Implementacja progowanie z progiem wyznaczonym metodą Otsu,
+   (także wielopoziomowe Otsu, Kapur i metoda trójkąta z histogramu - HistogramThresholds),
  – Implementacja progowanie adaptacyjnego (adaptive threshold).
+ Progowanie lokalne (mean-C, Niblack, Sauvola, Bradley) korzysta z obrazu całkowego - LocalThreshold.
  */
 public class SegmentationProcessor {
 
     /**
-     * Progowanie z dwoma progami p1, p2
+     * Progowanie z dwoma progami p1, p2: piksele poniżej p1 - 0, w przedziale [p1..p2] - 127, powyżej p2 - 255.
      */
     public BufferedImage doubleThreshold(BufferedImage input, int p1, int p2) {
-        Mat src = bufferedImageToMat(input);
+        return multiThreshold(input, new int[]{p1, Math.max(p1, p2 + 1)}, new int[]{0, 127, 255}, null);
+    }
+
+    /**
+     * Progowanie wieloprogowe: N progów dzieli zakres na N + 1 przedziałów, którym przypisywane są
+     * poziomy równomiernie rozłożone w 0..255 (dla jednego progu 0 i 255).
+     */
+    public BufferedImage multiThreshold(BufferedImage input, int[] thresholds) {
+        if (thresholds == null || thresholds.length == 0) {
+            throw new IllegalArgumentException("At least one threshold is required.");
+        }
+        int[] levels = new int[thresholds.length + 1];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = Math.round(255f * i / thresholds.length);
+        }
+        return multiThreshold(input, thresholds, levels, null);
+    }
+
+    /**
+     * Progowanie wieloprogowe z podanymi poziomami: próg t rozpoczyna nowy przedział, tzn. piksel v
+     * dostaje poziom levels[k], gdzie k to liczba progów t nie większych od v. Progi muszą być niemalejące.
+     * Wynik jest liczony jednym przejściem przez tablicę LUT na surowych bajtach obrazu.
+     * Jeżeli output jest gęstym obrazem TYPE_BYTE_GRAY o rozmiarze wejścia, wynik jest zapisywany
+     * do niego (np. przy wielokrotnym progowaniu podglądu), w przeciwnym razie tworzony jest nowy obraz.
+     */
+    public BufferedImage multiThreshold(BufferedImage input, int[] thresholds, int[] levels, BufferedImage output) {
+        byte[] lut = thresholdLut(thresholds, levels);
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(input);
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
 
-        Mat dst = new Mat(src.size(), CvType.CV_8UC1);
-        for (int y = 0; y < src.rows(); y++) {
-            for (int x = 0; x < src.cols(); x++) {
-                double pixVal = src.get(y, x)[0];
-                double newVal;
-                if (pixVal < p1) {
-                    newVal = 0;
-                } else if (pixVal > p2) {
-                    newVal = 255;
-                } else {
-                    newVal = 127;
-                }
-                dst.put(y, x, newVal);
+        BufferedImage result = output;
+        byte[] dst = reusable(output, width, height) ? RasterBytes.denseBytes(output) : null;
+        if (dst == null) {
+            result = RasterBytes.newGray(width, height);
+            dst = RasterBytes.denseBytes(result);
+        }
+        byte[] target = dst;
+        ParallelRows.forEachStrip(width, height,
+                (fromRow, toRow) -> PointKernels.lookup(src, target, fromRow * width, toRow * width, lut));
+        return result;
+    }
+
+    /**
+     * Tablica LUT progowania wieloprogowego.
+     */
+    static byte[] thresholdLut(int[] thresholds, int[] levels) {
+        if (thresholds == null || levels == null || levels.length != thresholds.length + 1) {
+            throw new IllegalArgumentException("Number of levels must be number of thresholds + 1.");
+        }
+        for (int i = 1; i < thresholds.length; i++) {
+            if (thresholds[i] < thresholds[i - 1]) {
+                throw new IllegalArgumentException("Thresholds must be in non-decreasing order.");
+            }
+        }
+        for (int level : levels) {
+            if (level < 0 || level > 255) {
+                throw new IllegalArgumentException("Levels must be within [0..255].");
             }
         }
-        return matToBufferedImage(dst);
+        byte[] lut = new byte[256];
+        int band = 0;
+        for (int value = 0; value < 256; value++) {
+            while (band < thresholds.length && thresholds[band] <= value) {
+                band++;
+            }
+            lut[value] = (byte) levels[band];
+        }
+        return lut;
+    }
+
+    private static boolean reusable(BufferedImage output, int width, int height) {
+        return output != null && output.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && output.getWidth() == width && output.getHeight() == height;
     }
 
     /**
      * Progowanie Otsu (automatyczne wyznaczenie progu).
      */
     public BufferedImage otsuThreshold(BufferedImage input) {
-        Mat src = bufferedImageToMat(input);
-        Mat dst = new Mat();
-        Imgproc.threshold(src, dst, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
-        return matToBufferedImage(dst);
+        try (MatArena arena = new MatArena()) {
+            Mat src = arena.track(OpenCVUtils.bufferedImageToGrayMat(input));
+            Mat dst = arena.newMat();
+            Imgproc.threshold(src, dst, 0, 255, Imgproc.THRESH_BINARY | Imgproc.THRESH_OTSU);
+            return OpenCVUtils.matToBufferedImage(dst);
+        }
     }
 
     /**
-     * Progowanie adaptacyjne (z wykorzystaniem średniej ważonej).
+     * Progowanie z progami wyznaczonymi z histogramu (Otsu, Kapur - także wielopoziomowe, trójkąt).
+     * Wynik: classes poziomów równomiernie rozłożonych w 0..255. Zapamiętany histogram obrazu
+     * (może być null) jest używany dla obrazów TYPE_BYTE_GRAY, dla pozostałych histogram liczony jest
+     * z obrazu po konwersji do skali szarości - tego samego, który jest progowany.
      */
-    public BufferedImage adaptiveThreshold(BufferedImage input, int blockSize, int C) {
-        Mat src = bufferedImageToMat(input);
-        Mat dst = new Mat();
-        Imgproc.adaptiveThreshold(src, dst, 255,
-                Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
-                Imgproc.THRESH_BINARY,
-                blockSize,
-                C
-        );
-        return matToBufferedImage(dst);
+    public BufferedImage histogramThreshold(BufferedImage input, ImageHistogram histogram,
+                                            HistogramThresholds.Method method, int classes) {
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(input);
+        HistogramThresholds thresholds = histogram != null && input.getType() == BufferedImage.TYPE_BYTE_GRAY
+                ? HistogramThresholds.of(histogram)
+                : new HistogramThresholds(grayHistogram(RasterBytes.grayBytes(grayImage)));
+        int[] cuts = thresholds.thresholds(method, classes);
+        for (int i = 0; i < cuts.length; i++) {
+            cuts[i]++; // próg t: poziom t należy jeszcze do klasy niższej
+        }
+        int[] levels = new int[classes];
+        for (int i = 0; i < classes; i++) {
+            levels[i] = Math.round(255f * i / (classes - 1));
+        }
+        return multiThreshold(grayImage, cuts, levels, null);
     }
 
-
-    private Mat bufferedImageToMat(BufferedImage bi) {
-        // Sprawdź, czy obraz jest w odcieniach szarości:
-        if (bi.getType() != BufferedImage.TYPE_BYTE_GRAY) {
-            // W razie potrzeby konwertuj do GRAY:
-            BufferedImage grayImage = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
-            Graphics g = grayImage.getGraphics();
-            g.drawImage(bi, 0, 0, null);
-            g.dispose();
-            bi = grayImage;
+    private static int[] grayHistogram(byte[] gray) {
+        int[] histogram = new int[256];
+        for (byte value : gray) {
+            histogram[value & 0xFF]++;
         }
-        // Konwersja do Mat:
-        Mat mat = new Mat(bi.getHeight(), bi.getWidth(), CvType.CV_8UC1);
-        byte[] data = ((DataBufferByte) bi.getRaster().getDataBuffer()).getData();
-        mat.put(0, 0, data);
-        return mat;
+        return histogram;
     }
 
-    private BufferedImage matToBufferedImage(Mat mat) {
-        BufferedImage out;
-        if (mat.channels() == 1) {
-            out = new BufferedImage(mat.width(), mat.height(), BufferedImage.TYPE_BYTE_GRAY);
-            byte[] data = new byte[mat.width() * mat.height()];
-            mat.get(0, 0, data);
-            out.getRaster().setDataElements(0, 0, mat.width(), mat.height(), data);
-        } else {
-            // tu ewentualnie obsługa obrazu 3-kanałowego
-            out = new BufferedImage(mat.width(), mat.height(), BufferedImage.TYPE_3BYTE_BGR);
-            byte[] data = new byte[mat.width() * mat.height() * 3];
-            mat.get(0, 0, data);
-            out.getRaster().setDataElements(0, 0, mat.width(), mat.height(), data);
+    /**
+     * Progowanie adaptacyjne (z wykorzystaniem średniej ważonej).
+     */
+    public BufferedImage adaptiveThreshold(BufferedImage input, int blockSize, int C) {
+        try (MatArena arena = new MatArena()) {
+            Mat src = arena.track(OpenCVUtils.bufferedImageToGrayMat(input));
+            Mat dst = arena.newMat();
+            Imgproc.adaptiveThreshold(src, dst, 255,
+                    Imgproc.ADAPTIVE_THRESH_GAUSSIAN_C,
+                    Imgproc.THRESH_BINARY,
+                    blockSize,
+                    C
+            );
+            return OpenCVUtils.matToBufferedImage(dst);
         }
-        return out;
+    }
+
+    /**
+     * Progowanie lokalne w oknie windowSize x windowSize; koszt na piksel nie zależy od rozmiaru okna.
+     */
+    public BufferedImage localThreshold(BufferedImage input, LocalThreshold.Method method, int windowSize, double parameter) {
+        return LocalThreshold.apply(input, method, windowSize, parameter);
     }
 }
@@ -0,0 +1,136 @@
+package org.example.segmentaionlab5;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Symetryczny element strukturalny dowolnego rozmiaru (punkt zaczepienia w środku),
+ * zapisany jako suma (union) sum Minkowskiego odcinków: prostokąt = odcinek poziomy ⊕ pionowy,
+ * krzyż = odcinek poziomy ∪ pionowy, dysk ≈ ośmiokąt z odcinków w czterech kierunkach.
+ * Każdy odcinek jest przetwarzany algorytmem van Herka/Gil-Wermana (MorphologyEngine).
+ */
+public final class StructuringElement {
+
+    public enum Shape {
+        RECTANGLE, CROSS, LINE, DISK
+    }
+
+    @Getter
+    private final Shape shape;
+    @Getter
+    private final int width;
+    @Getter
+    private final int height;
+    /** składniki sumy (union); każdy składnik to suma Minkowskiego odcinków */
+    private final List<List<Segment>> components;
+
+    private StructuringElement(Shape shape, int width, int height, List<List<Segment>> components) {
+        this.shape = shape;
+        this.width = width;
+        this.height = height;
+        this.components = components;
+    }
+
+    /**
+     * Prostokąt width x height (wymiary nieparzyste).
+     */
+    public static StructuringElement rectangle(int width, int height) {
+        checkOdd(width);
+        checkOdd(height);
+        return new StructuringElement(Shape.RECTANGLE, width, height,
+                Collections.singletonList(segments(new Segment(1, 0, width), new Segment(0, 1, height))));
+    }
+
+    /**
+     * Krzyż size x size o ramionach grubości 1 piksela (jak MORPH_CROSS).
+     */
+    public static StructuringElement cross(int size) {
+        checkOdd(size);
+        List<List<Segment>> components = new ArrayList<>();
+        components.add(segments(new Segment(1, 0, size)));
+        components.add(segments(new Segment(0, 1, size)));
+        return new StructuringElement(Shape.CROSS, size, size, Collections.unmodifiableList(components));
+    }
+
+    /**
+     * Odcinek o długości length pod kątem 0, 45, 90 lub 135 stopni (oś y w górę obrazu).
+     */
+    public static StructuringElement line(int length, int angle) {
+        checkOdd(length);
+        Segment segment;
+        switch (angle) {
+            case 0:
+                segment = new Segment(1, 0, length);
+                break;
+            case 45:
+                segment = new Segment(1, -1, length);
+                break;
+            case 90:
+                segment = new Segment(0, 1, length);
+                break;
+            case 135:
+                segment = new Segment(1, 1, length);
+                break;
+            default:
+                throw new IllegalArgumentException("Line angle must be 0, 45, 90 or 135 degrees.");
+        }
+        int width = segment.dx == 0 ? 1 : length;
+        int height = segment.dy == 0 ? 1 : length;
+        return new StructuringElement(Shape.LINE, width, height, Collections.singletonList(segments(segment)));
+    }
+
+    /**
+     * Dysk o promieniu radius przybliżony ośmiokątem: odcinki poziomy i pionowy o długości 2p+1
+     * oraz dwa ukośne o długości 2q+1, q ≈ 0.293 r, p = r - 2q - zasięg r wzdłuż osi i ≈ r po przekątnych.
+     * Wymagane p >= 1: same odcinki ukośne dają romb "w szachownicę" (co drugi piksel),
+     * dopiero kwadrat 3x3 wypełnia luki - dla r = 2 dysk to więc kwadrat 5x5.
+     */
+    public static StructuringElement disk(int radius) {
+        if (radius < 1) {
+            throw new IllegalArgumentException("Disk radius must be positive.");
+        }
+        int q = Math.min((int) Math.round(radius * (1 - Math.sqrt(0.5))), (radius - 1) / 2);
+        int p = radius - 2 * q;
+        List<Segment> sum = new ArrayList<>();
+        sum.add(new Segment(1, 0, 2 * p + 1));
+        sum.add(new Segment(0, 1, 2 * p + 1));
+        sum.add(new Segment(1, 1, 2 * q + 1));
+        sum.add(new Segment(1, -1, 2 * q + 1));
+        return new StructuringElement(Shape.DISK, 2 * radius + 1, 2 * radius + 1,
+                Collections.singletonList(Collections.unmodifiableList(sum)));
+    }
+
+    List<List<Segment>> components() {
+        return components;
+    }
+
+    private static List<Segment> segments(Segment... segments) {
+        List<Segment> list = new ArrayList<>();
+        Collections.addAll(list, segments);
+        return Collections.unmodifiableList(list);
+    }
+
+    private static void checkOdd(int size) {
+        if (size < 1 || size % 2 == 0) {
+            throw new IllegalArgumentException("Structuring element size must be a positive odd number.");
+        }
+    }
+
+    /**
+     * Odcinek length pikseli wzdłuż kroku (dx, dy), wyśrodkowany w punkcie zaczepienia.
+     */
+    static final class Segment {
+        final int dx;
+        final int dy;
+        final int length;
+
+        Segment(int dx, int dy, int length) {
+            this.dx = dx;
+            this.dy = dy;
+            this.length = length;
+        }
+    }
+}
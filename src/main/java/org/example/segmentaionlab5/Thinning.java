@@ -0,0 +1,252 @@
+package org.example.segmentaionlab5;
+
+import org.example.OpenCVUtils;
+import org.example.ParallelRows;
+import org.example.RasterBytes;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Ścienianie obrazu binarnego (piksele > 127 to obiekt) metodą Zhang-Suen lub Guo-Hall.
+ * Każda iteracja składa się z dwóch poditeracji; decyzja o usunięciu piksela zależy tylko od
+ * jego 8 sąsiadów i jest odczytywana z tablicy 256 wartości dla danej poditeracji.
+ * Sprawdzane są wyłącznie piksele z kolejki aktywnej: na początku piksele brzegowe obiektów,
+ * później tylko sąsiedzi pikseli usuniętych - koszt zależy od obwodu, a nie od pola obiektów.
+ * Decyzje w poditeracji są liczone równolegle (na stanie sprzed poditeracji), usunięcia wykonywane po nich.
+ * Na koniec usuwane są piksele narożne schodków, więc wynik jest szkieletem 8-spójnym o grubości 1.
+ */
+public final class Thinning {
+
+    public enum Algorithm {
+        ZHANG_SUEN, GUO_HALL
+    }
+
+    /** kolejność sąsiadów w indeksie tablicy: bit 0 = N, dalej zgodnie z ruchem wskazówek zegara */
+    private static final int[] DX = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DY = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private static final boolean[][] ZHANG_SUEN_LUT = {zhangSuenTable(0), zhangSuenTable(1)};
+    private static final boolean[][] GUO_HALL_LUT = {guoHallTable(0), guoHallTable(1)};
+
+    private Thinning() {
+    }
+
+    /**
+     * Szkielet jako obraz 0/255.
+     */
+    public static BufferedImage thin(BufferedImage binaryImage, Algorithm algorithm) {
+        BufferedImage grayImage = OpenCVUtils.toGrayImage(binaryImage);
+        int width = grayImage.getWidth();
+        int height = grayImage.getHeight();
+        byte[] src = RasterBytes.grayBytes(grayImage);
+
+        BufferedImage result = RasterBytes.newGray(width, height);
+        byte[] image = RasterBytes.denseBytes(result);
+        for (int i = 0; i < src.length; i++) {
+            image[i] = (src[i] & 0xFF) > 127 ? (byte) 1 : 0;
+        }
+        thin(image, width, height, algorithm);
+        for (int i = 0; i < image.length; i++) {
+            image[i] = image[i] != 0 ? (byte) 255 : 0;
+        }
+        return result;
+    }
+
+    /**
+     * Ścienianie w miejscu obrazu 0/1 (width x height).
+     */
+    static void thin(byte[] image, int width, int height, Algorithm algorithm) {
+        boolean[][] tables = algorithm == Algorithm.GUO_HALL ? GUO_HALL_LUT : ZHANG_SUEN_LUT;
+
+        // bit s - piksel czeka na sprawdzenie w poditeracji s (jego otoczenie zmieniło się od ostatniego sprawdzenia)
+        byte[] pending = new byte[width * height];
+        IntList[] queues = {new IntList(), new IntList()};
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                if (image[index] != 0 && neighborhood(image, width, height, x, y) != 0xFF) {
+                    pending[index] = 3;
+                    queues[0].add(index);
+                    queues[1].add(index);
+                }
+            }
+        }
+
+        int idle = 0;
+        for (int step = 0; idle < 2; step++) {
+            int subIteration = step & 1;
+            boolean[] table = tables[subIteration];
+            IntList queue = queues[subIteration];
+            queues[subIteration] = new IntList();
+            int[] candidates = queue.values;
+            int count = queue.size;
+
+            // decyzje na stanie sprzed poditeracji - równolegle dla fragmentów kolejki
+            boolean[] delete = new boolean[count];
+            ParallelRows.forEachStrip(1, count, (from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int index = candidates[i];
+                    if (image[index] != 0) {
+                        delete[i] = table[neighborhood(image, width, height, index % width, index / width)];
+                    }
+                }
+            });
+
+            int mask = 1 << subIteration;
+            for (int i = 0; i < count; i++) {
+                pending[candidates[i]] &= ~mask;
+            }
+            int deleted = 0;
+            for (int i = 0; i < count; i++) {
+                if (delete[i]) {
+                    image[candidates[i]] = 0;
+                    deleted++;
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                if (!delete[i]) {
+                    continue;
+                }
+                int x = candidates[i] % width;
+                int y = candidates[i] / width;
+                for (int n = 0; n < 8; n++) {
+                    int nx = x + DX[n];
+                    int ny = y + DY[n];
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= height) {
+                        continue;
+                    }
+                    int neighbor = ny * width + nx;
+                    if (image[neighbor] == 0) {
+                        continue;
+                    }
+                    for (int s = 0; s < 2; s++) {
+                        if ((pending[neighbor] & (1 << s)) == 0) {
+                            pending[neighbor] |= (byte) (1 << s);
+                            queues[s].add(neighbor);
+                        }
+                    }
+                }
+            }
+            idle = deleted == 0 ? idle + 1 : 0;
+        }
+
+        removeStaircases(image, width, height);
+    }
+
+    /**
+     * Usuwa piksel narożny schodka: dwaj sąsiedzi w kierunkach prostopadłych (np. N i E),
+     * pozostali (poza narożnikiem między nimi) puści - sąsiedzi pozostają połączeni po przekątnej.
+     */
+    private static void removeStaircases(byte[] image, int width, int height) {
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (image[y * width + x] == 0) {
+                    continue;
+                }
+                int n = neighborhood(image, width, height, x, y);
+                for (int side = 0; side < 8; side += 2) {
+                    // bity: side, side+2 - sąsiedzi prostopadli, side+1 - narożnik między nimi
+                    int pair = (1 << side) | (1 << ((side + 2) & 7));
+                    int allowed = pair | (1 << (side + 1));
+                    if ((n & pair) == pair && (n & ~allowed & 0xFF) == 0) {
+                        image[y * width + x] = 0;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 8 sąsiadów piksela jako bity (0 = N, 1 = NE, ..., 7 = NW); poza obrazem tło.
+     */
+    private static int neighborhood(byte[] image, int width, int height, int x, int y) {
+        int bits = 0;
+        if (x > 0 && y > 0 && x < width - 1 && y < height - 1) {
+            int index = y * width + x;
+            if (image[index - width] != 0) bits |= 1;
+            if (image[index - width + 1] != 0) bits |= 2;
+            if (image[index + 1] != 0) bits |= 4;
+            if (image[index + width + 1] != 0) bits |= 8;
+            if (image[index + width] != 0) bits |= 16;
+            if (image[index + width - 1] != 0) bits |= 32;
+            if (image[index - 1] != 0) bits |= 64;
+            if (image[index - width - 1] != 0) bits |= 128;
+            return bits;
+        }
+        for (int n = 0; n < 8; n++) {
+            int nx = x + DX[n];
+            int ny = y + DY[n];
+            if (nx >= 0 && ny >= 0 && nx < width && ny < height && image[ny * width + nx] != 0) {
+                bits |= 1 << n;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Zhang-Suen: 2 <= B <= 6, A = 1 oraz P2*P4*P6 = 0 i P4*P6*P8 = 0 (poditeracja 0)
+     * albo P2*P4*P8 = 0 i P2*P6*P8 = 0 (poditeracja 1); P2 = N, P4 = E, P6 = S, P8 = W.
+     */
+    private static boolean[] zhangSuenTable(int subIteration) {
+        boolean[] table = new boolean[256];
+        for (int bits = 0; bits < 256; bits++) {
+            int[] p = neighbors(bits);
+            int b = Integer.bitCount(bits);
+            int a = 0;
+            for (int i = 0; i < 8; i++) {
+                if (p[i] == 0 && p[(i + 1) & 7] == 1) {
+                    a++;
+                }
+            }
+            int n = p[0], e = p[2], s = p[4], w = p[6];
+            boolean directional = subIteration == 0
+                    ? n * e * s == 0 && e * s * w == 0
+                    : n * e * w == 0 && n * s * w == 0;
+            table[bits] = b >= 2 && b <= 6 && a == 1 && directional;
+        }
+        return table;
+    }
+
+    /**
+     * Guo-Hall: C(P) = 1, 2 <= N(P) <= 3 i warunek kierunkowy poditeracji.
+     */
+    private static boolean[] guoHallTable(int subIteration) {
+        boolean[] table = new boolean[256];
+        for (int bits = 0; bits < 256; bits++) {
+            int[] p = neighbors(bits);
+            int p2 = p[0], p3 = p[1], p4 = p[2], p5 = p[3], p6 = p[4], p7 = p[5], p8 = p[6], p9 = p[7];
+            int c = ((1 - p2) & (p3 | p4)) + ((1 - p4) & (p5 | p6)) + ((1 - p6) & (p7 | p8)) + ((1 - p8) & (p9 | p2));
+            int n1 = (p9 | p2) + (p3 | p4) + (p5 | p6) + (p7 | p8);
+            int n2 = (p2 | p3) + (p4 | p5) + (p6 | p7) + (p8 | p9);
+            int n = Math.min(n1, n2);
+            int m = subIteration == 0 ? ((p6 | p7 | (1 - p9)) & p8) : ((p2 | p3 | (1 - p5)) & p4);
+            table[bits] = c == 1 && n >= 2 && n <= 3 && m == 0;
+        }
+        return table;
+    }
+
+    private static int[] neighbors(int bits) {
+        int[] p = new int[8];
+        for (int i = 0; i < 8; i++) {
+            p[i] = (bits >> i) & 1;
+        }
+        return p;
+    }
+
+    /**
+     * Rosnąca tablica indeksów pikseli.
+     */
+    private static final class IntList {
+        private int[] values = new int[1024];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example;
+
+import org.opencv.core.Core;
+import org.opencv.core.Mat;
+import org.opencv.core.MatOfByte;
+import org.opencv.imgcodecs.Imgcodecs;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pomiar czasu konwersji BufferedImage -> Mat -> BufferedImage (uruchamiany przez main):
+ * dawna droga przez PNG (ImageIO.write + Imgcodecs.imdecode, Imgcodecs.imencode + ImageIO.read)
+ * wobec kopiowania bajtów rastra w OpenCVUtils. Dla każdego rozmiaru i typu obrazu wypisuje
+ * medianę czasu obu dróg i przyspieszenie.
+ * <pre>
+ * java -Djava.library.path=&lt;katalog z biblioteką opencv_java&gt; \
+ *      -cp target/classes:target/test-classes:&lt;opencv.jar&gt; \
+ *      org.example.OpenCVConversionBenchmark [megapiksele...]
+ * </pre>
+ */
+public final class OpenCVConversionBenchmark {
+
+    private static final int[] DEFAULT_MEGAPIXELS = {1, 4, 12, 24};
+    private static final int[] TYPES = {
+            BufferedImage.TYPE_BYTE_GRAY,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_BYTE_BINARY
+    };
+    private static final int WARMUP = 2;
+    private static final int RUNS = 5;
+
+    private OpenCVConversionBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        System.loadLibrary(Core.NATIVE_LIBRARY_NAME);
+        int[] megapixels = args.length == 0
+                ? DEFAULT_MEGAPIXELS
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        System.out.printf("%-6s %-16s %12s %12s %9s%n", "MP", "type", "PNG [ms]", "raster [ms]", "speedup");
+        for (int mp : megapixels) {
+            // proporcje 3:2 jak w skanach / zdjęciach
+            int width = (int) Math.round(Math.sqrt(mp * 1_000_000 * 1.5));
+            int height = mp * 1_000_000 / width;
+            for (int type : TYPES) {
+                BufferedImage image = testImage(width, height, type);
+                double png = median(image, true);
+                double raster = median(image, false);
+                System.out.printf("%-6d %-16s %12.1f %12.1f %8.1fx%n", mp, typeName(type), png, raster, png / raster);
+            }
+        }
+    }
+
+    /**
+     * Mediana czasu (ms) pełnej konwersji w obie strony.
+     */
+    private static double median(BufferedImage image, boolean png) throws IOException {
+        double[] times = new double[RUNS];
+        for (int run = -WARMUP; run < RUNS; run++) {
+            long start = System.nanoTime();
+            BufferedImage back = png ? pngRoundTrip(image) : rasterRoundTrip(image);
+            long elapsed = System.nanoTime() - start;
+            if (back.getWidth() != image.getWidth() || back.getHeight() != image.getHeight()) {
+                throw new IllegalStateException("Round trip changed the image size.");
+            }
+            if (run >= 0) {
+                times[run] = elapsed / 1e6;
+            }
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+
+    private static BufferedImage rasterRoundTrip(BufferedImage image) {
+        Mat mat = OpenCVUtils.bufferedImageToMat(image);
+        try {
+            return OpenCVUtils.matToBufferedImage(mat, image.getType());
+        } finally {
+            mat.release();
+        }
+    }
+
+    /**
+     * Konwersja sprzed OpenCVUtils (np. dawne MedianFilterProcessor, CannyEdgeDetector).
+     */
+    private static BufferedImage pngRoundTrip(BufferedImage image) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", encoded);
+        Mat mat = Imgcodecs.imdecode(new MatOfByte(encoded.toByteArray()), Imgcodecs.IMREAD_UNCHANGED);
+        MatOfByte buffer = new MatOfByte();
+        try {
+            Imgcodecs.imencode(".png", mat, buffer);
+            return ImageIO.read(new ByteArrayInputStream(buffer.toArray()));
+        } finally {
+            mat.release();
+            buffer.release();
+        }
+    }
+
+    /**
+     * Gradient z szumem - kompresuje się podobnie jak zdjęcie, a nie jak jednolita plama.
+     */
+    private static BufferedImage testImage(int width, int height, int type) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(1);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(16)) & 0xFF;
+                row[x] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+            image.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return image;
+    }
+
+    private static String typeName(int type) {
+        switch (type) {
+            case BufferedImage.TYPE_BYTE_GRAY:
+                return "BYTE_GRAY";
+            case BufferedImage.TYPE_3BYTE_BGR:
+                return "3BYTE_BGR";
+            case BufferedImage.TYPE_INT_RGB:
+                return "INT_RGB";
+            case BufferedImage.TYPE_INT_ARGB:
+                return "INT_ARGB";
+            case BufferedImage.TYPE_BYTE_BINARY:
+                return "BYTE_BINARY";
+            default:
+                return String.valueOf(type);
+        }
+    }
+}
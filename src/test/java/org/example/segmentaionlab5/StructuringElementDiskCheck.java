@@ -0,0 +1,123 @@
+package org.example.segmentaionlab5;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Sprawdzenie rozkładu StructuringElement.disk na odcinki dla r = 1..10 (uruchamiane przez main).
+ * Dla każdego promienia:
+ * - suma Minkowskiego odcinków liczona wprost (na zbiorach punktów) musi być pełnym ośmiokątem
+ * |x| <= r, |y| <= r, |x| + |y| <= r + p - bez dziur i o wymiarach elementu,
+ * - MorphologyEngine.dilate / erode obrazu losowego musi dawać to samo co dylacja / erozja
+ * liczona wprost tym zbiorem (dla pikseli odległych od brzegu o co najmniej r).
+ */
+public final class StructuringElementDiskCheck {
+
+    private static final int MAX_RADIUS = 10;
+
+    private StructuringElementDiskCheck() {
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(17);
+        for (int radius = 1; radius <= MAX_RADIUS; radius++) {
+            StructuringElement disk = StructuringElement.disk(radius);
+            Set<Long> mask = minkowskiSum(disk);
+            checkOctagon(disk, mask, radius);
+            checkEngine(disk, mask, radius, random);
+            System.out.printf("r = %2d: %3d px, %dx%d - OK%n", radius, mask.size(), disk.getWidth(), disk.getHeight());
+        }
+    }
+
+    /**
+     * Zbiór przesunięć elementu: suma (union) sum Minkowskiego odcinków, liczona punkt po punkcie.
+     */
+    private static Set<Long> minkowskiSum(StructuringElement element) {
+        Set<Long> union = new HashSet<>();
+        for (List<StructuringElement.Segment> sum : element.components()) {
+            Set<Long> points = new HashSet<>();
+            points.add(key(0, 0));
+            for (StructuringElement.Segment segment : sum) {
+                int half = segment.length / 2;
+                Set<Long> next = new HashSet<>();
+                for (long point : points) {
+                    for (int t = -half; t <= half; t++) {
+                        next.add(key(x(point) + t * segment.dx, y(point) + t * segment.dy));
+                    }
+                }
+                points = next;
+            }
+            union.addAll(points);
+        }
+        return union;
+    }
+
+    private static void checkOctagon(StructuringElement disk, Set<Long> mask, int radius) {
+        int p = 0;
+        for (List<StructuringElement.Segment> sum : disk.components()) {
+            for (StructuringElement.Segment segment : sum) {
+                if (segment.dy == 0) {
+                    p = segment.length / 2;
+                }
+            }
+        }
+        if (p < 1) {
+            throw new IllegalStateException("r = " + radius + ": horizontal segment shorter than 3 pixels.");
+        }
+        int halfWidth = disk.getWidth() / 2;
+        int halfHeight = disk.getHeight() / 2;
+        for (int y = -radius - 1; y <= radius + 1; y++) {
+            for (int x = -radius - 1; x <= radius + 1; x++) {
+                boolean expected = Math.abs(x) <= radius && Math.abs(y) <= radius
+                        && Math.abs(x) + Math.abs(y) <= radius + p;
+                if (mask.contains(key(x, y)) != expected) {
+                    throw new IllegalStateException("r = " + radius + ": decomposed disk differs from the octagon at ("
+                            + x + ", " + y + ")" + (expected ? " - hole" : " - extra pixel"));
+                }
+                if (expected && (Math.abs(x) > halfWidth || Math.abs(y) > halfHeight)) {
+                    throw new IllegalStateException("r = " + radius + ": disk exceeds its declared size.");
+                }
+            }
+        }
+    }
+
+    private static void checkEngine(StructuringElement disk, Set<Long> mask, int radius, Random random) {
+        int width = 6 * radius + 7;
+        int height = 4 * radius + 9;
+        byte[] src = new byte[width * height];
+        random.nextBytes(src);
+
+        byte[] dilated = MorphologyEngine.dilate(src, width, height, disk);
+        byte[] eroded = MorphologyEngine.erode(src, width, height, disk);
+        for (int y = radius; y < height - radius; y++) {
+            for (int x = radius; x < width - radius; x++) {
+                int max = 0;
+                int min = 255;
+                for (long offset : mask) {
+                    int value = src[(y + y(offset)) * width + x + x(offset)] & 0xFF;
+                    max = Math.max(max, value);
+                    min = Math.min(min, value);
+                }
+                int i = y * width + x;
+                if ((dilated[i] & 0xFF) != max || (eroded[i] & 0xFF) != min) {
+                    throw new IllegalStateException("r = " + radius + ": MorphologyEngine differs from the brute-force"
+                            + " result at (" + x + ", " + y + ")");
+                }
+            }
+        }
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    private static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    private static int y(long key) {
+        return (int) key;
+    }
+}